@@ -0,0 +1,14 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "admin")
+public class AdminProperties {
+    // Required in the X-Admin-Key header for /admin endpoints; blank disables them
+    private String apiKey;
+}
@@ -5,6 +5,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @Component
 @ConfigurationProperties(prefix = "africastalking")
@@ -14,4 +17,6 @@ public class AfricasTalkingProperties {
     private String smsUrl;
     private String shortcode;
     private String senderId;
+    // Recipient status codes worth retrying (500 InternalServerError, 501 GatewayError)
+    private List<Integer> retryableStatusCodes = new ArrayList<>(List.of(500, 501));
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "analytics")
+public class AnalyticsProperties {
+    // Id ranges rebuilt at the same time (each holds a database connection, plus one for the lock)
+    private Integer rebuildParallelism = 4;
+    // Question logs per rebuild range
+    private Long rebuildRangeSize = 50000L;
+    // Most days or questions one analytics request may return
+    private Integer maxDays = 366;
+    private Integer maxTopQuestions = 500;
+}
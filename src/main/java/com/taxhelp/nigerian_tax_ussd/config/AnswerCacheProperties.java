@@ -0,0 +1,22 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "rag.cache")
+public class AnswerCacheProperties {
+    private Boolean enabled = true;
+    // L1 - in-process cache on each instance
+    private Long localMaxSize = 10000L;
+    private Integer localTtlSeconds = 3600;
+    // L2 - shared Redis cache
+    private Boolean redisEnabled = true;
+    private Integer redisTtlSeconds = 86400;
+    private String keyPrefix = "rag:answer:";
+    // How often instances pick up invalidations made on other instances
+    private Integer generationRefreshSeconds = 30;
+}
@@ -1,18 +1,29 @@
 package com.taxhelp.nigerian_tax_ussd.config;
 
 
+import com.taxhelp.nigerian_tax_ussd.service.rag.RagEndpoint;
+import com.taxhelp.nigerian_tax_ussd.service.rag.RagEndpointPool;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.util.List;
+
 @Configuration
 public class AppConfig {
 
+    // One WebClient per RAG replica, all on the "rag" connection pool
     @Bean
-    public WebClient ragWebClient(RagServiceProperties ragProperties) {
-        return WebClient.builder()
-                .baseUrl(ragProperties.getUrl())
-                .build();
+    public RagEndpointPool ragEndpointPool(RagServiceProperties ragProperties,
+                                           UpstreamHttpClients httpClients,
+                                           MeterRegistry meterRegistry) {
+        List<RagEndpoint> endpoints = ragProperties.getEndpointUrls().stream()
+                .map(url -> new RagEndpoint(url,
+                        WebClient.builder().baseUrl(url).clientConnector(httpClients.connector("rag")).build(),
+                        ragProperties.getHedge().getWindowSize()))
+                .toList();
+        return new RagEndpointPool(endpoints, ragProperties, meterRegistry);
     }
 
 
@@ -1,13 +1,30 @@
 package com.taxhelp.nigerian_tax_ussd.config;
 
 
+import com.taxhelp.nigerian_tax_ussd.model.Language;
+import com.taxhelp.nigerian_tax_ussd.service.cache.StaticTranslations;
+import com.taxhelp.nigerian_tax_ussd.service.cache.TranslationCache;
+import com.taxhelp.nigerian_tax_ussd.service.util.MicroBatcher;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
@@ -18,47 +35,167 @@ public class GoogleTranslationService {
     private String apiKey;
 
     private final WebClient webClient;
+    private final TranslationCache translationCache;
+    private final StaticTranslations staticTranslations;
+    private final LanguageConfig languageConfig;
+    private final TranslationBatchProperties batchProperties;
+    private final MicroBatcher<String, String, String> batcher;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final MeterRegistry meterRegistry;
 
-    public GoogleTranslationService() {
+    public GoogleTranslationService(TranslationCache translationCache,
+                                    StaticTranslations staticTranslations,
+                                    LanguageConfig languageConfig,
+                                    TranslationBatchProperties batchProperties,
+                                    CircuitBreakerRegistry circuitBreakerRegistry,
+                                    BulkheadRegistry bulkheadRegistry,
+                                    UpstreamHttpClients httpClients,
+                                    MeterRegistry meterRegistry) {
+        this.translationCache = translationCache;
+        this.staticTranslations = staticTranslations;
+        this.languageConfig = languageConfig;
+        this.batchProperties = batchProperties;
+        this.meterRegistry = meterRegistry;
+        // While the breaker is open translations fail at once and callers keep the untranslated (English) text
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("translation");
+        this.bulkhead = bulkheadRegistry.bulkhead("translation");
         this.webClient = WebClient.builder()
                 .baseUrl("https://translation.googleapis.com/")
+                .clientConnector(httpClients.connector("translation"))
                 .build();
+        // Concurrent translations for the same language pair share one API call
+        this.batcher = new MicroBatcher<>("translation",
+                batchProperties.getWindowMillis(),
+                batchProperties.getMaxBatchSize(),
+                this::fetchTranslations,
+                meterRegistry);
     }
 
     public String translate(String text, String sourceLanguage, String targetLanguage) {
         try{
-            if(sourceLanguage.equalsIgnoreCase(targetLanguage)){
-                return text;
-            }
-
-            log.info("Translating from {} to {}: '{}'", sourceLanguage, targetLanguage, text);
-
-            Map<String, Object> response = webClient
-                    .post()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/language/translate/v2")
-                            .queryParam("key", apiKey)
-                            .queryParam("q", text)
-                            .queryParam("source", sourceLanguage)
-                            .queryParam("target", targetLanguage)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .block();
-
-// Extract translated text from response
-            Map<String, Object> data = (Map<String, Object>) response.get("data");
-            List<Map<String, Object>> translations = (List<Map<String, Object>>) data.get("translations");
-            String translatedText = (String) translations.get(0).get("translatedText");
-
-            log.info("Translated from {} to {}: {}", sourceLanguage, targetLanguage, translatedText);
-            return translatedText;
+            return translateAsync(text, sourceLanguage, targetLanguage).join();
         }catch (Exception e){
             log.error("Error while translating text", e);
             return text;
         }
     }
 
+    // Non-blocking translate, cache lookups included; completes once the batch containing this text returns
+    public CompletableFuture<String> translateAsync(String text, String sourceLanguage, String targetLanguage) {
+        if(sourceLanguage.equalsIgnoreCase(targetLanguage)){
+            return CompletableFuture.completedFuture(text);
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        // Fixed UI strings never go over the network
+        Optional<String> fixed = staticTranslations.lookup(text, sourceLanguage, targetLanguage);
+        if (fixed.isPresent()) {
+            sample.stop(timer(sourceLanguage, targetLanguage, "static", "success"));
+            return CompletableFuture.completedFuture(fixed.get());
+        }
+
+        // Completes at once on a local hit, and with null on a miss
+        return translationCache.getReactive(text, sourceLanguage, targetLanguage).toFuture()
+                .thenCompose(cached -> {
+                    if (cached != null) {
+                        log.debug("Translation cache hit {} -> {}", sourceLanguage, targetLanguage);
+                        sample.stop(timer(sourceLanguage, targetLanguage, "cache", "success"));
+                        return CompletableFuture.completedFuture(cached);
+                    }
+                    return fetchTranslation(text, sourceLanguage, targetLanguage, sample);
+                });
+    }
+
+    private CompletableFuture<String> fetchTranslation(String text, String sourceLanguage, String targetLanguage,
+                                                       Timer.Sample sample) {
+        String languagePair = sourceLanguage + ":" + targetLanguage;
+        CompletableFuture<String> translation = batchProperties.getEnabled()
+                ? batcher.submit(languagePair, text)
+                : fetchTranslations(languagePair, List.of(text)).thenApply(translations -> translations.get(0));
+
+        return translation
+                .whenComplete((translatedText, e) ->
+                        sample.stop(timer(sourceLanguage, targetLanguage, "api", e == null ? "success" : "error")))
+                .thenApply(translatedText -> {
+                    log.info("Translated from {} to {}: {}", sourceLanguage, targetLanguage, translatedText);
+                    // Runs on the HTTP client's event loop, so the write must not block
+                    translationCache.putReactive(text, sourceLanguage, targetLanguage, translatedText).subscribe();
+                    return translatedText;
+                });
+    }
+
+    // source: where the translation came from (static, cache or api)
+    private Timer timer(String sourceLanguage, String targetLanguage, String source, String outcome) {
+        return Timer.builder("translation.requests")
+                .tag("direction", sourceLanguage + "-" + targetLanguage)
+                .tag("source", source)
+                .tag("outcome", outcome)
+                .description("Translations per language direction")
+                .register(meterRegistry);
+    }
+
+    // Translate static strings missing from the bundled file once, at startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void precomputeStaticTranslations() {
+        languageConfig.getAllLanguages().values().stream()
+                .map(Language::getCode)
+                .filter(code -> !code.equals("en"))
+                .forEach(code -> {
+                    List<String> missing = staticTranslations.missing(code);
+                    if (missing.isEmpty()) {
+                        return;
+                    }
+                    fetchTranslations("en:" + code, missing).whenComplete((translations, error) -> {
+                        if (error != null) {
+                            log.warn("Failed to precompute static translations to {}: {}", code, error.getMessage());
+                            return;
+                        }
+                        for (int i = 0; i < missing.size(); i++) {
+                            staticTranslations.register(missing.get(i), code, translations.get(i));
+                        }
+                    });
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batcher.close();
+    }
+
+    // One v2 API call for all texts (q is repeated); results come back in request order
+    private CompletableFuture<List<String>> fetchTranslations(String languagePair, List<String> texts) {
+        String[] languages = languagePair.split(":");
+        log.info("Translating {} text(s) from {} to {}", texts.size(), languages[0], languages[1]);
+
+        Map<String, Object> body = Map.of(
+                "q", texts,
+                "source", languages[0],
+                "target", languages[1],
+                "format", "text");
+
+        return webClient
+                .post()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/language/translate/v2")
+                        .queryParam("key", apiKey)
+                        .build())
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(Map.class)
+                .map(response -> {
+// Extract translated texts from response
+                    Map<String, Object> data = (Map<String, Object>) response.get("data");
+                    List<Map<String, Object>> translations = (List<Map<String, Object>>) data.get("translations");
+                    return translations.stream()
+                            .map(translation -> (String) translation.get("translatedText"))
+                            .toList();
+                })
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .toFuture();
+    }
+
     public String detectLanguage(String text) {
         try{
             Map<String, Object> response = webClient
@@ -0,0 +1,22 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "question.budget")
+public class QuestionBudgetProperties {
+    // When disabled only the per-stage limits apply
+    private Boolean enabled = true;
+    // Time from submission until the answer SMS must be on its way
+    private Long totalMillis = 90000L;
+    // Longest any one attempt of a stage may take, keyed by stage name (e.g. rag-query: 60000)
+    private Map<String, Long> stageMillis = new HashMap<>();
+    private Long defaultStageMillis = 15000L;
+}
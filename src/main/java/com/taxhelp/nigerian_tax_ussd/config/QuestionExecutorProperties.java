@@ -0,0 +1,18 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "question.executor")
+public class QuestionExecutorProperties {
+    // Max questions being processed at the same time (one virtual thread each)
+    private Integer maxInFlight = 50;
+    // Max questions waiting for a free slot before new ones are shed
+    private Integer queueCapacity = 500;
+    // How long to wait for in-flight questions on shutdown
+    private Integer shutdownTimeoutSeconds = 30;
+}
@@ -0,0 +1,23 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "question.log")
+public class QuestionLogProperties {
+    // Logs waiting to be written; beyond this they go to the spill file
+    private Integer bufferCapacity = 10000;
+    // Rows per batch insert
+    private Integer batchSize = 200;
+    // Longest a log waits in the buffer before its batch is written
+    private Integer flushIntervalMillis = 1000;
+    // Overflow and failed batches, replayed into the database later
+    private String spillFile = "data/question-log-spill.jsonl";
+    private Integer spillReplayIntervalMillis = 30000;
+    // How long to keep writing the buffer on shutdown before spilling the rest
+    private Integer shutdownTimeoutSeconds = 10;
+}
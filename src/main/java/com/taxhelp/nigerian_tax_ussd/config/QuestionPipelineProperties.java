@@ -0,0 +1,49 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "question.pipeline")
+public class QuestionPipelineProperties {
+    // executor (in-memory), stream (Redis Streams, survives restarts) or reactive (non-blocking, in-memory)
+    private String mode = "executor";
+
+    private Stream stream = new Stream();
+    private Reactive reactive = new Reactive();
+
+    @Data
+    public static class Stream {
+        private String keyPrefix = "question:stage:";
+        private String group = "question-processors";
+        // Defaults to HOSTNAME, or a random id when that is not set
+        private String consumerName;
+        private Integer batchSize = 10;
+        private Integer pollTimeoutMillis = 2000;
+        // Entries per stage stream beyond which a backlog is logged; unhandled entries are never trimmed
+        private Long maxLength = 10000L;
+        // Pending entries idle longer than this are reclaimed from dead consumers
+        private Long reclaimIdleMillis = 180000L;
+        private Long reclaimIntervalMillis = 30000L;
+        // After this many deliveries an entry is moved to the dead-letter stream
+        private Integer maxDeliveries = 5;
+        // Consumers per stage, keyed by stage stream name (e.g. rag-query: 8)
+        private Map<String, Integer> parallelism = new HashMap<>();
+        private Integer defaultParallelism = 2;
+    }
+
+    @Data
+    public static class Reactive {
+        // Questions in flight at once; beyond this new ones are shed
+        private Integer maxInFlight = 5000;
+        // Retries after a stage error or timeout, within the question budget (SMS and log stages are never retried)
+        private Integer maxRetries = 2;
+        private Long retryBackoffMillis = 200L;
+    }
+}
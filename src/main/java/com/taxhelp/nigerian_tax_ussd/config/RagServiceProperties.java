@@ -5,12 +5,44 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @Component
 @ConfigurationProperties(prefix = "rag.service")
 public class RagServiceProperties {
     private String url = "http://localhost:8000";
+    // RAG replicas to balance across; when empty only url is used
+    private List<String> urls = new ArrayList<>();
     private String queryEndpoint = "/api/v1/query";
     private Integer timeout = 60000;
     private Integer maxLength = 140;
+
+    private Health health = new Health();
+    private Hedge hedge = new Hedge();
+
+    public List<String> getEndpointUrls() {
+        return urls.isEmpty() ? List.of(url) : urls;
+    }
+
+    @Data
+    public static class Health {
+        private String endpoint = "/health";
+        private Long intervalMillis = 10000L;
+        private Long timeoutMillis = 2000L;
+        // Failed queries in a row before a replica is taken out until its next good probe
+        private Integer maxConsecutiveFailures = 3;
+    }
+
+    @Data
+    public static class Hedge {
+        private Boolean enabled = true;
+        // Send a second request once the first has taken longer than this latency quantile
+        private Double quantile = 0.95;
+        private Long minDelayMillis = 1000L;
+        // Recent answers kept per replica to estimate the quantile; no hedging until minSamples
+        private Integer windowSize = 200;
+        private Integer minSamples = 20;
+    }
 }
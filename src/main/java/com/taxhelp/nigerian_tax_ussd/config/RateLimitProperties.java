@@ -0,0 +1,21 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+    // memory (per instance) or redis (shared by all instances)
+    private String store = "memory";
+    private Integer maxRequestsPerDay = 50;
+    private Integer maxRequestsPerHour = 15;
+    // Daily limits reset at midnight in this zone
+    private String zone = "Africa/Lagos";
+    private String keyPrefix = "ratelimit:";
+    // Phone numbers remembered locally as over the limit, to skip Redis
+    private Long localBlockCacheSize = 100000L;
+}
@@ -0,0 +1,28 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "session")
+public class SessionProperties {
+    // Seconds a session lives after its last use
+    private Long timeout = 300L;
+    private Long cleanupInterval = 60L;
+    // redis, memory (this instance only) or tiered (memory + Redis, survives Redis outages)
+    private String store = "redis";
+    // Tiered store: how long to serve from memory before trying Redis again
+    private Long remoteRetryMillis = 5000L;
+
+    private Memory memory = new Memory();
+
+    @Data
+    public static class Memory {
+        // Expiry timing wheel: tick length and number of slots
+        private Long tickMillis = 1000L;
+        private Integer wheelSize = 512;
+    }
+}
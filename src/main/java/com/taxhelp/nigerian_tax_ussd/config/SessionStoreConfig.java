@@ -0,0 +1,40 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import com.taxhelp.nigerian_tax_ussd.service.session.InMemorySessionStore;
+import com.taxhelp.nigerian_tax_ussd.service.session.RedisSessionStore;
+import com.taxhelp.nigerian_tax_ussd.service.session.SessionStore;
+import com.taxhelp.nigerian_tax_ussd.service.session.TieredSessionStore;
+import com.taxhelp.nigerian_tax_ussd.service.session.UserSessionCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+
+@Slf4j
+@Configuration
+public class SessionStoreConfig {
+
+    @Bean
+    public SessionStore sessionStore(SessionProperties properties,
+                                     RedisTemplate<String, Object> redisTemplate,
+                                     UserSessionCodec codec) {
+        String store = properties.getStore().toLowerCase();
+        log.info("Using {} session store", store);
+
+        return switch (store) {
+            case "memory" -> memoryStore(properties, codec);
+            case "tiered" -> new TieredSessionStore(
+                    memoryStore(properties, codec),
+                    new RedisSessionStore(redisTemplate, codec, properties.getTimeout()),
+                    properties.getRemoteRetryMillis());
+            case "redis" -> new RedisSessionStore(redisTemplate, codec, properties.getTimeout());
+            default -> throw new IllegalArgumentException("Unknown session.store: " + properties.getStore());
+        };
+    }
+
+    private static InMemorySessionStore memoryStore(SessionProperties properties, UserSessionCodec codec) {
+        return new InMemorySessionStore(codec, properties.getTimeout(),
+                properties.getMemory().getTickMillis(), properties.getMemory().getWheelSize());
+    }
+}
@@ -0,0 +1,25 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "question.similarity")
+public class SimilarityIndexProperties {
+    private Boolean enabled = true;
+    // Minimum Jaccard similarity (0-1) of character shingles to treat two questions as the same (their words must agree too)
+    private Double threshold = 0.75;
+    // Looser threshold used only when the RAG service cannot answer (the words must still agree)
+    private Double fallbackThreshold = 0.5;
+    // MinHash signature length = bands * rowsPerBand
+    private Integer bands = 16;
+    private Integer rowsPerBand = 4;
+    private Integer shingleSize = 3;
+    // Oldest entries are dropped beyond this
+    private Integer maxEntries = 20000;
+    // Most-asked questions loaded from the question log at startup
+    private Integer seedSize = 1000;
+}
@@ -0,0 +1,27 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "sms.delivery")
+public class SmsDeliveryProperties {
+    // Message ids and delivery reports waiting to be written; beyond this they are dropped
+    private Integer bufferCapacity = 20000;
+    // Updates per batch, and the longest one waits before its batch is written
+    private Integer batchSize = 500;
+    private Integer flushIntervalMillis = 1000;
+    // An update whose question log is not written yet is tried again this often, this many times
+    private Long matchRetryMillis = 2000L;
+    private Integer maxMatchAttempts = 15;
+    // Report statuses that mean the handset got the message
+    private List<String> deliveredStatuses = new ArrayList<>(List.of("Success"));
+    // If set, the callback must carry it as ?token=
+    private String callbackToken = "";
+}
@@ -0,0 +1,27 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "sms.dispatcher")
+public class SmsDispatcherProperties {
+    // Messages waiting to be sent; beyond this new ones are dropped
+    private Integer queueCapacity = 10000;
+    // Gateway calls per second (one call may carry many recipients), and how many may go at once
+    private Double ratePerSecond = 10.0;
+    private Integer burst = 20;
+    // Recipients of the same message body sent in one call
+    private Integer maxRecipientsPerCall = 100;
+    // Total attempts per recipient, with exponential backoff between them
+    private Integer maxAttempts = 5;
+    private Long retryBaseDelayMillis = 1000L;
+    private Long retryMaxDelayMillis = 60000L;
+    private Long wheelTickMillis = 100L;
+    private Integer wheelSize = 1024;
+    // How long shutdown waits for queued messages to be sent
+    private Integer shutdownTimeoutSeconds = 10;
+}
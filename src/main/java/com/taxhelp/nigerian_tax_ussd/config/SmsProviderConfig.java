@@ -0,0 +1,33 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import com.taxhelp.nigerian_tax_ussd.service.sms.SmsProvider;
+import com.taxhelp.nigerian_tax_ussd.service.sms.SmsProviderRouter;
+import com.taxhelp.nigerian_tax_ussd.service.sms.StubSmsProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+public class SmsProviderConfig {
+
+    @Bean
+    public SmsProviderRouter smsProviderRouter(SmsRoutingProperties properties,
+                                               List<SmsProvider> providers,
+                                               MeterRegistry meterRegistry) {
+        Map<String, SmsProvider> byName = new HashMap<>();
+        providers.forEach(provider -> byName.put(provider.getName(), provider));
+
+        // Stubs are not beans; any route named stub* gets its own
+        properties.getProviders().stream()
+                .map(SmsRoutingProperties.Route::getName)
+                .filter(name -> name.startsWith("stub"))
+                .forEach(name -> byName.putIfAbsent(name, new StubSmsProvider(name)));
+
+        return new SmsProviderRouter(properties, byName, meterRegistry);
+    }
+}
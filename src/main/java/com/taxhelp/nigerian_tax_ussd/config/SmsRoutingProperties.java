@@ -0,0 +1,36 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "sms.routing")
+public class SmsRoutingProperties {
+    // In failover order: africastalking, twilio or stub
+    private List<Route> providers = new ArrayList<>(List.of(new Route("africastalking", 100)));
+    // Recent calls per provider used to judge its health
+    private Integer windowSize = 50;
+    private Integer minCalls = 10;
+    // A provider is degraded above this error rate or p95 latency
+    private Double maxErrorRate = 0.5;
+    private Long maxLatencyMillis = 5000L;
+    // How long a degraded provider is skipped before it gets traffic again
+    private Long cooldownMillis = 30000L;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Route {
+        private String name;
+        // Share of traffic among healthy providers; 0 = failover only
+        private Integer weight = 0;
+    }
+}
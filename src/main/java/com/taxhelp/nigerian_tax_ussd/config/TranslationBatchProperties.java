@@ -0,0 +1,17 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "translation.batch")
+public class TranslationBatchProperties {
+    private Boolean enabled = true;
+    // How long to wait for more strings with the same language pair
+    private Integer windowMillis = 5;
+    // Send as soon as this many strings are waiting (API limit is 128)
+    private Integer maxBatchSize = 32;
+}
@@ -0,0 +1,19 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "translation.cache")
+public class TranslationCacheProperties {
+    private Boolean enabled = true;
+    private Long localMaxSize = 20000L;
+    private Integer localTtlSeconds = 86400;
+    // Optional shared tier so instances reuse each other's translations
+    private Boolean redisEnabled = false;
+    private Integer redisTtlSeconds = 604800;
+    private String keyPrefix = "translation:";
+}
@@ -0,0 +1,15 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "question.trending")
+public class TrendingQuestionsProperties {
+    private Boolean enabled = true;
+    // Distinct questions tracked per time bucket; memory is fixed at buckets * capacity
+    private Integer capacity = 200;
+}
@@ -0,0 +1,16 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "twilio")
+public class TwilioProperties {
+    private String accountSid;
+    private String authToken;
+    // Sender number, in E.164
+    private String phoneNumber;
+}
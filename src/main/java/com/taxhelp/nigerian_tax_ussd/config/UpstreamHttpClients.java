@@ -0,0 +1,80 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One named connection pool per upstream, so a slow RAG service cannot use up
+ * the connections translation needs, and each pool is sized and visible on
+ * its own. Pool metrics (connections, pending acquires and acquire time) are
+ * exported under {@code reactor.netty.connection.provider.*} tagged with the
+ * pool name, request metrics under {@code reactor.netty.http.client.*}.
+ * <p>
+ * Connections are kept alive and reused, and each client is warmed up when
+ * created, so questions do not pay for event loop, DNS or TLS setup.
+ */
+@Slf4j
+@Component
+public class UpstreamHttpClients {
+
+    private final UpstreamHttpProperties properties;
+    private final Map<String, HttpClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, ConnectionProvider> providers = new ConcurrentHashMap<>();
+
+    public UpstreamHttpClients(UpstreamHttpProperties properties) {
+        this.properties = properties;
+    }
+
+    // For WebClient.Builder#clientConnector; calls for the same upstream share its pool
+    public ReactorClientHttpConnector connector(String upstream) {
+        return new ReactorClientHttpConnector(clients.computeIfAbsent(upstream, this::create));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        providers.values().forEach(ConnectionProvider::dispose);
+    }
+
+    private HttpClient create(String upstream) {
+        UpstreamHttpProperties.Pool pool = properties.getPools().getOrDefault(upstream, new UpstreamHttpProperties.Pool());
+
+        ConnectionProvider provider = ConnectionProvider.builder(upstream)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(pool.getPendingAcquireTimeoutMillis()))
+                .maxIdleTime(Duration.ofMillis(pool.getMaxIdleTimeMillis()))
+                .maxLifeTime(Duration.ofMillis(pool.getMaxLifeTimeMillis()))
+                .evictInBackground(Duration.ofMillis(pool.getEvictInBackgroundMillis()))
+                .metrics(true)
+                .build();
+        providers.put(upstream, provider);
+
+        HttpClient client = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, pool.getConnectTimeoutMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(Duration.ofMillis(pool.getResponseTimeoutMillis()))
+                .compress(pool.getCompress())
+                // Query strings (e.g. API keys) must not become metric tags
+                .metrics(true, uri -> StringUtils.substringBefore(uri, "?"));
+        if (pool.getHttp2()) {
+            client = client.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        client.warmup().block();
+
+        log.info("HTTP pool '{}' created - MaxConnections: {}, PendingAcquire: {}, HTTP/2: {}",
+                upstream, pool.getMaxConnections(), pool.getPendingAcquireMaxCount(), pool.getHttp2());
+        return client;
+    }
+}
@@ -0,0 +1,36 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "http.upstream")
+public class UpstreamHttpProperties {
+    // Connection pools keyed by upstream name (rag, translation); others get the defaults below
+    private Map<String, Pool> pools = new HashMap<>();
+
+    @Data
+    public static class Pool {
+        // Per remote host
+        private Integer maxConnections = 50;
+        // Requests that may wait for a free connection, and for how long
+        private Integer pendingAcquireMaxCount = 500;
+        private Long pendingAcquireTimeoutMillis = 5000L;
+        // Idle connections are closed after max-idle, every connection after max-life
+        private Long maxIdleTimeMillis = 60000L;
+        private Long maxLifeTimeMillis = 600000L;
+        private Long evictInBackgroundMillis = 30000L;
+        private Integer connectTimeoutMillis = 3000;
+        private Long responseTimeoutMillis = 30000L;
+        // Negotiate HTTP/2 over TLS, falling back to HTTP/1.1
+        private Boolean http2 = false;
+        // Ask for gzip responses
+        private Boolean compress = true;
+    }
+}
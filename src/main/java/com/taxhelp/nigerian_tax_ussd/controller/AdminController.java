@@ -0,0 +1,191 @@
+package com.taxhelp.nigerian_tax_ussd.controller;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.AdminProperties;
+import com.taxhelp.nigerian_tax_ussd.config.AnalyticsProperties;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionLogQuestionRollup;
+import com.taxhelp.nigerian_tax_ussd.service.QuestionAnalyticsService;
+import com.taxhelp.nigerian_tax_ussd.service.cache.TrendingQuestions;
+import com.taxhelp.nigerian_tax_ussd.service.cache.RagAnswerCache;
+import com.taxhelp.nigerian_tax_ussd.service.impl.CachingRagClientService;
+import com.taxhelp.nigerian_tax_ussd.service.rag.RagEndpoint;
+import com.taxhelp.nigerian_tax_ussd.service.rag.RagEndpointPool;
+import com.taxhelp.nigerian_tax_ussd.service.sms.SmsProviderRouter;
+import com.taxhelp.nigerian_tax_ussd.service.util.SingleFlight;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final AdminProperties adminProperties;
+    private final RagAnswerCache answerCache;
+    private final CachingRagClientService cachingRagClientService;
+    private final QuestionAnalyticsService analyticsService;
+    private final AnalyticsProperties analyticsProperties;
+    private final TrendingQuestions trendingQuestions;
+    private final RagEndpointPool ragEndpointPool;
+    private final SmsProviderRouter smsProviderRouter;
+
+    @GetMapping("/cache/answers")
+    public RagAnswerCache.AnswerCacheStats answerCacheStats(
+            @RequestHeader(value = "X-Admin-Key", required = false) String adminKey
+    ) {
+        checkAdminKey(adminKey);
+        return answerCache.getStats();
+    }
+
+    // How many RAG calls were saved by coalescing identical in-flight questions
+    @GetMapping("/rag/coalescing")
+    public SingleFlight.SingleFlightStats ragCoalescingStats(
+            @RequestHeader(value = "X-Admin-Key", required = false) String adminKey
+    ) {
+        checkAdminKey(adminKey);
+        return cachingRagClientService.getCoalescingStats();
+    }
+
+    // Per-replica load, health, latency and hedging
+    @GetMapping("/rag/endpoints")
+    public List<RagEndpoint.EndpointStats> ragEndpointStats(
+            @RequestHeader(value = "X-Admin-Key", required = false) String adminKey
+    ) {
+        checkAdminKey(adminKey);
+        return ragEndpointPool.getStats();
+    }
+
+    // Per-provider health and whether it is currently skipped
+    @GetMapping("/sms/providers")
+    public List<SmsProviderRouter.ProviderStats> smsProviderStats(
+            @RequestHeader(value = "X-Admin-Key", required = false) String adminKey
+    ) {
+        checkAdminKey(adminKey);
+        return smsProviderRouter.getStats();
+    }
+
+    // Call after re-uploading the tax act document (omit question to clear everything)
+    @DeleteMapping("/cache/answers")
+    public Map<String, Object> invalidateAnswers(
+            @RequestHeader(value = "X-Admin-Key", required = false) String adminKey,
+            @RequestParam(required = false) String question
+    ) {
+        checkAdminKey(adminKey);
+
+        Map<String, Object> result = new HashMap<>();
+        if (StringUtils.isBlank(question)) {
+            answerCache.invalidateAll();
+            result.put("invalidated", "all");
+        } else {
+            answerCache.invalidate(question);
+            result.put("invalidated", question);
+        }
+        result.put("status", "success");
+        return result;
+    }
+
+    // Defaults to the last 7 days
+    @GetMapping("/analytics/daily")
+    public List<QuestionAnalyticsService.PeriodStats> dailyAnalytics(
+            @RequestHeader(value = "X-Admin-Key", required = false) String adminKey,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        checkAdminKey(adminKey);
+
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(6);
+        if (start.isAfter(end) || ChronoUnit.DAYS.between(start, end) >= analyticsProperties.getMaxDays()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "from must not be after to, and at most " + analyticsProperties.getMaxDays() + " days apart");
+        }
+        return analyticsService.getDailyStats(start, end);
+    }
+
+    // Defaults to today
+    @GetMapping("/analytics/hourly")
+    public List<QuestionAnalyticsService.PeriodStats> hourlyAnalytics(
+            @RequestHeader(value = "X-Admin-Key", required = false) String adminKey,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        checkAdminKey(adminKey);
+        return analyticsService.getHourlyStats(date != null ? date : LocalDate.now());
+    }
+
+    @GetMapping("/analytics/top-questions")
+    public List<QuestionLogQuestionRollup> topQuestions(
+            @RequestHeader(value = "X-Admin-Key", required = false) String adminKey,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String language
+    ) {
+        checkAdminKey(adminKey);
+        if (limit < 1 || limit > analyticsProperties.getMaxTopQuestions()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + analyticsProperties.getMaxTopQuestions());
+        }
+        return analyticsService.getTopQuestions(limit, StringUtils.trimToNull(language));
+    }
+
+    // What is being asked right now (window: 15m, 1h or 24h), from memory only
+    @GetMapping("/analytics/trending")
+    public List<TrendingQuestions.TrendingQuestion> trendingQuestions(
+            @RequestHeader(value = "X-Admin-Key", required = false) String adminKey,
+            @RequestParam(defaultValue = "15m") String window,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        checkAdminKey(adminKey);
+        TrendingQuestions.Window trendingWindow = TrendingQuestions.Window.fromLabel(window)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "window must be one of 15m, 1h, 24h"));
+        if (limit < 1 || limit > analyticsProperties.getMaxTopQuestions()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + analyticsProperties.getMaxTopQuestions());
+        }
+        return trendingQuestions.getTrending(trendingWindow, limit);
+    }
+
+    // Recompute the analytics rollups from question_logs (run once after upgrading)
+    @PostMapping("/analytics/rollups/rebuild")
+    public QuestionAnalyticsService.RebuildResult rebuildRollups(
+            @RequestHeader(value = "X-Admin-Key", required = false) String adminKey
+    ) {
+        checkAdminKey(adminKey);
+        try {
+            return analyticsService.rebuildRollups();
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    private void checkAdminKey(String adminKey) {
+        if (StringUtils.isBlank(adminProperties.getApiKey())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin endpoints are disabled");
+        }
+        // Not String.equals: isEqual takes as long whichever byte is wrong
+        if (adminKey == null || !MessageDigest.isEqual(adminProperties.getApiKey().getBytes(StandardCharsets.UTF_8),
+                adminKey.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Rejected admin request with invalid key");
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid admin key");
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.taxhelp.nigerian_tax_ussd.controller;
 
 
 import com.taxhelp.nigerian_tax_ussd.service.SessionService;
+import com.taxhelp.nigerian_tax_ussd.service.util.QuestionExecutor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -20,6 +21,7 @@ public class HealthController {
 
     private final RedisTemplate<String, Object> redisTemplate;
     private final SessionService sessionService2;
+    private final QuestionExecutor questionExecutor;
 
     @GetMapping
     public Map<String, Object> health() {
@@ -35,6 +37,8 @@ public class HealthController {
         }
         // Session stats
         health.put("active_sessions", sessionService2.getActiveSessionCount());
+        // Question executor stats (for sizing nodes)
+        health.put("question_executor", questionExecutor.getStats());
         health.put("status", "UP");
 
         return health;
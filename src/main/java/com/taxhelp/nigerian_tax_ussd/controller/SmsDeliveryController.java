@@ -0,0 +1,58 @@
+package com.taxhelp.nigerian_tax_ussd.controller;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.SmsDeliveryProperties;
+import com.taxhelp.nigerian_tax_ussd.service.sms.SmsDeliveryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+@Slf4j
+@RestController
+@RequestMapping("/sms")
+@RequiredArgsConstructor
+public class SmsDeliveryController {
+
+    private final SmsDeliveryService deliveryService;
+    private final SmsDeliveryProperties deliveryProperties;
+
+    // Africa's Talking delivery report callback; only queues the report, so it answers at once
+    @PostMapping("/delivery-report")
+    public ResponseEntity<Void> handleDeliveryReport(
+            @RequestParam String id,
+            @RequestParam String status,
+            @RequestParam(required = false) String phoneNumber,
+            @RequestParam(required = false) String failureReason,
+            @RequestParam(required = false) String token
+    ) {
+        if (StringUtils.isNotBlank(deliveryProperties.getCallbackToken())
+                && !tokenMatches(deliveryProperties.getCallbackToken(), token)) {
+            log.warn("Rejected delivery report with invalid token - MessageId: {}", id);
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid token");
+        }
+
+        if (StringUtils.isNotBlank(failureReason)) {
+            log.info("Delivery report - MessageId: {}, Phone: {}, Status: {}, Reason: {}", id, phoneNumber, status, failureReason);
+        } else {
+            log.debug("Delivery report - MessageId: {}, Phone: {}, Status: {}", id, phoneNumber, status);
+        }
+        deliveryService.report(id, status);
+        return ResponseEntity.ok().build();
+    }
+
+    // Compared in constant time, so response timing does not reveal how much of a guess is right
+    private static boolean tokenMatches(String expected, String given) {
+        return given != null && MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.UTF_8), given.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,17 +1,14 @@
 package com.taxhelp.nigerian_tax_ussd.controller;
 
 
-import com.taxhelp.nigerian_tax_ussd.config.RagServiceProperties;
-import com.taxhelp.nigerian_tax_ussd.model.request.RagQueryRequest;
 import com.taxhelp.nigerian_tax_ussd.model.response.RagQueryResponse;
 import com.taxhelp.nigerian_tax_ussd.service.RagClientService;
 import com.taxhelp.nigerian_tax_ussd.service.SmsService;
+import com.taxhelp.nigerian_tax_ussd.service.util.QuestionExecutor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.reactive.function.client.WebClient;
 
-import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,8 +20,7 @@ public class TestController {
 
     private final RagClientService ragClientService;
     private final SmsService smsService;
-    private final WebClient ragWebClient;
-    private final RagServiceProperties ragServiceProperties;
+    private final QuestionExecutor questionExecutor;
 
     @GetMapping("/rag")
     public RagQueryResponse testRag(@RequestParam String question) {
@@ -40,25 +36,13 @@ public class TestController {
         log.info("Simulating USSD - Phone: {}, Question: {}", phoneNumber, question);
 
 
-        // Process in background thread - NO BLOCKING
-        new Thread(() -> {
+        // Process on the shared question executor - NO BLOCKING
+        boolean accepted = questionExecutor.submit(() -> {
             try {
                 log.info("Simulating USSD - Phone: {}, Question: {}", phoneNumber, question);
 
-                RagQueryRequest request = RagQueryRequest.builder()
-                        .question(question)
-                        .maxLength(ragServiceProperties.getMaxLength())
-                        .build();
-
-                // Query RAG
-                RagQueryResponse response = ragWebClient
-                        .post()
-                        .uri(ragServiceProperties.getQueryEndpoint())
-                        .bodyValue(request)
-                        .retrieve()
-                        .bodyToMono(RagQueryResponse.class)
-                        .timeout(Duration.ofMinutes(5))
-                        .block();
+                // Query RAG (through the answer cache)
+                RagQueryResponse response = ragClientService.queryTaxAssistant(question);
 
                 log.info("Got response: {}", response.getSuccess());
 
@@ -68,16 +52,16 @@ public class TestController {
                 log.error("Exception occurred while sending sms message", ex);
                 smsService.sendSmsAsync(phoneNumber, "SMS Error");
             }
-        }).start();
-
-
+        });
 
         // Send immediately
         Map<String, String> result = new HashMap<>();
-        result.put("status", "success");
+        result.put("status", accepted ? "success" : "busy");
         result.put("phone", phoneNumber);
         result.put("question", question);
-        result.put("message", "Question submitted for processing. Check logs for progress.");
+        result.put("message", accepted
+                ? "Question submitted for processing. Check logs for progress."
+                : "Question executor is full. Try again later.");
 
         return result;
     }
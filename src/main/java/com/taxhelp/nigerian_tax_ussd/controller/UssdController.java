@@ -1,17 +1,16 @@
 package com.taxhelp.nigerian_tax_ussd.controller;
 
 
-import com.taxhelp.nigerian_tax_ussd.config.GoogleTranslationService;
 import com.taxhelp.nigerian_tax_ussd.config.LanguageConfig;
-import com.taxhelp.nigerian_tax_ussd.config.RagServiceProperties;
 import com.taxhelp.nigerian_tax_ussd.model.Language;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionJob;
 import com.taxhelp.nigerian_tax_ussd.model.UserSession;
-import com.taxhelp.nigerian_tax_ussd.model.request.RagQueryRequest;
-import com.taxhelp.nigerian_tax_ussd.model.response.RagQueryResponse;
-import com.taxhelp.nigerian_tax_ussd.service.QuestionLogService;
 import com.taxhelp.nigerian_tax_ussd.service.SessionService;
-import com.taxhelp.nigerian_tax_ussd.service.SmsService;
+import com.taxhelp.nigerian_tax_ussd.service.pipeline.QuestionPipeline;
 import com.taxhelp.nigerian_tax_ussd.service.util.RateLimiterService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
@@ -20,7 +19,6 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.reactive.function.client.WebClient;
 
 import java.util.Map;
 
@@ -30,14 +28,11 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class UssdController {
 
-    private final SmsService smsService;
     private final LanguageConfig languageConfig;
-    private final WebClient ragWebClient;
-    private final GoogleTranslationService translationService;
-    private final RagServiceProperties ragProps;
     private final SessionService sessionService;
     private final RateLimiterService  rateLimiterService;
-    private final QuestionLogService questionLogService;
+    private final QuestionPipeline questionPipeline;
+    private final MeterRegistry meterRegistry;
 
 
     @PostMapping(value = "/callback", produces = MediaType.TEXT_PLAIN_VALUE)
@@ -51,6 +46,24 @@ public class UssdController {
         log.info("USSD Request - SessionID: {}, PhoneNumber: {}, Text: '{}'",
                 sessionId, phoneNumber, text);
 
+        // The gateway drops the session if we answer too late, so every hop is timed
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String step = text.isEmpty() ? "menu" : !text.contains("*") ? "language" : "question";
+        String outcome = "error";
+        try {
+            String response = respond(sessionId, phoneNumber, text);
+            outcome = response.startsWith("CON") ? "continue" : "end";
+            return response;
+        } finally {
+            sample.stop(Timer.builder("ussd.callback")
+                    .tag("step", step)
+                    .tag("outcome", outcome)
+                    .description("USSD callback latency")
+                    .register(meterRegistry));
+        }
+    }
+
+    private String respond(String sessionId, String phoneNumber, String text) {
         // Rate Limiting check
         // Only check rate limit for actual questions, not menu navigation
         if (!text.isEmpty()) {
@@ -66,22 +79,34 @@ public class UssdController {
         }
 
         try{
-            // Get or create session in Redis
-            UserSession session = sessionService.getOrCreate(sessionId, phoneNumber);
             String response;
 
             if (text.isEmpty()){
+                // Get or create session in Redis
+                sessionService.getOrCreate(sessionId, phoneNumber);
                 response = buildLanguageMenu();
-            }else if (session.getLanguage() == null){
-                response =  handleLanguageSelection(session, text);
+            }else if (!text.contains("*")){
+                // Gateway text accumulates inputs joined by '*': a single input is the language option
+                response = handleLanguageSelection(sessionId, phoneNumber, text);
             }else {
-                response = handleQuestionSubmission(session, text);
+                // Last hop: the session ends here, so it is read and removed in one call
+                UserSession session = sessionService.take(sessionId).orElse(null);
+                if (session == null || session.getLanguage() == null){
+                    response = handleLanguageSelection(sessionId, phoneNumber, text);
+                }else {
+                    response = handleQuestionSubmission(session, text);
+                }
             }
 
             log.info("USSD Response: {}", response.substring(0, Math.min(60, response.length())));
             return response;
         }catch (Exception e){
             log.error("USSD Error: {}", e.getMessage(), e);
+            Counter.builder("ussd.errors")
+                    .tag("exception", e.getClass().getSimpleName())
+                    .description("USSD callbacks that failed and got the service error message")
+                    .register(meterRegistry)
+                    .increment();
             return "END Service error. Please try again later.";
         }
 
@@ -99,10 +124,17 @@ public class UssdController {
         log.info(" Question Received - SessionID: {}, Language: {}, Question: {}", session.getSessionId(), userLanguage, question );
 
         // Process async
-        processQuestionAsync(session.getSessionId(), session.getPhoneNumber(), question, userLanguage);
-
-        // Delete session
-        sessionService.delete(session.getSessionId());
+        boolean accepted = processQuestionAsync(session.getSessionId(), session.getPhoneNumber(), question, userLanguage);
+        Counter.builder("ussd.questions")
+                .tag("language", userLanguage)
+                .tag("outcome", accepted ? "accepted" : "busy")
+                .description("Questions submitted, by language")
+                .register(meterRegistry)
+                .increment();
+
+        if (!accepted) {
+            return "END " + getBusyMessage(userLanguage);
+        }
 
         String confirmationMessage = getConfirmationMessage(userLanguage, question);
 
@@ -111,7 +143,7 @@ public class UssdController {
 
 
 
-    private String handleLanguageSelection(UserSession session, String languageOption) {
+    private String handleLanguageSelection(String sessionId, String phoneNumber, String languageOption) {
 
         Language language = languageConfig.getLanguageByOption(languageOption);
 
@@ -120,8 +152,8 @@ public class UssdController {
         }
 
         // Store selected language to Redis session
-        sessionService.setLanguage(session.getSessionId(), language.getCode());
-        log.info("Language Selection - SessionID: {}, Language: ({})", session.getSessionId(), language.getName(),language.getCode());
+        sessionService.selectLanguage(sessionId, phoneNumber, language.getCode());
+        log.info("Language Selection - SessionID: {}, Language: ({})", sessionId, language.getName(),language.getCode());
 
         String prompt = translatePrompt(language.getCode());
 
@@ -159,100 +191,27 @@ public class UssdController {
         return messages.getOrDefault(languageCode, messages.get("en"));
     }
 
-    private void processQuestionAsync(String sessionId, String phoneNumber,
-                                      String question, String userLanguage) {
-
-        new Thread(() -> {
-            long startTime = System.currentTimeMillis();
-            boolean smsDelivered = false;
-            String finalAnswer = null;
-
-            try{
-                log.info("Processing Question Async - SessionID: {}, PhoneNumber: {}", sessionId, phoneNumber);
-
-                // Translate question to English (if needed)
-                String questionInEnglish = question;
-                if (!userLanguage.equals("en")){
-                    log.info("Translating question from {} to en", userLanguage);
-                    questionInEnglish = translationService.translate(questionInEnglish, userLanguage, "en");
-                    log.info("Question In English Async - PhoneNumber: {}", phoneNumber);
-                }
-
-                log.info(" Question RAG system...");
-                RagQueryRequest request = RagQueryRequest.builder()
-                        .question(questionInEnglish)
-                        .maxLength(ragProps.getMaxLength())
-                        .build();
-
-                RagQueryResponse response = ragWebClient
-                        .post()
-                        .uri(ragProps.getQueryEndpoint())
-                        .bodyValue(request)
-                        .retrieve()
-                        .bodyToMono(RagQueryResponse.class)
-                        .block();
-
-                if (response == null || !response.getSuccess()){
-                    finalAnswer = "Error: RAG service failed";
-                    sendErrorSms(phoneNumber, userLanguage);
-                    return;
-                }
-
-                String answerInEnglish = response.getAnswer();
-                log.info("RAG Response - Answer: '{}'",
-                        answerInEnglish.substring(0, Math.min(100, answerInEnglish.length())));
-
-                String answerInUserLanguage = answerInEnglish;
-                if (!userLanguage.equals("en")){
-                    log.info("Translating question from en to {}", userLanguage);
-                    answerInUserLanguage = translationService.translate(answerInEnglish, "en", userLanguage);
-                    log.info(" Answer In {}: '{}'", userLanguage, answerInUserLanguage);
-                }
-                finalAnswer = answerInUserLanguage;
-
-                String smsMessage = formatSmsMessage(answerInUserLanguage, userLanguage);
-                smsService.sendSmsAsync(phoneNumber, smsMessage);
-
-                smsDelivered = true;
-                log.info("Complete! SMS sent to: {}", phoneNumber);
-            } catch (Exception e){
-                log.error("Error processing Question Async - SessionID: {}, PhoneNumber: {}", sessionId, phoneNumber, e);
-                finalAnswer = "Error: " + e.getMessage();
-                sendErrorSms(phoneNumber, userLanguage);
-            }finally {
-                // Always log even when there on error
-                int responseTime =  (int) (System.currentTimeMillis() - startTime);
-
-                questionLogService.logQuestion(
-                        sessionId,
-                        phoneNumber,
-                        question,
-                        finalAnswer != null ? finalAnswer : "No answer generated",
-                        userLanguage,
-                        smsDelivered,
-                        responseTime
-                );
-
-                log.info("Question logged - ResponseTime: {}ms, SMS: {}", responseTime, smsDelivered);
-            }
-
-        }, "ussd-processor-" + sessionId).start();
-    }
-
-    private String formatSmsMessage(String answer, String languageCode) {
-        String prefix = "Tax Help:\n\n";
-        if (!languageCode.equals("en")) {
-            prefix = translationService.translate("Tax Help:", "en", languageCode) + "\n\n";
-        }
-        return prefix + answer;
+    private String getBusyMessage(String languageCode) {
+        Map<String, String> messages = Map.of(
+                "en", "We are receiving many questions right now. Please try again in a few minutes.",
+                "yo", "A ń gba ọ̀pọ̀lọpọ̀ ìbéèrè lọ́wọ́lọ́wọ́. Jọ̀wọ́ gbìyànjú lẹ́ẹ̀kan si ní ìṣẹ́jú díẹ̀.",
+                "ig", "Anyị na-anata ọtụtụ ajụjụ ugbu a. Biko nwaa ọzọ n'ime nkeji ole na ole.",
+                "ha", "Muna karɓar tambayoyi da yawa yanzu. Da fatan za a sake gwadawa bayan 'yan mintuna."
+        );
+        return messages.getOrDefault(languageCode, messages.get("en"));
     }
 
-    private void sendErrorSms(String phoneNumber, String languageCode) {
-        String errorMessage = "Sorry, we couldn't process your question. Please try again.";
-        if (!languageCode.equals("en")) {
-            errorMessage = translationService.translate(errorMessage, "en", languageCode);
-        }
-        smsService.sendSmsAsync(phoneNumber, errorMessage);
+    private boolean processQuestionAsync(String sessionId, String phoneNumber,
+                                         String question, String userLanguage) {
+        QuestionJob job = QuestionJob.builder()
+                .sessionId(sessionId)
+                .phoneNumber(phoneNumber)
+                .question(question)
+                .language(userLanguage)
+                .startTime(System.currentTimeMillis())
+                .build();
+
+        return questionPipeline.submit(job);
     }
 
     private String truncate(String text, int maxLength) {
@@ -0,0 +1,78 @@
+package com.taxhelp.nigerian_tax_ussd.model;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A submitted question travelling through the answer pipeline
+ * (translate-in, RAG query, translate-out, SMS send, log).
+ * Each stage fills in its own fields so the job can be handed between
+ * threads, or between instances through Redis Streams.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuestionJob {
+    private String sessionId;
+    private String phoneNumber;
+    private String question;
+    private String language;
+    private long startTime;
+    // When the deadline budget restarted (0 = never), e.g. after the job was recovered from a dead consumer
+    private long budgetStartTime;
+
+    private String questionInEnglish;
+    private String answerInEnglish;
+    private String finalAnswer;
+    // Set when a stage has failed and the job should go straight to logging
+    private boolean failed;
+
+    // Flatten to string fields (Redis Stream entries cannot hold nulls)
+    public Map<String, String> toMap() {
+        Map<String, String> map = new HashMap<>();
+        put(map, "sessionId", sessionId);
+        put(map, "phoneNumber", phoneNumber);
+        put(map, "question", question);
+        put(map, "language", language);
+        put(map, "startTime", String.valueOf(startTime));
+        put(map, "budgetStartTime", String.valueOf(budgetStartTime));
+        put(map, "questionInEnglish", questionInEnglish);
+        put(map, "answerInEnglish", answerInEnglish);
+        put(map, "finalAnswer", finalAnswer);
+        put(map, "failed", String.valueOf(failed));
+        return map;
+    }
+
+    public static QuestionJob fromMap(Map<String, String> map) {
+        return QuestionJob.builder()
+                .sessionId(map.get("sessionId"))
+                .phoneNumber(map.get("phoneNumber"))
+                .question(map.get("question"))
+                .language(map.get("language"))
+                .startTime(Long.parseLong(map.getOrDefault("startTime", "0")))
+                .budgetStartTime(Long.parseLong(map.getOrDefault("budgetStartTime", "0")))
+                .questionInEnglish(map.get("questionInEnglish"))
+                .answerInEnglish(map.get("answerInEnglish"))
+                .finalAnswer(map.get("finalAnswer"))
+                .failed(Boolean.parseBoolean(map.get("failed")))
+                .build();
+    }
+
+    // Start of the current deadline budget
+    public long budgetStartedAt() {
+        return budgetStartTime > 0 ? budgetStartTime : startTime;
+    }
+
+    private static void put(Map<String, String> map, String key, String value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+}
@@ -8,7 +8,11 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name= "question_logs")
+@Table(name= "question_logs", indexes = {
+        @Index(name = "idx_question_logs_timestamp", columnList = "timestamp"),
+        @Index(name = "idx_question_logs_session_id", columnList = "session_id"),
+        @Index(name = "idx_question_logs_sms_message_id", columnList = "sms_message_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -32,9 +36,24 @@ public class QuestionLog {
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
+    // Set from the provider's delivery report, not when the SMS is sent
     @Column(nullable = false)
     private Boolean smsDelivered;
 
+    // Provider's id for the answer SMS, used to match delivery reports
+    @Column(length = 100)
+    private String smsMessageId;
+
+    // Latest status the provider reported
+    @Column(length = 30)
+    private String smsStatus;
+
+    @Column
+    private LocalDateTime smsSubmittedAt;
+
+    @Column
+    private LocalDateTime smsDeliveredAt;
+
     @Column
     private Integer responseTimeMs;
 
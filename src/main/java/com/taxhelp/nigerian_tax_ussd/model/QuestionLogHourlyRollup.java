@@ -0,0 +1,54 @@
+package com.taxhelp.nigerian_tax_ussd.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Question counts per hour, language and SMS delivery status, kept up to date
+ * as question logs are written. Daily figures are the sum of a day's rows.
+ */
+@Entity
+@Table(name = "question_log_hourly_rollups")
+@IdClass(QuestionLogHourlyRollup.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuestionLogHourlyRollup {
+    @Id
+    private LocalDate rollupDate;
+
+    @Id
+    private Integer rollupHour;
+
+    @Id
+    @Column(length = 5)
+    private String language;
+
+    @Id
+    private Boolean smsDelivered;
+
+    @Column(nullable = false)
+    private Long questionCount;
+
+    // Average response time is responseTimeTotalMs / responseTimeCount
+    @Column(nullable = false)
+    private Long responseTimeTotalMs;
+
+    @Column(nullable = false)
+    private Long responseTimeCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate rollupDate;
+        private Integer rollupHour;
+        private String language;
+        private Boolean smsDelivered;
+    }
+}
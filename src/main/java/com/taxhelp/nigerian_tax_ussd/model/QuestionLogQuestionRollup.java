@@ -0,0 +1,47 @@
+package com.taxhelp.nigerian_tax_ussd.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * How often each question was asked per language. Keyed by the MD5 of the
+ * question text so the TEXT column is never grouped or compared.
+ */
+@Entity
+@Table(name = "question_log_question_rollups",
+        indexes = @Index(name = "idx_question_rollups_language_count", columnList = "language, question_count"))
+@IdClass(QuestionLogQuestionRollup.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuestionLogQuestionRollup {
+    @Id
+    @Column(length = 32)
+    private String questionHash;
+
+    @Id
+    @Column(length = 5)
+    private String language;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String question;
+
+    @Column(nullable = false)
+    private Long questionCount;
+
+    @Column(nullable = false)
+    private LocalDateTime lastAskedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String questionHash;
+        private String language;
+    }
+}
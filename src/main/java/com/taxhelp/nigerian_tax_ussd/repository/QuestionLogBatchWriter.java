@@ -0,0 +1,48 @@
+package com.taxhelp.nigerian_tax_ussd.repository;
+
+import com.taxhelp.nigerian_tax_ussd.model.QuestionLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Inserts question logs as one JDBC batch. Ids are left to the table's
+ * identity column and never read back, so the driver can send the whole batch
+ * at once, which Hibernate cannot do for IDENTITY ids. The analytics rollups
+ * are updated in the same transaction; if that fails the logs are still kept.
+ */
+@Repository
+@RequiredArgsConstructor
+public class QuestionLogBatchWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO question_logs "
+            + "(session_id, phone_number, question, answer, language, sms_delivered, response_time_ms, timestamp) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QuestionLogRollupWriter rollupWriter;
+
+    @Transactional
+    public void insertAll(List<QuestionLog> logs) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, logs, logs.size(), (ps, questionLog) -> {
+            ps.setString(1, questionLog.getSessionId());
+            ps.setString(2, questionLog.getPhoneNumber());
+            ps.setString(3, questionLog.getQuestion());
+            ps.setString(4, questionLog.getAnswer());
+            ps.setString(5, questionLog.getLanguage());
+            ps.setBoolean(6, Boolean.TRUE.equals(questionLog.getSmsDelivered()));
+            if (questionLog.getResponseTimeMs() != null) {
+                ps.setInt(7, questionLog.getResponseTimeMs());
+            } else {
+                ps.setNull(7, Types.INTEGER);
+            }
+            ps.setTimestamp(8, Timestamp.valueOf(questionLog.getTimestamp()));
+        });
+        rollupWriter.addAll(logs);
+    }
+}
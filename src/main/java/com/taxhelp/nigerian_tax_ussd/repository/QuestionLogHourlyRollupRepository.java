@@ -0,0 +1,22 @@
+package com.taxhelp.nigerian_tax_ussd.repository;
+
+import com.taxhelp.nigerian_tax_ussd.model.QuestionLogHourlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface QuestionLogHourlyRollupRepository
+        extends JpaRepository<QuestionLogHourlyRollup, QuestionLogHourlyRollup.Key> {
+
+    List<QuestionLogHourlyRollup> findByRollupDateBetween(LocalDate from, LocalDate to);
+
+    List<QuestionLogHourlyRollup> findByRollupDate(LocalDate date);
+
+    @Query("SELECT COALESCE(SUM(r.questionCount), 0) FROM QuestionLogHourlyRollup r WHERE r.rollupDate = :date")
+    Long countQuestionsOn(@Param("date") LocalDate date);
+}
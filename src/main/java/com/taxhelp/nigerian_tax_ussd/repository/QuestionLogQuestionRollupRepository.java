@@ -0,0 +1,18 @@
+package com.taxhelp.nigerian_tax_ussd.repository;
+
+import com.taxhelp.nigerian_tax_ussd.model.QuestionLogQuestionRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface QuestionLogQuestionRollupRepository
+        extends JpaRepository<QuestionLogQuestionRollup, QuestionLogQuestionRollup.Key> {
+
+    // Most asked first
+    List<QuestionLogQuestionRollup> findAllByOrderByQuestionCountDesc(Pageable pageable);
+
+    List<QuestionLogQuestionRollup> findByLanguageOrderByQuestionCountDesc(String language, Pageable pageable);
+}
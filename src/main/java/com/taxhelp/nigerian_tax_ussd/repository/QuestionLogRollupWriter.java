@@ -0,0 +1,223 @@
+package com.taxhelp.nigerian_tax_ussd.repository;
+
+import com.taxhelp.nigerian_tax_ussd.model.QuestionLog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the analytics rollup tables in step with question_logs. New logs are
+ * added as deltas with PostgreSQL upserts; history is rebuilt range by range
+ * by aggregating question_logs in the database.
+ * <p>
+ * The SQL needs PostgreSQL. Incremental updates run in a savepoint of the
+ * caller's transaction and a failure is only logged, so the question logs are
+ * still written if the rollups cannot be (as on the H2 test database); a
+ * rebuild brings the rollups back in step.
+ * <p>
+ * Rows are upserted in key order so concurrent writers lock them in the same
+ * order and cannot deadlock.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class QuestionLogRollupWriter {
+
+    private static final String HOURLY_CONFLICT = " ON CONFLICT (rollup_date, rollup_hour, language, sms_delivered) DO UPDATE SET "
+            + "question_count = question_log_hourly_rollups.question_count + EXCLUDED.question_count, "
+            + "response_time_total_ms = question_log_hourly_rollups.response_time_total_ms + EXCLUDED.response_time_total_ms, "
+            + "response_time_count = question_log_hourly_rollups.response_time_count + EXCLUDED.response_time_count";
+
+    private static final String QUESTION_CONFLICT = " ON CONFLICT (question_hash, language) DO UPDATE SET "
+            + "question_count = question_log_question_rollups.question_count + EXCLUDED.question_count, "
+            + "last_asked_at = GREATEST(question_log_question_rollups.last_asked_at, EXCLUDED.last_asked_at)";
+
+    private static final String UPSERT_HOURLY_SQL = "INSERT INTO question_log_hourly_rollups "
+            + "(rollup_date, rollup_hour, language, sms_delivered, question_count, response_time_total_ms, response_time_count) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)" + HOURLY_CONFLICT;
+
+    private static final String UPSERT_QUESTION_SQL = "INSERT INTO question_log_question_rollups "
+            + "(question_hash, language, question, question_count, last_asked_at) "
+            + "VALUES (?, ?, ?, ?, ?)" + QUESTION_CONFLICT;
+
+    private static final String REBUILD_HOURLY_SQL = "INSERT INTO question_log_hourly_rollups "
+            + "(rollup_date, rollup_hour, language, sms_delivered, question_count, response_time_total_ms, response_time_count) "
+            + "SELECT CAST(q.timestamp AS DATE), CAST(EXTRACT(HOUR FROM q.timestamp) AS INTEGER), q.language, q.sms_delivered, "
+            + "COUNT(*), COALESCE(SUM(q.response_time_ms), 0), COUNT(q.response_time_ms) "
+            + "FROM question_logs q WHERE q.id > ? AND q.id <= ? GROUP BY 1, 2, 3, 4 ORDER BY 1, 2, 3, 4" + HOURLY_CONFLICT;
+
+    private static final String REBUILD_QUESTION_SQL = "INSERT INTO question_log_question_rollups "
+            + "(question_hash, language, question, question_count, last_asked_at) "
+            + "SELECT md5(q.question), q.language, MIN(q.question), COUNT(*), MAX(q.timestamp) "
+            + "FROM question_logs q WHERE q.id > ? AND q.id <= ? GROUP BY 1, 2 ORDER BY 1, 2" + QUESTION_CONFLICT;
+
+    private static final Comparator<HourKey> HOUR_ORDER = Comparator.comparing(HourKey::date)
+            .thenComparing(HourKey::hour)
+            .thenComparing(HourKey::language)
+            .thenComparing(HourKey::smsDelivered);
+    private static final Comparator<QuestionKey> QUESTION_ORDER = Comparator.comparing(QuestionKey::hash)
+            .thenComparing(QuestionKey::language);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Add newly written logs to the rollups (joins the caller's transaction)
+    @Transactional
+    public void addAll(List<QuestionLog> logs) {
+        inSavepoint("add " + logs.size() + " question logs to", () -> upsertAdded(logs));
+    }
+
+    private void upsertAdded(List<QuestionLog> logs) {
+        Map<HourKey, long[]> hours = new TreeMap<>(HOUR_ORDER);
+        Map<QuestionKey, QuestionDelta> questions = new TreeMap<>(QUESTION_ORDER);
+
+        for (QuestionLog questionLog : logs) {
+            LocalDateTime timestamp = questionLog.getTimestamp();
+            HourKey hourKey = new HourKey(timestamp.toLocalDate(), timestamp.getHour(),
+                    questionLog.getLanguage(), Boolean.TRUE.equals(questionLog.getSmsDelivered()));
+            long[] totals = hours.computeIfAbsent(hourKey, k -> new long[3]);
+            totals[0]++;
+            if (questionLog.getResponseTimeMs() != null) {
+                totals[1] += questionLog.getResponseTimeMs();
+                totals[2]++;
+            }
+
+            QuestionKey questionKey = new QuestionKey(hash(questionLog.getQuestion()), questionLog.getLanguage());
+            QuestionDelta delta = questions.computeIfAbsent(questionKey, k -> new QuestionDelta(questionLog.getQuestion()));
+            delta.count++;
+            if (delta.lastAskedAt == null || timestamp.isAfter(delta.lastAskedAt)) {
+                delta.lastAskedAt = timestamp;
+            }
+        }
+
+        upsertHours(hours);
+        jdbcTemplate.batchUpdate(UPSERT_QUESTION_SQL, List.copyOf(questions.entrySet()), questions.size(), (ps, entry) -> {
+            ps.setString(1, entry.getKey().hash());
+            ps.setString(2, entry.getKey().language());
+            ps.setString(3, entry.getValue().question);
+            ps.setLong(4, entry.getValue().count);
+            ps.setTimestamp(5, Timestamp.valueOf(entry.getValue().lastAskedAt));
+        });
+    }
+
+    // Move logs whose SMS has now been delivered from the undelivered to the delivered hourly counts
+    @Transactional
+    public void markDelivered(List<QuestionLog> logs) {
+        inSavepoint("move " + logs.size() + " delivered question logs in", () -> upsertDelivered(logs));
+    }
+
+    private void upsertDelivered(List<QuestionLog> logs) {
+        Map<HourKey, long[]> hours = new TreeMap<>(HOUR_ORDER);
+        for (QuestionLog questionLog : logs) {
+            LocalDateTime timestamp = questionLog.getTimestamp();
+            long[] undelivered = hours.computeIfAbsent(new HourKey(timestamp.toLocalDate(), timestamp.getHour(),
+                    questionLog.getLanguage(), false), k -> new long[3]);
+            long[] delivered = hours.computeIfAbsent(new HourKey(timestamp.toLocalDate(), timestamp.getHour(),
+                    questionLog.getLanguage(), true), k -> new long[3]);
+            undelivered[0]--;
+            delivered[0]++;
+            if (questionLog.getResponseTimeMs() != null) {
+                undelivered[1] -= questionLog.getResponseTimeMs();
+                undelivered[2]--;
+                delivered[1] += questionLog.getResponseTimeMs();
+                delivered[2]++;
+            }
+        }
+        upsertHours(hours);
+    }
+
+    // A failed statement would otherwise abort the caller's whole transaction on PostgreSQL
+    private void inSavepoint(String description, Runnable update) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                update.run();
+                connection.releaseSavepoint(savepoint);
+            } catch (RuntimeException e) {
+                connection.rollback(savepoint);
+                log.error("Failed to {} the rollups, rebuild them to catch up: {}", description, e.getMessage());
+            }
+            return null;
+        });
+    }
+
+    private void upsertHours(Map<HourKey, long[]> hours) {
+        jdbcTemplate.batchUpdate(UPSERT_HOURLY_SQL, List.copyOf(hours.entrySet()), hours.size(), (ps, entry) -> {
+            HourKey key = entry.getKey();
+            long[] totals = entry.getValue();
+            ps.setDate(1, Date.valueOf(key.date()));
+            ps.setInt(2, key.hour());
+            ps.setString(3, key.language());
+            ps.setBoolean(4, key.smsDelivered());
+            ps.setLong(5, totals[0]);
+            ps.setLong(6, totals[1]);
+            ps.setLong(7, totals[2]);
+        });
+    }
+
+    /**
+     * Lock question_logs against writes for the rest of the caller's
+     * transaction, which has to span the whole rebuild. New logs and delivery
+     * reports wait until it commits, so each change is either read by the
+     * rebuild or applied incrementally afterwards, never both: a report applied
+     * before its range was rebuilt would otherwise be counted twice. Reads, and
+     * so the range rebuilds, are not blocked.
+     * @return the highest question log id the rebuild has to cover
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long lockForRebuild() {
+        jdbcTemplate.execute("LOCK TABLE question_logs IN SHARE MODE");
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM question_logs", Long.class);
+        return maxId != null ? maxId : 0;
+    }
+
+    // Empty the rollups before a rebuild, committed at once so the ranges can fill them
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void resetRollups() {
+        jdbcTemplate.update("DELETE FROM question_log_hourly_rollups");
+        jdbcTemplate.update("DELETE FROM question_log_question_rollups");
+    }
+
+    // Add the logs with fromId < id <= toId to the rollups
+    @Transactional
+    public void rebuildRange(long fromId, long toId) {
+        jdbcTemplate.update(REBUILD_HOURLY_SQL, fromId, toId);
+        jdbcTemplate.update(REBUILD_QUESTION_SQL, fromId, toId);
+    }
+
+    // Same as PostgreSQL's md5(text)
+    public static String hash(String question) {
+        return DigestUtils.md5DigestAsHex(question.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record HourKey(LocalDate date, int hour, String language, boolean smsDelivered) {
+    }
+
+    private record QuestionKey(String hash, String language) {
+    }
+
+    private static class QuestionDelta {
+        private final String question;
+        private long count;
+        private LocalDateTime lastAskedAt;
+
+        QuestionDelta(String question) {
+            this.question = question;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.taxhelp.nigerian_tax_ussd.repository;
+
+import com.taxhelp.nigerian_tax_ussd.model.QuestionLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies SMS message ids and delivery reports to question_logs as JDBC
+ * batches. Logs that become delivered are moved between the delivered and
+ * undelivered hourly rollups in the same transaction; if that fails the
+ * reports are still kept.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SmsDeliveryWriter {
+
+    private static final String LINK_SQL = "UPDATE question_logs "
+            + "SET sms_message_id = ?, sms_status = ?, sms_submitted_at = ? "
+            + "WHERE session_id = ? AND sms_message_id IS NULL";
+
+    private static final String SELECT_SQL = "SELECT sms_message_id, sms_delivered, sms_submitted_at, timestamp, "
+            + "language, response_time_ms FROM question_logs WHERE sms_message_id IN (%s)";
+
+    private static final String REPORT_SQL = "UPDATE question_logs "
+            + "SET sms_status = ?, sms_delivered = ?, sms_delivered_at = ? "
+            + "WHERE sms_message_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QuestionLogRollupWriter rollupWriter;
+
+    // The provider took the answer SMS for the question asked in sessionId
+    public record MessageLink(String sessionId, String messageId, String status, LocalDateTime submittedAt) {
+    }
+
+    public record Report(String messageId, String status, boolean delivered, LocalDateTime reportedAt) {
+    }
+
+    /**
+     * @param matched  message ids that belong to a question log
+     * @param delivered logs that became delivered, with submit and delivery times set
+     */
+    public record Applied(Set<String> matched, List<QuestionLog> delivered) {
+    }
+
+    /**
+     * Record the provider's message id on each link's question log.
+     * @return per link, whether its question log was found (it may not be written yet)
+     */
+    @Transactional
+    public boolean[] linkMessageIds(List<MessageLink> links) {
+        int[][] counts = jdbcTemplate.batchUpdate(LINK_SQL, links, links.size(), (ps, link) -> {
+            ps.setString(1, link.messageId());
+            ps.setString(2, link.status());
+            ps.setTimestamp(3, Timestamp.valueOf(link.submittedAt()));
+            ps.setString(4, link.sessionId());
+        });
+
+        boolean[] found = new boolean[links.size()];
+        for (int i = 0; i < found.length; i++) {
+            int count = counts[0][i];
+            found[i] = count > 0 || count == Statement.SUCCESS_NO_INFO;
+        }
+        return found;
+    }
+
+    /**
+     * Apply delivery reports, in the order given. A delivered log keeps its
+     * delivered status whatever comes after.
+     */
+    @Transactional
+    public Applied applyReports(List<Report> reports) {
+        Map<String, QuestionLog> logs = findByMessageIds(reports.stream().map(Report::messageId).distinct().toList());
+        if (logs.isEmpty()) {
+            return new Applied(Collections.emptySet(), List.of());
+        }
+
+        // The last word per message, in first-seen order
+        Map<String, Report> latest = new LinkedHashMap<>();
+        for (Report report : reports) {
+            QuestionLog questionLog = logs.get(report.messageId());
+            if (questionLog == null) {
+                continue;
+            }
+            Report previous = latest.get(report.messageId());
+            boolean alreadyDelivered = Boolean.TRUE.equals(questionLog.getSmsDelivered())
+                    || (previous != null && previous.delivered());
+            if (!alreadyDelivered) {
+                latest.put(report.messageId(), report);
+            }
+        }
+
+        List<Report> updates = new ArrayList<>(latest.values());
+        jdbcTemplate.batchUpdate(REPORT_SQL, updates, updates.size(), (ps, report) -> {
+            ps.setString(1, report.status());
+            ps.setBoolean(2, report.delivered());
+            ps.setTimestamp(3, report.delivered() ? Timestamp.valueOf(report.reportedAt()) : null);
+            ps.setString(4, report.messageId());
+        });
+
+        List<QuestionLog> delivered = new ArrayList<>();
+        for (Report report : updates) {
+            if (report.delivered()) {
+                QuestionLog questionLog = logs.get(report.messageId());
+                questionLog.setSmsDeliveredAt(report.reportedAt());
+                delivered.add(questionLog);
+            }
+        }
+        if (!delivered.isEmpty()) {
+            rollupWriter.markDelivered(delivered);
+        }
+        return new Applied(logs.keySet(), delivered);
+    }
+
+    private Map<String, QuestionLog> findByMessageIds(List<String> messageIds) {
+        String placeholders = String.join(", ", Collections.nCopies(messageIds.size(), "?"));
+        Map<String, QuestionLog> logs = new HashMap<>();
+        jdbcTemplate.query(String.format(SELECT_SQL, placeholders), rs -> {
+            QuestionLog questionLog = new QuestionLog();
+            questionLog.setSmsMessageId(rs.getString(1));
+            questionLog.setSmsDelivered(rs.getBoolean(2));
+            Timestamp submittedAt = rs.getTimestamp(3);
+            questionLog.setSmsSubmittedAt(submittedAt != null ? submittedAt.toLocalDateTime() : null);
+            questionLog.setTimestamp(rs.getTimestamp(4).toLocalDateTime());
+            questionLog.setLanguage(rs.getString(5));
+            int responseTimeMs = rs.getInt(6);
+            questionLog.setResponseTimeMs(rs.wasNull() ? null : responseTimeMs);
+            logs.put(questionLog.getSmsMessageId(), questionLog);
+        }, messageIds.toArray());
+        return logs;
+    }
+}
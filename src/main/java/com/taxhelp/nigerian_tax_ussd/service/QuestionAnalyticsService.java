@@ -0,0 +1,179 @@
+package com.taxhelp.nigerian_tax_ussd.service;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.AnalyticsProperties;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionLogHourlyRollup;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionLogQuestionRollup;
+import com.taxhelp.nigerian_tax_ussd.repository.QuestionLogHourlyRollupRepository;
+import com.taxhelp.nigerian_tax_ussd.repository.QuestionLogQuestionRollupRepository;
+import com.taxhelp.nigerian_tax_ussd.repository.QuestionLogRollupWriter;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Question analytics, read only from the rollup tables so the cost does not
+ * grow with question_logs. The rollups are kept current as logs are written;
+ * {@link #rebuildRollups()} recomputes them from question_logs, e.g. for logs
+ * written before the rollups existed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QuestionAnalyticsService {
+
+    private final QuestionLogHourlyRollupRepository hourlyRollupRepository;
+    private final QuestionLogQuestionRollupRepository questionRollupRepository;
+    private final QuestionLogRollupWriter rollupWriter;
+    private final AnalyticsProperties properties;
+    private final PlatformTransactionManager transactionManager;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public long getQuestionCount(LocalDate date) {
+        return hourlyRollupRepository.countQuestionsOn(date);
+    }
+
+    // One entry per day that had questions, oldest first
+    public List<PeriodStats> getDailyStats(LocalDate from, LocalDate to) {
+        return summarize(hourlyRollupRepository.findByRollupDateBetween(from, to),
+                rollup -> rollup.getRollupDate().atStartOfDay());
+    }
+
+    // One entry per hour of the day that had questions
+    public List<PeriodStats> getHourlyStats(LocalDate date) {
+        return summarize(hourlyRollupRepository.findByRollupDate(date),
+                rollup -> date.atTime(rollup.getRollupHour(), 0));
+    }
+
+    // Most asked questions, optionally for one language
+    public List<QuestionLogQuestionRollup> getTopQuestions(int limit, String language) {
+        PageRequest page = PageRequest.of(0, limit);
+        return language == null
+                ? questionRollupRepository.findAllByOrderByQuestionCountDesc(page)
+                : questionRollupRepository.findByLanguageOrderByQuestionCountDesc(language, page);
+    }
+
+    /**
+     * Recompute the rollups from question_logs, splitting the table into id
+     * ranges that are aggregated in parallel. Writes to question_logs wait
+     * until it finishes, so every log and delivery report is counted once.
+     * @throws IllegalStateException if a rebuild is already running
+     */
+    public RebuildResult rebuildRollups() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("A rollup rebuild is already running");
+        }
+        try {
+            // The lock is held by this transaction until every range is done
+            return new TransactionTemplate(transactionManager).execute(status -> rebuildLocked());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private RebuildResult rebuildLocked() {
+        long start = System.currentTimeMillis();
+        long maxId = rollupWriter.lockForRebuild();
+        rollupWriter.resetRollups();
+        long rangeSize = properties.getRebuildRangeSize();
+        log.info("Rebuilding question log rollups - MaxId: {}, RangeSize: {}, Parallelism: {}",
+                maxId, rangeSize, properties.getRebuildParallelism());
+
+        List<Future<?>> ranges = new ArrayList<>();
+        int failed = 0;
+        try (ExecutorService pool = Executors.newFixedThreadPool(properties.getRebuildParallelism(),
+                Thread.ofPlatform().name("rollup-rebuild-", 0).factory())) {
+            for (long from = 0; from < maxId; from += rangeSize) {
+                long fromId = from;
+                long toId = Math.min(maxId, from + rangeSize);
+                ranges.add(pool.submit(() -> rollupWriter.rebuildRange(fromId, toId)));
+            }
+            for (Future<?> range : ranges) {
+                try {
+                    range.get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    log.error("Rollup rebuild range failed: {}", e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rollup rebuild interrupted", e);
+        }
+
+        RebuildResult result = RebuildResult.builder()
+                .maxId(maxId)
+                .ranges(ranges.size())
+                .failedRanges(failed)
+                .elapsedMs(System.currentTimeMillis() - start)
+                .build();
+        log.info("Question log rollups rebuilt: {}", result);
+        return result;
+    }
+
+    private static List<PeriodStats> summarize(List<QuestionLogHourlyRollup> rollups,
+                                               Function<QuestionLogHourlyRollup, LocalDateTime> period) {
+        Map<LocalDateTime, PeriodStats> byPeriod = new TreeMap<>();
+        Map<LocalDateTime, long[]> responseTimes = new TreeMap<>();
+
+        for (QuestionLogHourlyRollup rollup : rollups) {
+            LocalDateTime start = period.apply(rollup);
+            PeriodStats stats = byPeriod.computeIfAbsent(start, s -> PeriodStats.builder()
+                    .periodStart(s)
+                    .byLanguage(new TreeMap<>())
+                    .build());
+            stats.questions += rollup.getQuestionCount();
+            if (rollup.getSmsDelivered()) {
+                stats.smsDelivered += rollup.getQuestionCount();
+            }
+            stats.byLanguage.merge(rollup.getLanguage(), rollup.getQuestionCount(), Long::sum);
+
+            long[] times = responseTimes.computeIfAbsent(start, s -> new long[2]);
+            times[0] += rollup.getResponseTimeTotalMs();
+            times[1] += rollup.getResponseTimeCount();
+        }
+
+        byPeriod.forEach((start, stats) -> {
+            long[] times = responseTimes.get(start);
+            stats.averageResponseTimeMs = times[1] > 0 ? (double) times[0] / times[1] : null;
+        });
+        return new ArrayList<>(byPeriod.values());
+    }
+
+    @Data
+    @Builder
+    public static class PeriodStats {
+        private LocalDateTime periodStart;
+        private long questions;
+        private long smsDelivered;
+        private Map<String, Long> byLanguage;
+        private Double averageResponseTimeMs;
+    }
+
+    @Data
+    @Builder
+    public static class RebuildResult {
+        private long maxId;
+        private int ranges;
+        private int failedRanges;
+        private long elapsedMs;
+    }
+}
@@ -0,0 +1,237 @@
+package com.taxhelp.nigerian_tax_ussd.service;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.GoogleTranslationService;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionJob;
+import com.taxhelp.nigerian_tax_ussd.model.response.RagQueryResponse;
+import com.taxhelp.nigerian_tax_ussd.service.cache.QuestionSimilarityIndex;
+import com.taxhelp.nigerian_tax_ussd.service.cache.RagAnswerCache;
+import com.taxhelp.nigerian_tax_ussd.service.cache.StaticTranslations;
+import com.taxhelp.nigerian_tax_ussd.service.cache.TrendingQuestions;
+import com.taxhelp.nigerian_tax_ussd.service.pipeline.PipelineStage;
+import com.taxhelp.nigerian_tax_ussd.service.util.DeadlineBudget;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Optional;
+
+/**
+ * The answer pipeline for a submitted question, split into stages so it can
+ * run either in one go on a worker thread, stage by stage from Redis Streams,
+ * or as a non-blocking reactive chain ({@link #runStageAsync}).
+ * <p>
+ * Stages are non-blocking underneath; the worker-thread modes wait on them.
+ * Every stage but logging runs within the question's {@link DeadlineBudget},
+ * and a question that runs out of time gets a "try again later" SMS. Each
+ * stage is timed as {@code question.stage}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QuestionProcessor {
+
+    private final SmsService smsService;
+    private final RagClientService ragClientService;
+    private final GoogleTranslationService translationService;
+    private final QuestionLogService questionLogService;
+    private final QuestionSimilarityIndex similarityIndex;
+    private final RagAnswerCache answerCache;
+    private final TrendingQuestions trendingQuestions;
+    private final DeadlineBudget deadlineBudget;
+    private final MeterRegistry meterRegistry;
+
+    // Run every stage on the calling thread
+    public void processInline(QuestionJob job) {
+        log.info("Processing Question Async - SessionID: {}, PhoneNumber: {}", job.getSessionId(), job.getPhoneNumber());
+
+        PipelineStage stage = PipelineStage.TRANSLATE_IN;
+        while (stage != null) {
+            stage = runStage(stage, job);
+        }
+    }
+
+    /**
+     * Run a single stage, waiting for it. Errors are handled here the same way
+     * as in {@link #processInline}, so the caller only has to route the job on.
+     * @return the stage the job should go to next, or null when it is done
+     */
+    public PipelineStage runStage(PipelineStage stage, QuestionJob job) {
+        try {
+            runStageAsync(stage, job).block();
+        } catch (Exception e) {
+            failAsync(job, Exceptions.unwrap(e)).block();
+        }
+
+        if (stage == PipelineStage.LOG) {
+            return null;
+        }
+        return job.isFailed() ? PipelineStage.LOG : stage.next();
+    }
+
+    /**
+     * Run a single stage without blocking, within the question's deadline.
+     * Unlike {@link #runStage}, errors are signalled so the caller can retry;
+     * it then hands them to {@link #failAsync}.
+     */
+    public Mono<Void> runStageAsync(PipelineStage stage, QuestionJob job) {
+        Mono<Void> work = switch (stage) {
+            case TRANSLATE_IN -> deadlineBudget.run(stage, job, () -> translateIn(job));
+            case RAG_QUERY -> deadlineBudget.run(stage, job, () -> queryRag(job));
+            case TRANSLATE_OUT -> deadlineBudget.run(stage, job, () -> translateOut(job));
+            case SMS_SEND -> deadlineBudget.run(stage, job, () -> sendSms(job));
+            // Always log, even on error or after the deadline
+            case LOG -> Mono.fromRunnable(() -> logQuestion(job));
+        };
+        return work.transformDeferred(mono -> timed(stage, job, mono));
+    }
+
+    /**
+     * Mark the job failed and tell the user. A question that ran out of time
+     * gets a "taking too long" message instead of the error message, unless
+     * the answer SMS itself was already being sent.
+     */
+    public Mono<Void> failAsync(QuestionJob job, Throwable e) {
+        log.error("Error processing Question Async - SessionID: {}, PhoneNumber: {}",
+                job.getSessionId(), job.getPhoneNumber(), e);
+        job.setFinalAnswer("Error: " + e.getMessage());
+        job.setFailed(true);
+        failure(e instanceof DeadlineBudget.ExceededException ? "timeout" : "error");
+
+        if (e instanceof DeadlineBudget.ExceededException exceeded) {
+            return exceeded.getStage() == PipelineStage.SMS_SEND
+                    ? Mono.empty()
+                    : sendStaticSms(job.getPhoneNumber(), job.getLanguage(), StaticTranslations.TIMEOUT_MESSAGE);
+        }
+        return sendStaticSms(job.getPhoneNumber(), job.getLanguage(), StaticTranslations.ERROR_MESSAGE);
+    }
+
+    private Mono<Void> translateIn(QuestionJob job) {
+        // A previously answered question asked the same way? Reuse its English form and skip translation
+        Optional<QuestionSimilarityIndex.Match> match = similarityIndex.findSimilar(job.getQuestion(), job.getLanguage());
+        Mono<Boolean> matchAnswered = match
+                .map(m -> answerCache.getReactive(m.getEnglishQuestion()).hasElement())
+                .orElse(Mono.just(false));
+
+        return matchAnswered.flatMap(answered -> {
+            if (answered) {
+                log.info("Question matches answered question '{}' (score {})",
+                        match.get().getMatchedQuestion(), match.get().getScore());
+                job.setQuestionInEnglish(match.get().getEnglishQuestion());
+                return Mono.empty();
+            }
+
+            // Translate question to English (if needed)
+            return translate(job.getQuestion(), job.getLanguage(), "en")
+                    .doOnNext(job::setQuestionInEnglish)
+                    .then();
+        });
+    }
+
+    private Mono<Void> queryRag(QuestionJob job) {
+        log.info(" Question RAG system...");
+        return ragClientService.queryTaxAssistantReactive(job.getQuestionInEnglish())
+                .map(response -> applyRagResponse(job, response))
+                // No body at all is a failed answer too
+                .switchIfEmpty(Mono.fromSupplier(() -> applyRagResponse(job, null)))
+                .flatMap(answered -> answered
+                        ? Mono.<Void>empty()
+                        : sendStaticSms(job.getPhoneNumber(), job.getLanguage(), StaticTranslations.ERROR_MESSAGE));
+    }
+
+    // @return false if the RAG service did not answer, in which case the job is marked failed
+    private boolean applyRagResponse(QuestionJob job, RagQueryResponse response) {
+        if (response == null || !Boolean.TRUE.equals(response.getSuccess())) {
+            job.setFinalAnswer("Error: RAG service failed");
+            job.setFailed(true);
+            failure("no-answer");
+            return false;
+        }
+
+        String answerInEnglish = response.getAnswer();
+        log.info("RAG Response - Answer: '{}'",
+                answerInEnglish.substring(0, Math.min(100, answerInEnglish.length())));
+        job.setAnswerInEnglish(answerInEnglish);
+
+        // Let future questions phrased like this one find the cached answer
+        similarityIndex.add(job.getQuestion(), job.getLanguage(), job.getQuestionInEnglish());
+        return true;
+    }
+
+    private Mono<Void> translateOut(QuestionJob job) {
+        return translate(job.getAnswerInEnglish(), "en", job.getLanguage())
+                .doOnNext(job::setFinalAnswer)
+                .then();
+    }
+
+    // Completes once the SMS gateway has been called; delivery is only known from the provider's report
+    private Mono<Void> sendSms(QuestionJob job) {
+        return translate(StaticTranslations.TAX_HELP_PREFIX, "en", job.getLanguage())
+                .flatMap(prefix -> Mono.fromFuture(() -> smsService.sendSmsAsync(
+                        job.getPhoneNumber(), prefix + "\n\n" + job.getFinalAnswer(), job.getSessionId())))
+                .doOnSuccess(sent -> log.info("Complete! SMS sent to: {}", job.getPhoneNumber()));
+    }
+
+    private void logQuestion(QuestionJob job) {
+        trendingQuestions.record(job.getQuestion(), job.getLanguage());
+        int responseTime = (int) (System.currentTimeMillis() - job.getStartTime());
+
+        questionLogService.logQuestion(
+                job.getSessionId(),
+                job.getPhoneNumber(),
+                job.getQuestion(),
+                job.getFinalAnswer() != null ? job.getFinalAnswer() : "No answer generated",
+                job.getLanguage(),
+                false,
+                responseTime
+        );
+
+        log.info("Question logged - ResponseTime: {}ms", responseTime);
+    }
+
+    // outcome "failed" is a stage that completed but left the job failed, e.g. RAG gave no answer
+    private Mono<Void> timed(PipelineStage stage, QuestionJob job, Mono<Void> work) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean failedBefore = job.isFailed();
+        return work.doFinally(signal -> sample.stop(Timer.builder("question.stage")
+                .tag("stage", stage.name().toLowerCase())
+                .tag("outcome", signal == SignalType.ON_COMPLETE
+                        ? (!failedBefore && job.isFailed() ? "failed" : "success")
+                        : signal == SignalType.CANCEL ? "cancelled" : "error")
+                .description("Answer pipeline stages")
+                .register(meterRegistry)));
+    }
+
+    private void failure(String reason) {
+        Counter.builder("question.failures")
+                .tag("reason", reason)
+                .description("Questions that got an error or timeout SMS instead of an answer")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Fixed strings are translated from the bundled file, so this does not wait on the API
+    private Mono<Void> sendStaticSms(String phoneNumber, String languageCode, String message) {
+        return translate(message, "en", languageCode)
+                .doOnNext(translated -> smsService.sendSmsAsync(phoneNumber, translated))
+                .then();
+    }
+
+    // Falls back to the original text if translation fails
+    private Mono<String> translate(String text, String sourceLanguage, String targetLanguage) {
+        if (!sourceLanguage.equals(targetLanguage)) {
+            log.info("Translating from {} to {}", sourceLanguage, targetLanguage);
+        }
+        return Mono.fromFuture(() -> translationService.translateAsync(text, sourceLanguage, targetLanguage))
+                .onErrorResume(e -> {
+                    log.error("Error while translating text", e);
+                    return Mono.just(text);
+                });
+    }
+}
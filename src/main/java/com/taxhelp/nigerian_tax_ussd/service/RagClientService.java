@@ -2,8 +2,13 @@ package com.taxhelp.nigerian_tax_ussd.service;
 
 
 import com.taxhelp.nigerian_tax_ussd.model.response.RagQueryResponse;
+import reactor.core.publisher.Mono;
 
 
 public interface RagClientService {
+    // Blocking; failures come back as an unsuccessful response
     RagQueryResponse queryTaxAssistant(String question);
+
+    // Non-blocking; failures and timeouts are signalled as errors so callers can retry
+    Mono<RagQueryResponse> queryTaxAssistantReactive(String question);
 }
@@ -1,81 +1,95 @@
 package com.taxhelp.nigerian_tax_ussd.service;
 
 
+import com.taxhelp.nigerian_tax_ussd.config.SessionProperties;
 import com.taxhelp.nigerian_tax_ussd.model.UserSession;
+import com.taxhelp.nigerian_tax_ussd.service.session.SessionStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.Cursor;
-import org.springframework.data.redis.core.RedisCallback;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
-
+import java.util.function.Supplier;
+
+/**
+ * USSD sessions, kept in the {@link SessionStore} selected by
+ * {@code session.store}. Every call made while answering a USSD hop is a
+ * single store operation (one Redis round trip with the Redis store), timed
+ * as {@code session.store.operations}.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SessionService {
-    private final RedisTemplate<String, Object> redisTemplate;
-
-    @Value("${session.timeout:300}")
-    private long sessionTimeoutSeconds;
-
-    private static final String SESSION_KEY_PREFIX = "session:";
+    private final SessionStore sessionStore;
+    private final SessionProperties sessionProperties;
+    private final MeterRegistry meterRegistry;
 
     // Get or create a new session
     public UserSession getOrCreate(String sessionId, String phoneNumber) {
-        String key = SESSION_KEY_PREFIX + sessionId;
+        Instant now = Instant.now();
+
+        UserSession newSession = UserSession.builder()
+                .sessionId(sessionId)
+                .phoneNumber(phoneNumber)
+                .stage(UserSession.SessionStage.INITIAL)
+                .createdAt(now)
+                .lastAccessedAt(now)
+                .build();
 
-        UserSession userSession = (UserSession) redisTemplate.opsForValue().get(key);
+        UserSession userSession = timed("create-or-touch", () -> sessionStore.createOrTouch(newSession));
 
-        if (userSession == null) {
+        if (userSession == newSession) {
             log.info("Creating new session for sessionId={}, phoneNumber={}", sessionId, phoneNumber);
-            userSession = UserSession.builder()
-                    .sessionId(sessionId)
-                    .phoneNumber(phoneNumber)
-                    .stage(UserSession.SessionStage.INITIAL)
-                    .createdAt(Instant.now())
-                    .lastAccessedAt(Instant.now())
-                    .build();
-        }else {
-            log.info("Session already exist for sessionId={}, phoneNumber={}", sessionId, phoneNumber);
-            userSession.setLastAccessedAt(Instant.now());
+            return newSession;
         }
 
-        save(userSession);
-
+        // The store only refreshed the TTL; the stored copy keeps its previous access time
+        log.info("Session already exist for sessionId={}, phoneNumber={}", sessionId, phoneNumber);
+        userSession.setLastAccessedAt(now);
         return userSession;
     }
 
-    // Get session by ID
+    // Get session by ID (refreshes its TTL in the same call)
     public Optional<UserSession> get(String sessionId) {
-        String key = SESSION_KEY_PREFIX + sessionId;
-        UserSession userSession = (UserSession) redisTemplate.opsForValue().get(key);
-
-        if (userSession != null) {
-            userSession.setLastAccessedAt(Instant.now());
-            save(userSession);
-        }
-
-        return Optional.ofNullable(userSession);
+        Optional<UserSession> userSession = timed("touch", () -> sessionStore.touch(sessionId));
+        userSession.ifPresent(session -> session.setLastAccessedAt(Instant.now()));
+        return userSession;
     }
 
     public void save(UserSession userSession) {
-        String key = SESSION_KEY_PREFIX + userSession.getSessionId();
-        redisTemplate.opsForValue().set(
-                key,
-                userSession,
-                sessionTimeoutSeconds,
-                TimeUnit.SECONDS);
+        timed("save", () -> {
+            sessionStore.save(userSession);
+            return null;
+        });
 
-        log.info("Session has been saved with sessionId={} (TTL: {}s)", userSession.getSessionId(), sessionTimeoutSeconds);
+        log.info("Session has been saved with sessionId={} (TTL: {}s)", userSession.getSessionId(), sessionProperties.getTimeout());
+    }
+
+    /**
+     * Store the session with the language chosen from the menu in one write,
+     * without reading it first: at that point the session holds nothing the
+     * caller does not already have.
+     */
+    public UserSession selectLanguage(String sessionId, String phoneNumber, String languageCode) {
+        Instant now = Instant.now();
+        UserSession session = UserSession.builder()
+                .sessionId(sessionId)
+                .phoneNumber(phoneNumber)
+                .language(languageCode)
+                .stage(UserSession.SessionStage.LANGUAGE_SELECTED)
+                .createdAt(now)
+                .lastAccessedAt(now)
+                .build();
+        save(session);
+        log.info("Session {}: Language set to {}", sessionId, languageCode);
+        return session;
     }
 
     // Set language for session
@@ -120,59 +134,43 @@ public class SessionService {
         });
     }
 
-    // Delete session
+    // Delete session; a single UNLINK, and a failure only leaves it to expire with its TTL
     public void delete(String sessionId) {
-        String key = SESSION_KEY_PREFIX + sessionId;
-        Boolean deleted = redisTemplate.delete(key);
-
-        if (Boolean.TRUE.equals(deleted)) {
-            log.info("Session has been deleted with sessionId={}", sessionId);
+        try {
+            if (timed("delete", () -> sessionStore.delete(sessionId))) {
+                log.info("Session has been deleted with sessionId={}", sessionId);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to delete session {}: {}", sessionId, e.getMessage());
         }
     }
 
+    /**
+     * Read and remove the session in one store call, for the hop that ends
+     * the USSD session.
+     */
+    public Optional<UserSession> take(String sessionId) {
+        Optional<UserSession> session = timed("take", () -> sessionStore.take(sessionId));
+        session.ifPresent(taken -> log.info("Session has been taken with sessionId={}", sessionId));
+        return session;
+    }
+
     // Clear all sessions (use with caution)
     public void clearAll(){
 
         try {
-            Long deletedCount = redisTemplate.execute((RedisCallback<Long>) connection ->{
-                long count = 0;
-                ScanOptions options = ScanOptions.scanOptions()
-
-                        .match(SESSION_KEY_PREFIX + "*")
-                        .count(100)
-                        .build();
-                Cursor<byte[]> cursor = connection.scan(options);
-                while (cursor.hasNext()) {
-                    connection.del(cursor.next());
-                    count++;
-                }
-                cursor.close();
-                return count;
-            });
+            long deletedCount = timed("clear", sessionStore::clear);
             log.warn("Session has been cleared with {} records", deletedCount);
         }catch (Exception e){
             log.error("Failed to clear sessions: {}", e.getMessage());
         }
     }
+
     // Get count of active sessions
     public long getActiveSessionCount(){
 
         try {
-            Long count = redisTemplate.execute((RedisCallback<Long>) connection ->{
-                long sessionCount = 0;
-                ScanOptions options = ScanOptions.scanOptions()
-                        .match(SESSION_KEY_PREFIX + "*")
-                        .count(100)
-                        .build();
-                Cursor<byte[]> cursor = connection.scan(options);
-                while (cursor.hasNext()) {
-                    cursor.next();
-                    sessionCount++;
-                }
-                cursor.close();
-                return sessionCount;
-            });
-            return count != null ? count : 0;
+            return timed("count", sessionStore::countActive);
         }catch (Exception e){
             log.warn("Failed to get active session count: {}", e.getMessage());
             return -1;
@@ -181,23 +179,19 @@ public class SessionService {
 
     // Check if sessoin exists
     public boolean exists(String sessionId) {
-        String key = SESSION_KEY_PREFIX + sessionId;
-        Boolean exists = redisTemplate.hasKey(key);
-        return Boolean.TRUE.equals(exists);
+        return timed("exists", () -> sessionStore.exists(sessionId));
     }
 
     // Get remaining TTL for a session in seconds
     public long getTTL(String sessionId) {
-        String key = SESSION_KEY_PREFIX + sessionId;
-        Long ttl = redisTemplate.getExpire(key, TimeUnit.SECONDS);
-        return ttl != null ? ttl : -1;
+        return timed("ttl", () -> sessionStore.getTtlSeconds(sessionId));
     }
 
     // Extend session TTL
     public void extendTTL(String sessionId){
         get(sessionId).ifPresent(session -> {
             save(session); // This resets the TTL
-            log.debug("Session {}: TTL extend to {}s", sessionId, sessionTimeoutSeconds);
+            log.debug("Session {}: TTL extend to {}s", sessionId, sessionProperties.getTimeout());
         });
     }
 
@@ -214,12 +208,28 @@ public class SessionService {
 
         return SessionStats.builder()
                 .activeSessions(activeSessionCount)
-                .sessionTimeoutSeconds(sessionTimeoutSeconds)
+                .sessionTimeoutSeconds(sessionProperties.getTimeout())
                 .timestamp(Instant.now())
                 .build();
     }
 
 
+    private <T> T timed(String operation, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(Timer.builder("session.store.operations")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .description("Session store calls")
+                    .register(meterRegistry));
+        }
+    }
+
     // Inner class for session statistics
     @Data
     @Builder
@@ -1,5 +1,12 @@
 package com.taxhelp.nigerian_tax_ussd.service;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface SmsService {
-    void sendSmsAsync(String phoneNumber, String message);
+    // Queues the message; completes once it has been tried once (retries continue in the background).
+    // Failures are logged, not signalled
+    CompletableFuture<Void> sendSmsAsync(String phoneNumber, String message);
+
+    // As above; once the provider takes the message its id is recorded against the question asked in sessionId
+    CompletableFuture<Void> sendSmsAsync(String phoneNumber, String message, String sessionId);
 }
@@ -0,0 +1,68 @@
+package com.taxhelp.nigerian_tax_ussd.service.cache;
+
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Reduces a question to the words that matter, so different spellings of the
+ * same question compare equal: folds case and diacritics (Ẹ, ọ, ṣ, ụ, ƙ ...),
+ * drops punctuation and removes stopwords for the question's language.
+ * English stopwords are always removed as users often mix languages.
+ */
+public final class QuestionCanonicalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Stored in folded form (no diacritics). Question words (what, how, ...) are kept on purpose.
+    private static final Set<String> ENGLISH_STOPWORDS = Set.of(
+            "a", "an", "the", "is", "are", "was", "were", "be", "been", "am",
+            "of", "in", "on", "for", "to", "and", "or", "at", "by", "with", "as",
+            "i", "me", "my", "we", "our", "you", "your", "it", "its", "this", "that",
+            "do", "does", "did", "can", "could", "please", "pls", "tell", "about", "there");
+
+    private static final Map<String, Set<String>> STOPWORDS = Map.of(
+            "en", Set.of(),
+            "yo", Set.of("ni", "ti", "si", "ati", "fun", "o", "mi", "re", "wa", "won",
+                    "naa", "yi", "yii", "je", "ko", "jowo", "nipa"),
+            "ig", Set.of("na", "nke", "ka", "bu", "di", "m", "gi", "ya", "ha", "anyi",
+                    "biko", "maka", "ma", "ndi"),
+            "ha", Set.of("da", "na", "ta", "a", "ne", "ce", "ga", "don", "shi", "ita",
+                    "ku", "mu", "ni", "kuma", "wannan", "ya", "game"));
+
+    private QuestionCanonicalizer() {
+    }
+
+    // Lower case and strip diacritics (e.g. "Kí ni oṣùwọ̀n VAT?" -> "ki ni osuwon vat?")
+    public static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String folded = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        // Hausa hooked letters have no decomposition
+        folded = folded.replace('ƙ', 'k').replace('Ƙ', 'k')
+                .replace('ɓ', 'b').replace('Ɓ', 'b')
+                .replace('ɗ', 'd').replace('Ɗ', 'd')
+                .replace('ƴ', 'y').replace('Ƴ', 'y');
+        return folded.toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> tokens(String text, String language) {
+        Set<String> languageStopwords = STOPWORDS.getOrDefault(language, Set.of());
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(fold(text))) {
+            if (!token.isEmpty() && !ENGLISH_STOPWORDS.contains(token) && !languageStopwords.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    public static String canonicalize(String text, String language) {
+        return String.join(" ", tokens(text, language));
+    }
+}
@@ -0,0 +1,387 @@
+package com.taxhelp.nigerian_tax_ussd.service.cache;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.SimilarityIndexProperties;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionLogQuestionRollup;
+import com.taxhelp.nigerian_tax_ussd.repository.QuestionLogQuestionRollupRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maps an incoming question to a previously answered one that says the same
+ * thing in different words, typos or spelling, so the answer cache can be hit.
+ * <p>
+ * Questions are canonicalized, broken into character shingles and indexed with
+ * MinHash + LSH banding. Lookups only compare against entries that share a
+ * band, then confirm with the exact Jaccard similarity of the shingle sets.
+ * <p>
+ * Shingles cannot tell "VAT" from "CIT" or 500000 from 5000000, so a match
+ * must also agree word for word: numbers and tax terms exactly, other words
+ * up to a one-letter typo. A wrong answer is worse than a cache miss.
+ * <p>
+ * Entries are kept per language and mapped to the English question used as
+ * the answer cache key.
+ */
+@Slf4j
+@Component
+public class QuestionSimilarityIndex {
+
+    // Words that change which tax (or which direction of trade) a question is about; compared exactly
+    private static final Set<String> TAX_TERMS = Set.of(
+            "vat", "cit", "pit", "wht", "cgt", "paye", "tet", "edt", "tin", "stamp", "duty", "duties",
+            "firs", "lirs", "import", "export", "levy", "excise", "customs", "resident", "nonresident");
+
+    private final SimilarityIndexProperties properties;
+    private final QuestionLogQuestionRollupRepository questionRollupRepository;
+    private final long[] hashSeeds;
+    private final Counter matchHits;
+    private final Counter matchMisses;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> entriesByKey = new HashMap<>();
+    private final Map<Long, List<Entry>> bands = new HashMap<>();
+    private final ArrayDeque<Entry> insertionOrder = new ArrayDeque<>();
+
+    public QuestionSimilarityIndex(SimilarityIndexProperties properties,
+                                   QuestionLogQuestionRollupRepository questionRollupRepository,
+                                   MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.questionRollupRepository = questionRollupRepository;
+
+        // Fixed seed so signatures are stable across restarts
+        SplittableRandom random = new SplittableRandom(0x5EEDL);
+        this.hashSeeds = new long[properties.getBands() * properties.getRowsPerBand()];
+        for (int i = 0; i < hashSeeds.length; i++) {
+            hashSeeds[i] = random.nextLong();
+        }
+
+        this.matchHits = Counter.builder("question.similarity.lookups")
+                .tag("result", "match")
+                .register(meterRegistry);
+        this.matchMisses = Counter.builder("question.similarity.lookups")
+                .tag("result", "none")
+                .register(meterRegistry);
+        Gauge.builder("question.similarity.entries", this, QuestionSimilarityIndex::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Find a previously answered question similar enough to this one.
+     * @return the closest match at or above the threshold, if any
+     */
+    public Optional<Match> findSimilar(String question, String language) {
+        return findSimilar(question, language, properties.getThreshold());
+    }
+
+    // As above, with a caller-chosen minimum similarity
+    public Optional<Match> findSimilar(String question, String language, double threshold) {
+        if (!properties.getEnabled() || question == null) {
+            return Optional.empty();
+        }
+        String canonical = QuestionCanonicalizer.canonicalize(question, language);
+        if (canonical.isEmpty()) {
+            return Optional.empty();
+        }
+
+        int[] shingles = shingles(canonical);
+        long[] bandKeys = bandKeys(language, signature(shingles));
+        String[] words = words(canonical);
+
+        Match best = null;
+        lock.readLock().lock();
+        try {
+            Entry exact = entriesByKey.get(key(language, canonical));
+            if (exact != null) {
+                best = new Match(exact.canonical, exact.englishQuestion, 1.0);
+            } else {
+                Set<Entry> seen = new HashSet<>();
+                for (long bandKey : bandKeys) {
+                    for (Entry candidate : bands.getOrDefault(bandKey, List.of())) {
+                        if (!seen.add(candidate)) {
+                            continue;
+                        }
+                        double score = jaccard(shingles, candidate.shingles);
+                        if (score >= threshold && (best == null || score > best.getScore())
+                                && sameWords(words, candidate.words)) {
+                            best = new Match(candidate.canonical, candidate.englishQuestion, score);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (best == null) {
+            matchMisses.increment();
+            return Optional.empty();
+        }
+        matchHits.increment();
+        log.debug("Similar question found - '{}' ~ '{}' ({})", canonical, best.getMatchedQuestion(), best.getScore());
+        return Optional.of(best);
+    }
+
+    // Record an answered question and the English question its answer is cached under
+    public void add(String question, String language, String englishQuestion) {
+        if (!properties.getEnabled() || question == null || englishQuestion == null) {
+            return;
+        }
+        String canonical = QuestionCanonicalizer.canonicalize(question, language);
+        if (canonical.isEmpty()) {
+            return;
+        }
+        String key = key(language, canonical);
+
+        lock.writeLock().lock();
+        try {
+            Entry existing = entriesByKey.get(key);
+            if (existing != null) {
+                existing.englishQuestion = englishQuestion;
+                return;
+            }
+
+            int[] shingles = shingles(canonical);
+            Entry entry = new Entry(key, canonical, englishQuestion, shingles, words(canonical),
+                    bandKeys(language, signature(shingles)));
+            entriesByKey.put(key, entry);
+            insertionOrder.addLast(entry);
+            for (long bandKey : entry.bandKeys) {
+                bands.computeIfAbsent(bandKey, k -> new ArrayList<>(2)).add(entry);
+            }
+
+            while (entriesByKey.size() > properties.getMaxEntries()) {
+                remove(insertionOrder.pollFirst());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entriesByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Seed with the most asked questions so the index is useful right after a restart
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedFromQuestionLog() {
+        if (!properties.getEnabled()) {
+            return;
+        }
+        Thread.ofVirtual().name("similarity-index-seed").start(() -> {
+            try {
+                // Only English questions are their own cache key; others are added as they are answered again
+                List<QuestionLogQuestionRollup> mostAsked = questionRollupRepository
+                        .findByLanguageOrderByQuestionCountDesc("en", PageRequest.of(0, properties.getSeedSize()));
+                for (QuestionLogQuestionRollup rollup : mostAsked) {
+                    add(rollup.getQuestion(), rollup.getLanguage(), rollup.getQuestion());
+                }
+                log.info("Question similarity index seeded with {} questions", mostAsked.size());
+            } catch (Exception e) {
+                log.warn("Failed to seed question similarity index: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void remove(Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        entriesByKey.remove(entry.key);
+        for (long bandKey : entry.bandKeys) {
+            List<Entry> bucket = bands.get(bandKey);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    bands.remove(bandKey);
+                }
+            }
+        }
+    }
+
+    // Sorted, distinct hashes of the character n-grams of the canonical question
+    private int[] shingles(String canonical) {
+        String padded = " " + canonical + " ";
+        int size = properties.getShingleSize();
+        if (padded.length() <= size) {
+            return new int[]{padded.hashCode()};
+        }
+        int[] hashes = new int[padded.length() - size + 1];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = padded.substring(i, i + size).hashCode();
+        }
+        return Arrays.stream(hashes).sorted().distinct().toArray();
+    }
+
+    private static String[] words(String canonical) {
+        return Arrays.stream(canonical.split(" ")).distinct().toArray(String[]::new);
+    }
+
+    // Every word of each question has a counterpart in the other
+    static boolean sameWords(String[] a, String[] b) {
+        return allMatched(a, b) && allMatched(b, a);
+    }
+
+    private static boolean allMatched(String[] words, String[] others) {
+        for (String word : words) {
+            boolean matched = false;
+            for (String other : others) {
+                if (sameWord(word, other)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameWord(String a, String b) {
+        if (a.equals(b)) {
+            return true;
+        }
+        if (isExact(a) || isExact(b)) {
+            return false;
+        }
+        // One typo, and only in words long enough that it cannot make another word
+        return Math.max(a.length(), b.length()) >= 4 && withinOneEdit(a, b);
+    }
+
+    // Numbers and tax terms (including their inflections, e.g. "exported") only match themselves
+    private static boolean isExact(String word) {
+        if (word.chars().anyMatch(Character::isDigit)) {
+            return true;
+        }
+        for (String term : TAX_TERMS) {
+            if (word.startsWith(term) && (term.length() >= 4 || word.length() == term.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean withinOneEdit(String a, String b) {
+        if (Math.abs(a.length() - b.length()) > 1) {
+            return false;
+        }
+        String shorter = a.length() <= b.length() ? a : b;
+        String longer = shorter == a ? b : a;
+        int i = 0;
+        while (i < shorter.length() && shorter.charAt(i) == longer.charAt(i)) {
+            i++;
+        }
+        // Substitution or insertion at i, the rest must line up
+        return shorter.length() == longer.length()
+                ? shorter.substring(i + 1).equals(longer.substring(i + 1))
+                : shorter.substring(i).equals(longer.substring(i + 1));
+    }
+
+    private long[] signature(int[] shingles) {
+        long[] signature = new long[hashSeeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (int shingle : shingles) {
+            for (int i = 0; i < hashSeeds.length; i++) {
+                long hash = mix(shingle ^ hashSeeds[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private long[] bandKeys(String language, long[] signature) {
+        int rows = properties.getRowsPerBand();
+        long[] keys = new long[properties.getBands()];
+        for (int band = 0; band < keys.length; band++) {
+            long hash = language.hashCode() * 31L + band;
+            for (int row = 0; row < rows; row++) {
+                hash = mix(hash * 0x9E3779B97F4A7C15L + signature[band * rows + row]);
+            }
+            keys[band] = hash;
+        }
+        return keys;
+    }
+
+    private static double jaccard(int[] a, int[] b) {
+        int i = 0, j = 0, common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / (a.length + b.length - common);
+    }
+
+    // 64-bit finalizer from MurmurHash3
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    private static String key(String language, String canonical) {
+        return language + ":" + canonical;
+    }
+
+    private static class Entry {
+        private final String key;
+        private final String canonical;
+        private volatile String englishQuestion;
+        private final int[] shingles;
+        private final String[] words;
+        private final long[] bandKeys;
+
+        Entry(String key, String canonical, String englishQuestion, int[] shingles, String[] words, long[] bandKeys) {
+            this.key = key;
+            this.canonical = canonical;
+            this.englishQuestion = englishQuestion;
+            this.shingles = shingles;
+            this.words = words;
+            this.bandKeys = bandKeys;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Match {
+        private final String matchedQuestion;
+        private final String englishQuestion;
+        private final double score;
+    }
+}
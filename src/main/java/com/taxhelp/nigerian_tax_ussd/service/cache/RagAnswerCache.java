@@ -0,0 +1,304 @@
+package com.taxhelp.nigerian_tax_ussd.service.cache;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import com.taxhelp.nigerian_tax_ussd.config.AnswerCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-tier cache of RAG answers keyed by the normalized English question.
+ * L1 is a size-bounded Caffeine cache (W-TinyLFU eviction) on each instance,
+ * L2 is shared through Redis.
+ * <p>
+ * Redis keys carry a generation number, so invalidating everything (after the
+ * tax act is re-uploaded) is a single INCR. Other instances notice the new
+ * generation within {@code generationRefreshSeconds} and drop their L1.
+ * <p>
+ * The reactive methods read and write L2 through a ReactiveRedisTemplate on
+ * the same keys, so the reactive pipeline never blocks an event-loop thread.
+ */
+@Slf4j
+@Component
+public class RagAnswerCache {
+
+    private final AnswerCacheProperties properties;
+    private final RedisTemplate<String, Object> redisTemplate;
+    // Null without a reactive Redis connection (e.g. Redis disabled in tests)
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final Cache<String, String> localCache;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    private volatile long generation;
+    private volatile long generationCheckedAt;
+
+    public RagAnswerCache(AnswerCacheProperties properties,
+                          RedisTemplate<String, Object> redisTemplate,
+                          ObjectProvider<ReactiveRedisConnectionFactory> reactiveConnectionFactory,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        ReactiveRedisConnectionFactory connectionFactory = reactiveConnectionFactory.getIfAvailable();
+        this.reactiveRedisTemplate = connectionFactory == null ? null : new ReactiveRedisTemplate<>(connectionFactory,
+                RedisSerializationContext.<String, Object>newSerializationContext(new StringRedisSerializer())
+                        .value(new GenericJackson2JsonRedisSerializer(objectMapper))
+                        .build());
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(properties.getLocalTtlSeconds()))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "rag.answers.local");
+        this.redisHits = Counter.builder("rag.answers.redis")
+                .tag("result", "hit")
+                .description("Shared answer cache lookups")
+                .register(meterRegistry);
+        this.redisMisses = Counter.builder("rag.answers.redis")
+                .tag("result", "miss")
+                .description("Shared answer cache lookups")
+                .register(meterRegistry);
+    }
+
+    public Optional<String> get(String question) {
+        if (!properties.getEnabled()) {
+            return Optional.empty();
+        }
+        refreshGenerationIfStale();
+
+        String normalized = normalize(question);
+        String answer = localCache.getIfPresent(normalized);
+        if (answer != null) {
+            log.debug("Answer cache L1 hit for '{}'", normalized);
+            return Optional.of(answer);
+        }
+
+        if (properties.getRedisEnabled()) {
+            try {
+                Object cached = redisTemplate.opsForValue().get(redisKey(normalized));
+                if (cached instanceof String redisAnswer) {
+                    redisHits.increment();
+                    localCache.put(normalized, redisAnswer);
+                    log.debug("Answer cache L2 hit for '{}'", normalized);
+                    return Optional.of(redisAnswer);
+                }
+                redisMisses.increment();
+            } catch (Exception e) {
+                log.warn("Answer cache Redis lookup failed: {}", e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void put(String question, String answer) {
+        if (!properties.getEnabled() || answer == null) {
+            return;
+        }
+        String normalized = normalize(question);
+        localCache.put(normalized, answer);
+
+        if (properties.getRedisEnabled()) {
+            try {
+                redisTemplate.opsForValue().set(redisKey(normalized), answer,
+                        properties.getRedisTtlSeconds(), TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("Answer cache Redis write failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Non-blocking get; empty on a miss
+    public Mono<String> getReactive(String question) {
+        if (!properties.getEnabled()) {
+            return Mono.empty();
+        }
+        if (reactiveRedisTemplate == null) {
+            return Mono.fromCallable(() -> get(question).orElse(null))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+
+        String normalized = normalize(question);
+        return refreshGenerationIfStaleReactive().then(Mono.defer(() -> {
+            String answer = localCache.getIfPresent(normalized);
+            if (answer != null) {
+                log.debug("Answer cache L1 hit for '{}'", normalized);
+                return Mono.just(answer);
+            }
+            if (!properties.getRedisEnabled()) {
+                return Mono.empty();
+            }
+            return reactiveRedisTemplate.opsForValue().get(redisKey(normalized))
+                    .ofType(String.class)
+                    .doOnNext(redisAnswer -> {
+                        redisHits.increment();
+                        localCache.put(normalized, redisAnswer);
+                        log.debug("Answer cache L2 hit for '{}'", normalized);
+                    })
+                    .switchIfEmpty(Mono.fromRunnable(redisMisses::increment))
+                    .onErrorResume(e -> {
+                        log.warn("Answer cache Redis lookup failed: {}", e.getMessage());
+                        return Mono.empty();
+                    });
+        }));
+    }
+
+    // Non-blocking put; Redis failures are logged, never signalled
+    public Mono<Void> putReactive(String question, String answer) {
+        if (!properties.getEnabled() || answer == null) {
+            return Mono.empty();
+        }
+        if (reactiveRedisTemplate == null) {
+            return Mono.<Void>fromRunnable(() -> put(question, answer))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+
+        String normalized = normalize(question);
+        localCache.put(normalized, answer);
+        if (!properties.getRedisEnabled()) {
+            return Mono.empty();
+        }
+        return reactiveRedisTemplate.opsForValue()
+                .set(redisKey(normalized), answer, Duration.ofSeconds(properties.getRedisTtlSeconds()))
+                .onErrorResume(e -> {
+                    log.warn("Answer cache Redis write failed: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    // Drop a single question from both tiers
+    public void invalidate(String question) {
+        String normalized = normalize(question);
+        localCache.invalidate(normalized);
+        try {
+            redisTemplate.delete(redisKey(normalized));
+        } catch (Exception e) {
+            log.warn("Answer cache Redis invalidate failed: {}", e.getMessage());
+        }
+        log.info("Answer cache entry invalidated: '{}'", normalized);
+    }
+
+    // Drop everything, on every instance (e.g. after re-uploading the tax act)
+    public void invalidateAll() {
+        localCache.invalidateAll();
+        try {
+            Long next = redisTemplate.opsForValue().increment(generationKey());
+            generation = next != null ? next : generation + 1;
+            generationCheckedAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            log.warn("Answer cache Redis invalidate-all failed, only local entries cleared: {}", e.getMessage());
+        }
+        log.warn("Answer cache invalidated - Generation: {}", generation);
+    }
+
+    public AnswerCacheStats getStats() {
+        CacheStats local = localCache.stats();
+        return AnswerCacheStats.builder()
+                .localSize(localCache.estimatedSize())
+                .localHits(local.hitCount())
+                .localMisses(local.missCount())
+                .localEvictions(local.evictionCount())
+                .redisHits((long) redisHits.count())
+                .redisMisses((long) redisMisses.count())
+                .generation(generation)
+                .build();
+    }
+
+    /**
+     * Normalize a question for use as a cache key: lower case, single spaces
+     * and no trailing punctuation, so "What is VAT rate?" and "what is vat rate"
+     * share an entry.
+     */
+    public static String normalize(String question) {
+        return question.toLowerCase(Locale.ROOT)
+                .trim()
+                .replaceAll("\\s+", " ")
+                .replaceAll("[\\s?.!]+$", "");
+    }
+
+    private void refreshGenerationIfStale() {
+        long now = System.currentTimeMillis();
+        if (!properties.getRedisEnabled()
+                || now - generationCheckedAt < properties.getGenerationRefreshSeconds() * 1000L) {
+            return;
+        }
+        generationCheckedAt = now;
+        try {
+            // INCRBY 0 reads the counter as a number (and creates it if missing)
+            applyGeneration(redisTemplate.opsForValue().increment(generationKey(), 0));
+        } catch (Exception e) {
+            log.debug("Answer cache generation check failed: {}", e.getMessage());
+        }
+    }
+
+    private Mono<Void> refreshGenerationIfStaleReactive() {
+        long now = System.currentTimeMillis();
+        if (!properties.getRedisEnabled()
+                || now - generationCheckedAt < properties.getGenerationRefreshSeconds() * 1000L) {
+            return Mono.empty();
+        }
+        generationCheckedAt = now;
+        return reactiveRedisTemplate.opsForValue().increment(generationKey(), 0)
+                .doOnNext(this::applyGeneration)
+                .onErrorResume(e -> {
+                    log.debug("Answer cache generation check failed: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void applyGeneration(Long current) {
+        if (current != null && current != generation) {
+            log.info("Answer cache generation changed {} -> {}, clearing local entries", generation, current);
+            generation = current;
+            localCache.invalidateAll();
+        }
+    }
+
+    private String redisKey(String normalized) {
+        return properties.getKeyPrefix() + generation + ":"
+                + Hashing.sha256().hashString(normalized, StandardCharsets.UTF_8);
+    }
+
+    private String generationKey() {
+        return properties.getKeyPrefix() + "generation";
+    }
+
+    @Data
+    @Builder
+    public static class AnswerCacheStats {
+        private long localSize;
+        private long localHits;
+        private long localMisses;
+        private long localEvictions;
+        private long redisHits;
+        private long redisMisses;
+        private long generation;
+    }
+}
@@ -0,0 +1,85 @@
+package com.taxhelp.nigerian_tax_ussd.service.cache;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Translations of the fixed strings sent on every answer (SMS prefix, error
+ * text). Loaded from {@code i18n/static-translations.properties}; anything
+ * missing there is filled in once at startup so the hot path never calls the
+ * translation API for them.
+ */
+@Slf4j
+@Component
+public class StaticTranslations {
+
+    public static final String TAX_HELP_PREFIX = "Tax Help:";
+    public static final String ERROR_MESSAGE = "Sorry, we couldn't process your question. Please try again.";
+    public static final String TIMEOUT_MESSAGE = "Sorry, your answer is taking longer than expected. Please try again in a few minutes.";
+
+    private static final String RESOURCE = "i18n/static-translations.properties";
+
+    // English source text, by string id
+    private final Map<String, String> englishById = new HashMap<>();
+    // "target:english text" -> translation
+    private final Map<String, String> translations = new ConcurrentHashMap<>();
+
+    public StaticTranslations() {
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(
+                new ClassPathResource(RESOURCE).getInputStream(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (Exception e) {
+            log.error("Failed to load {}: {}", RESOURCE, e.getMessage());
+        }
+
+        properties.stringPropertyNames().stream()
+                .filter(name -> name.endsWith(".en"))
+                .forEach(name -> englishById.put(name.substring(0, name.length() - 3), properties.getProperty(name)));
+
+        properties.stringPropertyNames().forEach(name -> {
+            int dot = name.lastIndexOf('.');
+            String english = englishById.get(name.substring(0, dot));
+            String language = name.substring(dot + 1);
+            if (english != null && !language.equals("en")) {
+                translations.put(key(english, language), properties.getProperty(name));
+            }
+        });
+        log.info("Loaded {} static translations for {} strings", translations.size(), englishById.size());
+    }
+
+    // Only English source strings are static
+    public Optional<String> lookup(String text, String sourceLanguage, String targetLanguage) {
+        if (!"en".equalsIgnoreCase(sourceLanguage)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(translations.get(key(text, targetLanguage.toLowerCase())));
+    }
+
+    // English strings with no translation yet for the given language
+    public List<String> missing(String targetLanguage) {
+        return englishById.values().stream()
+                .filter(english -> !translations.containsKey(key(english, targetLanguage)))
+                .toList();
+    }
+
+    public void register(String english, String targetLanguage, String translated) {
+        translations.put(key(english, targetLanguage), translated);
+    }
+
+    private static String key(String english, String targetLanguage) {
+        return targetLanguage + ":" + english;
+    }
+}
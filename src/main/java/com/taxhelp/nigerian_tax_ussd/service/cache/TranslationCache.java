@@ -0,0 +1,180 @@
+package com.taxhelp.nigerian_tax_ussd.service.cache;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import com.taxhelp.nigerian_tax_ussd.config.TranslationCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of translations per language pair: a bounded in-memory tier and an
+ * optional Redis tier shared between instances.
+ * <p>
+ * The reactive methods reach Redis through a ReactiveRedisTemplate on the
+ * same keys, for callers on an event-loop thread.
+ */
+@Slf4j
+@Component
+public class TranslationCache {
+
+    private final TranslationCacheProperties properties;
+    private final RedisTemplate<String, Object> redisTemplate;
+    // Null without a reactive Redis connection (e.g. Redis disabled in tests)
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final Cache<String, String> localCache;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    public TranslationCache(TranslationCacheProperties properties,
+                            RedisTemplate<String, Object> redisTemplate,
+                            ObjectProvider<ReactiveRedisConnectionFactory> reactiveConnectionFactory,
+                            ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        ReactiveRedisConnectionFactory connectionFactory = reactiveConnectionFactory.getIfAvailable();
+        this.reactiveRedisTemplate = connectionFactory == null ? null : new ReactiveRedisTemplate<>(connectionFactory,
+                RedisSerializationContext.<String, Object>newSerializationContext(new StringRedisSerializer())
+                        .value(new GenericJackson2JsonRedisSerializer(objectMapper))
+                        .build());
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(properties.getLocalTtlSeconds()))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "translations.local");
+        this.redisHits = Counter.builder("translations.redis")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.redisMisses = Counter.builder("translations.redis")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public Optional<String> get(String text, String sourceLanguage, String targetLanguage) {
+        if (!properties.getEnabled()) {
+            return Optional.empty();
+        }
+        String key = key(text, sourceLanguage, targetLanguage);
+        String translated = localCache.getIfPresent(key);
+        if (translated != null) {
+            return Optional.of(translated);
+        }
+
+        if (properties.getRedisEnabled()) {
+            try {
+                Object cached = redisTemplate.opsForValue().get(redisKey(key));
+                if (cached instanceof String redisTranslation) {
+                    redisHits.increment();
+                    localCache.put(key, redisTranslation);
+                    return Optional.of(redisTranslation);
+                }
+                redisMisses.increment();
+            } catch (Exception e) {
+                log.warn("Translation cache Redis lookup failed: {}", e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void put(String text, String sourceLanguage, String targetLanguage, String translated) {
+        if (!properties.getEnabled() || translated == null) {
+            return;
+        }
+        String key = key(text, sourceLanguage, targetLanguage);
+        localCache.put(key, translated);
+
+        if (properties.getRedisEnabled()) {
+            try {
+                redisTemplate.opsForValue().set(redisKey(key), translated,
+                        properties.getRedisTtlSeconds(), TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("Translation cache Redis write failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Non-blocking get; empty on a miss
+    public Mono<String> getReactive(String text, String sourceLanguage, String targetLanguage) {
+        if (!properties.getEnabled()) {
+            return Mono.empty();
+        }
+        String key = key(text, sourceLanguage, targetLanguage);
+        String translated = localCache.getIfPresent(key);
+        if (translated != null) {
+            return Mono.just(translated);
+        }
+        if (!properties.getRedisEnabled()) {
+            return Mono.empty();
+        }
+        if (reactiveRedisTemplate == null) {
+            return Mono.fromCallable(() -> get(text, sourceLanguage, targetLanguage).orElse(null))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+
+        return reactiveRedisTemplate.opsForValue().get(redisKey(key))
+                .ofType(String.class)
+                .doOnNext(redisTranslation -> {
+                    redisHits.increment();
+                    localCache.put(key, redisTranslation);
+                })
+                .switchIfEmpty(Mono.fromRunnable(redisMisses::increment))
+                .onErrorResume(e -> {
+                    log.warn("Translation cache Redis lookup failed: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    // Non-blocking put; Redis failures are logged, never signalled
+    public Mono<Void> putReactive(String text, String sourceLanguage, String targetLanguage, String translated) {
+        if (!properties.getEnabled() || translated == null) {
+            return Mono.empty();
+        }
+        String key = key(text, sourceLanguage, targetLanguage);
+        localCache.put(key, translated);
+        if (!properties.getRedisEnabled()) {
+            return Mono.empty();
+        }
+        if (reactiveRedisTemplate == null) {
+            return Mono.<Void>fromRunnable(() -> put(text, sourceLanguage, targetLanguage, translated))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+
+        return reactiveRedisTemplate.opsForValue()
+                .set(redisKey(key), translated, Duration.ofSeconds(properties.getRedisTtlSeconds()))
+                .onErrorResume(e -> {
+                    log.warn("Translation cache Redis write failed: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static String key(String text, String sourceLanguage, String targetLanguage) {
+        return sourceLanguage.toLowerCase() + ":" + targetLanguage.toLowerCase() + ":" + text;
+    }
+
+    private String redisKey(String key) {
+        return properties.getKeyPrefix() + Hashing.sha256().hashString(key, StandardCharsets.UTF_8);
+    }
+}
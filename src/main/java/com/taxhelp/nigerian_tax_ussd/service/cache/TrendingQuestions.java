@@ -0,0 +1,115 @@
+package com.taxhelp.nigerian_tax_ussd.service.cache;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.taxhelp.nigerian_tax_ussd.config.TrendingQuestionsProperties;
+import com.taxhelp.nigerian_tax_ussd.service.util.SlidingTopK;
+import com.taxhelp.nigerian_tax_ussd.service.util.SpaceSaving;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * What people are asking right now, e.g. after a new tax announcement. Every
+ * question is counted under its canonical form per language in fixed-memory
+ * Space-Saving sketches over the last 15 minutes, hour and day. Nothing is
+ * read from the database.
+ */
+@Slf4j
+@Component
+public class TrendingQuestions {
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Window {
+        LAST_15_MINUTES("15m", 15, 60_000L),
+        LAST_HOUR("1h", 12, 300_000L),
+        LAST_DAY("24h", 24, 3_600_000L);
+
+        private final String label;
+        private final int buckets;
+        private final long bucketMillis;
+
+        public static Optional<Window> fromLabel(String label) {
+            for (Window window : values()) {
+                if (window.label.equalsIgnoreCase(label)) {
+                    return Optional.of(window);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    private record Fingerprint(String language, String canonical) {
+    }
+
+    private final TrendingQuestionsProperties properties;
+    private final Map<Window, SlidingTopK<Fingerprint>> windows = new EnumMap<>(Window.class);
+    // Latest wording seen for a fingerprint, shown instead of the canonical form
+    private final Cache<Fingerprint, String> examples;
+
+    public TrendingQuestions(TrendingQuestionsProperties properties) {
+        this.properties = properties;
+        for (Window window : Window.values()) {
+            windows.put(window, new SlidingTopK<>(window.buckets, window.bucketMillis, properties.getCapacity()));
+        }
+        this.examples = Caffeine.newBuilder()
+                .maximumSize(properties.getCapacity() * 4L)
+                .build();
+    }
+
+    public void record(String question, String language) {
+        if (!properties.getEnabled() || StringUtils.isBlank(question)) {
+            return;
+        }
+        String canonical = QuestionCanonicalizer.canonicalize(question, language);
+        if (canonical.isEmpty()) {
+            return;
+        }
+        Fingerprint fingerprint = new Fingerprint(language, canonical);
+        examples.put(fingerprint, question);
+        windows.values().forEach(window -> window.offer(fingerprint));
+    }
+
+    public List<TrendingQuestion> getTrending(Window window, int limit) {
+        SlidingTopK<Fingerprint> topK = windows.get(window);
+        long total = topK.total();
+        List<TrendingQuestion> trending = new ArrayList<>();
+        for (SpaceSaving.Entry<Fingerprint> entry : topK.top(limit)) {
+            Fingerprint fingerprint = entry.key();
+            trending.add(TrendingQuestion.builder()
+                    .question(examples.asMap().getOrDefault(fingerprint, fingerprint.canonical()))
+                    .canonical(fingerprint.canonical())
+                    .language(fingerprint.language())
+                    .count(entry.count())
+                    .maxOvercount(entry.error())
+                    .share(total > 0 ? (double) entry.count() / total : 0)
+                    .build());
+        }
+        return trending;
+    }
+
+    @Data
+    @Builder
+    public static class TrendingQuestion {
+        private String question;
+        private String canonical;
+        private String language;
+        private long count;
+        // count - maxOvercount is a lower bound on how often it was asked
+        private long maxOvercount;
+        // Fraction of all questions in the window
+        private double share;
+    }
+}
@@ -0,0 +1,171 @@
+package com.taxhelp.nigerian_tax_ussd.service.impl;
+
+import com.taxhelp.nigerian_tax_ussd.config.SimilarityIndexProperties;
+import com.taxhelp.nigerian_tax_ussd.model.response.RagQueryResponse;
+import com.taxhelp.nigerian_tax_ussd.service.RagClientService;
+import com.taxhelp.nigerian_tax_ussd.service.cache.QuestionSimilarityIndex;
+import com.taxhelp.nigerian_tax_ussd.service.cache.RagAnswerCache;
+import com.taxhelp.nigerian_tax_ussd.service.util.SingleFlight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * Serves repeat (and near-duplicate) questions from RagAnswerCache and only
+ * calls the RAG service on a miss. Identical questions arriving while that
+ * call is still running wait for it rather than making their own.
+ * <p>
+ * When the RAG service cannot answer (down, breaker open, bulkhead full, or
+ * an unsuccessful response), the closest cached answer under a looser
+ * similarity threshold is served instead, in both the blocking and the
+ * reactive path. Its words must still agree with the question's (see
+ * QuestionSimilarityIndex), so a VAT answer is never served for a CIT question.
+ */
+@Primary
+@Service
+@Slf4j
+public class CachingRagClientService implements RagClientService {
+
+    private final RagClientServiceImpl ragClientService;
+    private final RagAnswerCache answerCache;
+    private final QuestionSimilarityIndex similarityIndex;
+    private final SimilarityIndexProperties similarityProperties;
+    private final SingleFlight<String, RagQueryResponse> inFlightQueries;
+    private final Counter fallbackAnswers;
+
+    public CachingRagClientService(RagClientServiceImpl ragClientService,
+                                   RagAnswerCache answerCache,
+                                   QuestionSimilarityIndex similarityIndex,
+                                   SimilarityIndexProperties similarityProperties,
+                                   MeterRegistry meterRegistry) {
+        this.ragClientService = ragClientService;
+        this.answerCache = answerCache;
+        this.similarityIndex = similarityIndex;
+        this.similarityProperties = similarityProperties;
+        this.inFlightQueries = new SingleFlight<>("rag", meterRegistry);
+        this.fallbackAnswers = Counter.builder("rag.answers.fallback")
+                .description("Loosely matching cached answers served because the RAG service could not answer")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public RagQueryResponse queryTaxAssistant(String question) {
+        Optional<String> cached = lookup(question);
+        if (cached.isPresent()) {
+            log.info("RAG answer served from cache");
+            return cachedResponse(cached.get());
+        }
+
+        RagQueryResponse result = inFlightQueries.execute(RagAnswerCache.normalize(question), () -> {
+            // A previous leader may have filled the cache just before we got here
+            Optional<String> filled = answerCache.get(question);
+            if (filled.isPresent()) {
+                return cachedResponse(filled.get());
+            }
+
+            RagQueryResponse response = ragClientService.queryTaxAssistant(question);
+            // Only cache real answers, never error fallbacks
+            if (response != null && Boolean.TRUE.equals(response.getSuccess())) {
+                answerCache.put(question, response.getAnswer());
+                similarityIndex.add(question, "en", question);
+            }
+            return response;
+        });
+
+        if (result == null || !Boolean.TRUE.equals(result.getSuccess())) {
+            Optional<String> fallback = fallbackLookup(question);
+            if (fallback.isPresent()) {
+                return cachedResponse(fallback.get());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Mono<RagQueryResponse> queryTaxAssistantReactive(String question) {
+        return lookupReactive(question)
+                .map(answer -> {
+                    log.info("RAG answer served from cache");
+                    return cachedResponse(answer);
+                })
+                // Followers share the leader's future; never cancel it when one of them times out
+                .switchIfEmpty(Mono.defer(() -> Mono.fromFuture(() -> inFlightQueries.executeAsync(
+                        RagAnswerCache.normalize(question), () -> queryAndCache(question).toFuture()), true)))
+                .flatMap(response -> Boolean.TRUE.equals(response.getSuccess()) ? Mono.just(response)
+                        : fallbackLookupReactive(question)
+                                .map(CachingRagClientService::cachedResponse)
+                                .switchIfEmpty(Mono.just(response)))
+                // No response at all, as a null from the blocking client
+                .switchIfEmpty(Mono.defer(() -> fallbackLookupReactive(question)
+                        .map(CachingRagClientService::cachedResponse)))
+                .onErrorResume(e -> fallbackLookupReactive(question)
+                        .map(CachingRagClientService::cachedResponse)
+                        .switchIfEmpty(Mono.error(e)));
+    }
+
+    public SingleFlight.SingleFlightStats getCoalescingStats() {
+        return inFlightQueries.getStats();
+    }
+
+    private Optional<String> lookup(String question) {
+        Optional<String> cached = answerCache.get(question);
+        if (cached.isEmpty()) {
+            // Same question asked differently?
+            cached = similarityIndex.findSimilar(question, "en")
+                    .flatMap(match -> answerCache.get(match.getEnglishQuestion()));
+        }
+        return cached;
+    }
+
+    private Mono<String> lookupReactive(String question) {
+        return answerCache.getReactive(question)
+                .switchIfEmpty(Mono.defer(() -> Mono.justOrEmpty(similarityIndex.findSimilar(question, "en"))
+                        .flatMap(match -> answerCache.getReactive(match.getEnglishQuestion()))));
+    }
+
+    // A looser match than lookup(), only good enough when there is no alternative
+    private Optional<String> fallbackLookup(String question) {
+        Optional<String> answer = similarityIndex.findSimilar(question, "en", similarityProperties.getFallbackThreshold())
+                .flatMap(match -> answerCache.get(match.getEnglishQuestion()));
+        answer.ifPresent(found -> onFallback(question));
+        return answer;
+    }
+
+    private Mono<String> fallbackLookupReactive(String question) {
+        return Mono.justOrEmpty(similarityIndex.findSimilar(question, "en", similarityProperties.getFallbackThreshold()))
+                .flatMap(match -> answerCache.getReactive(match.getEnglishQuestion()))
+                .doOnNext(found -> onFallback(question));
+    }
+
+    private void onFallback(String question) {
+        fallbackAnswers.increment();
+        log.warn("RAG service unavailable, serving closest cached answer for '{}'", question);
+    }
+
+    private Mono<RagQueryResponse> queryAndCache(String question) {
+        // A previous leader may have filled the cache just before we got here
+        return answerCache.getReactive(question)
+                .map(CachingRagClientService::cachedResponse)
+                .switchIfEmpty(Mono.defer(() -> ragClientService.queryTaxAssistantReactive(question)
+                        .flatMap(response -> {
+                            // Only cache real answers, never error responses
+                            if (!Boolean.TRUE.equals(response.getSuccess())) {
+                                return Mono.just(response);
+                            }
+                            similarityIndex.add(question, "en", question);
+                            return answerCache.putReactive(question, response.getAnswer()).thenReturn(response);
+                        })));
+    }
+
+    private static RagQueryResponse cachedResponse(String answer) {
+        RagQueryResponse response = new RagQueryResponse();
+        response.setAnswer(answer);
+        response.setSuccess(true);
+        return response;
+    }
+}
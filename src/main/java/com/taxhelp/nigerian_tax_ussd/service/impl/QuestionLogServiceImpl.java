@@ -1,49 +1,235 @@
 package com.taxhelp.nigerian_tax_ussd.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taxhelp.nigerian_tax_ussd.config.QuestionLogProperties;
 import com.taxhelp.nigerian_tax_ussd.model.QuestionLog;
-import com.taxhelp.nigerian_tax_ussd.repository.QuestionLogRepository;
+import com.taxhelp.nigerian_tax_ussd.repository.QuestionLogBatchWriter;
 import com.taxhelp.nigerian_tax_ussd.service.QuestionLogService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Write-behind question log. {@link #logQuestion} only queues the record; a
+ * background writer inserts queued records in JDBC batches once
+ * {@code batchSize} are waiting or the oldest has waited
+ * {@code flushIntervalMillis}.
+ * <p>
+ * Question processing never blocks on the database: when the buffer is full,
+ * or a batch fails, records are appended to a local spill file, which the
+ * writer replays into the database when it has time. The buffer is drained on
+ * shutdown.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class QuestionLogServiceImpl implements QuestionLogService {
 
-    private final QuestionLogRepository questionLogRepository;
+    private final QuestionLogBatchWriter batchWriter;
+    private final QuestionLogProperties properties;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<QuestionLog> buffer;
+    private final Path spillPath;
+    private final Path replayPath;
+    private final Object spillLock = new Object();
+    private final Counter spilledCount;
+    private final Thread writer;
+
+    private volatile boolean running = true;
+    private long lastReplayAttempt;
+
+    public QuestionLogServiceImpl(QuestionLogBatchWriter batchWriter,
+                                  QuestionLogProperties properties,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry) {
+        this.batchWriter = batchWriter;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.buffer = new ArrayBlockingQueue<>(properties.getBufferCapacity());
+        this.spillPath = Path.of(properties.getSpillFile());
+        this.replayPath = spillPath.resolveSibling(spillPath.getFileName() + ".replaying");
+
+        Gauge.builder("question.log.buffer.size", buffer, BlockingQueue::size)
+                .description("Question logs waiting to be written")
+                .register(meterRegistry);
+        this.spilledCount = Counter.builder("question.log.spilled")
+                .description("Question logs written to the spill file instead of the database")
+                .register(meterRegistry);
+
+        this.writer = Thread.ofPlatform().name("question-log-writer").daemon().start(this::writeLoop);
+        log.info("Question log writer started - BufferCapacity: {}, BatchSize: {}, FlushInterval: {}ms",
+                properties.getBufferCapacity(), properties.getBatchSize(), properties.getFlushIntervalMillis());
+    }
 
     @Override
     public void logQuestion(String sessionId, String phoneNumber, String question, String answer, String language, Boolean smsDelivered, Integer responseTimeMs) {
+        QuestionLog questionLog = new QuestionLog();
+        questionLog.setSessionId(sessionId);
+        questionLog.setPhoneNumber(phoneNumber);
+        questionLog.setQuestion(question);
+        questionLog.setAnswer(answer);
+        questionLog.setLanguage(language);
+        questionLog.setSmsDelivered(smsDelivered);
+        questionLog.setResponseTimeMs(responseTimeMs);
+        questionLog.setTimestamp(LocalDateTime.now());
 
-        try{
-            QuestionLog questionLog = new QuestionLog();
-            questionLog.setSessionId(sessionId);
-            questionLog.setPhoneNumber(phoneNumber);
-            questionLog.setQuestion(question);
-            questionLog.setAnswer(answer);
-            questionLog.setLanguage(language);
-            questionLog.setSmsDelivered(smsDelivered);
-            questionLog.setResponseTimeMs(responseTimeMs);
-            questionLog.setTimestamp(LocalDateTime.now());
+        if (!running || !buffer.offer(questionLog)) {
+            spill(List.of(questionLog));
+            return;
+        }
+        log.debug("Question queued for logging - Phone: {}, Language: {}, SMS: {}",
+                phoneNumber, language, smsDelivered);
+    }
 
-            questionLogRepository.save(questionLog);
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down question log writer - Buffered: {}", buffer.size());
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(properties.getShutdownTimeoutSeconds()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.interrupt();
 
-            log.info("Question logged - Phone: {}, Language: {}, SMS: {}",
-                    phoneNumber, language, smsDelivered);
-        }catch (Exception e){
-            log.error(" Failed to log question: {}", e.getMessage());
+        List<QuestionLog> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.warn("Question log writer did not drain in {}s, spilling {} logs",
+                    properties.getShutdownTimeoutSeconds(), remaining.size());
+            spill(remaining);
         }
     }
 
-    // Get analytics data
-    public Long getTodayQuestionCount() {
-        return questionLogRepository.countTodayQuestions(LocalDate.now());
+    private void writeLoop() {
+        int batchSize = properties.getBatchSize();
+        long flushIntervalMillis = properties.getFlushIntervalMillis();
+        List<QuestionLog> batch = new ArrayList<>(batchSize);
+
+        while (running || !buffer.isEmpty()) {
+            try {
+                QuestionLog first = buffer.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                    // Fill the batch until it is full or the first log has waited long enough
+                    while (batch.size() < batchSize) {
+                        buffer.drainTo(batch, batchSize - batch.size());
+                        long wait = deadline - System.currentTimeMillis();
+                        if (batch.size() >= batchSize || wait <= 0 || !running) {
+                            break;
+                        }
+                        QuestionLog next = buffer.poll(wait, TimeUnit.MILLISECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    writeBatch(batch);
+                }
+                // Replay spilled logs only when live traffic leaves room for it
+                if (running && buffer.size() < batchSize) {
+                    replaySpillIfDue();
+                }
+            } catch (InterruptedException e) {
+                writeBatch(batch);
+                return;
+            } catch (Exception e) {
+                log.error("Question log writer failed: {}", e.getMessage(), e);
+            }
+        }
     }
 
+    private void writeBatch(List<QuestionLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            batchWriter.insertAll(batch);
+            log.debug("Wrote {} question logs", batch.size());
+        } catch (Exception e) {
+            log.error("Failed to write {} question logs, spilling them: {}", batch.size(), e.getMessage());
+            spill(batch);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private void spill(List<QuestionLog> logs) {
+        synchronized (spillLock) {
+            try {
+                if (spillPath.getParent() != null) {
+                    Files.createDirectories(spillPath.getParent());
+                }
+                try (BufferedWriter out = Files.newBufferedWriter(spillPath,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (QuestionLog questionLog : logs) {
+                        out.write(objectMapper.writeValueAsString(questionLog));
+                        out.newLine();
+                    }
+                }
+                spilledCount.increment(logs.size());
+            } catch (IOException e) {
+                log.error("Failed to spill {} question logs to {}, dropping them: {}",
+                        logs.size(), spillPath, e.getMessage());
+            }
+        }
+    }
+
+    // Moves the spill file aside and inserts it; whatever fails goes back to the spill file
+    private void replaySpillIfDue() throws IOException {
+        long now = System.currentTimeMillis();
+        if (now - lastReplayAttempt < properties.getSpillReplayIntervalMillis()) {
+            return;
+        }
+        lastReplayAttempt = now;
 
+        List<QuestionLog> logs = new ArrayList<>();
+        synchronized (spillLock) {
+            // A replay file left by a crash is finished first
+            if (!Files.exists(replayPath)) {
+                if (!Files.exists(spillPath)) {
+                    return;
+                }
+                Files.move(spillPath, replayPath);
+            }
+            for (String line : Files.readAllLines(replayPath)) {
+                try {
+                    logs.add(objectMapper.readValue(line, QuestionLog.class));
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable spilled question log: {}", e.getMessage());
+                }
+            }
+        }
+
+        int written = 0;
+        try {
+            for (int from = 0; from < logs.size(); from += properties.getBatchSize()) {
+                List<QuestionLog> batch = logs.subList(from, Math.min(logs.size(), from + properties.getBatchSize()));
+                batchWriter.insertAll(batch);
+                written += batch.size();
+            }
+        } catch (Exception e) {
+            log.warn("Replaying spilled question logs failed after {} of {}: {}", written, logs.size(), e.getMessage());
+            spill(logs.subList(written, logs.size()));
+        }
+        Files.delete(replayPath);
+        if (written > 0) {
+            log.info("Replayed {} spilled question logs", written);
+        }
+    }
 }
@@ -4,23 +4,62 @@ import com.taxhelp.nigerian_tax_ussd.config.RagServiceProperties;
 import com.taxhelp.nigerian_tax_ussd.model.request.RagQueryRequest;
 import com.taxhelp.nigerian_tax_ussd.model.response.RagQueryResponse;
 import com.taxhelp.nigerian_tax_ussd.service.RagClientService;
-import lombok.RequiredArgsConstructor;
+import com.taxhelp.nigerian_tax_ussd.service.rag.RagEndpointPool;
 import lombok.extern.slf4j.Slf4j;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 import java.time.Duration;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class RagClientServiceImpl implements RagClientService {
 
-    private final WebClient ragWebClient;
+    private final RagEndpointPool ragEndpointPool;
     private final RagServiceProperties ragProperties;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final MeterRegistry meterRegistry;
+
+    // Breaker and bulkhead are configured under resilience4j.*.instances.rag
+    public RagClientServiceImpl(RagEndpointPool ragEndpointPool,
+                                RagServiceProperties ragProperties,
+                                CircuitBreakerRegistry circuitBreakerRegistry,
+                                BulkheadRegistry bulkheadRegistry,
+                                MeterRegistry meterRegistry) {
+        this.ragEndpointPool = ragEndpointPool;
+        this.ragProperties = ragProperties;
+        this.meterRegistry = meterRegistry;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("rag");
+        this.bulkhead = bulkheadRegistry.bulkhead("rag");
+    }
 
     @Override
     public RagQueryResponse queryTaxAssistant(String question) {
+        return queryTaxAssistantReactive(question)
+                .onErrorResume(e -> {
+                    log.error("Error calling RAG service", e);
+
+                    RagQueryResponse errorResponse = new RagQueryResponse();
+                    errorResponse.setAnswer("Sorry, I am having trouble processing your request. Please try again.");
+                    errorResponse.setSuccess(false);
+                    errorResponse.setError(e.getMessage());
+                    return Mono.just(errorResponse);
+                })
+                .block();
+    }
+
+    @Override
+    public Mono<RagQueryResponse> queryTaxAssistantReactive(String question) {
         log.debug("Querying RAG service with question {}", question);
 
         RagQueryRequest request = RagQueryRequest.builder()
@@ -28,25 +67,35 @@ public class RagClientServiceImpl implements RagClientService {
                 .maxLength(ragProperties.getMaxLength())
                 .build();
 
-        try{
-            RagQueryResponse response = ragWebClient
-                    .post()
-                    .uri(ragProperties.getQueryEndpoint())
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(RagQueryResponse.class)
-                    .timeout(Duration.ofMillis(ragProperties.getTimeout()))
-                    .block();
-            log.debug("RAG service returned {}", response);
-            return response;
-        }catch(Exception e){
-            log.error("Error calling RAG service",e);
-
-            RagQueryResponse errorResponse = new RagQueryResponse();
-            errorResponse.setAnswer("Sorry, I am having trouble processing your request. Please try again.");
-            errorResponse.setSuccess(false);
-            errorResponse.setError(e.getMessage());
-            return errorResponse;
-        }
+        // Replicas are picked, and slow queries hedged, by the pool
+        return ragEndpointPool.execute(endpoint -> endpoint.getWebClient()
+                        .post()
+                        .uri(ragProperties.getQueryEndpoint())
+                        .bodyValue(request)
+                        .retrieve()
+                        .bodyToMono(RagQueryResponse.class)
+                        .timeout(Duration.ofMillis(ragProperties.getTimeout())))
+                // Fails fast while the breaker is open or too many queries are already waiting
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(this::timed)
+                .doOnNext(response -> log.debug("RAG service returned {}", response));
+    }
+
+    // The whole query as the pipeline sees it: hedging, breaker and bulkhead included
+    private Mono<RagQueryResponse> timed(Mono<RagQueryResponse> query) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return query.doFinally(signal -> sample.stop(Timer.builder("rag.query")
+                .tag("outcome", outcome(signal))
+                .description("RAG queries, uncached")
+                .register(meterRegistry)));
+    }
+
+    private static String outcome(SignalType signal) {
+        return switch (signal) {
+            case ON_COMPLETE -> "success";
+            case CANCEL -> "cancelled";
+            default -> "error";
+        };
     }
 }
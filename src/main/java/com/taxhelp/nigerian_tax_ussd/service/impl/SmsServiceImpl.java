@@ -1,12 +1,18 @@
 package com.taxhelp.nigerian_tax_ussd.service.impl;
 
-import com.africastalking.AfricasTalking;
-import com.africastalking.SmsService;
-import com.africastalking.sms.Recipient;
-import com.taxhelp.nigerian_tax_ussd.config.AfricasTalkingProperties;
-
-import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
+import com.taxhelp.nigerian_tax_ussd.config.SmsDispatcherProperties;
+import com.taxhelp.nigerian_tax_ussd.service.SmsService;
+import com.taxhelp.nigerian_tax_ussd.service.sms.SmsDeliveryService;
+import com.taxhelp.nigerian_tax_ussd.service.sms.SmsDispatcher;
+import com.taxhelp.nigerian_tax_ussd.service.sms.SmsProviderRouter;
+import com.taxhelp.nigerian_tax_ussd.service.sms.SmsResult;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -14,65 +20,64 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
-public class SmsServiceImpl implements com.taxhelp.nigerian_tax_ussd.service.SmsService {
-
-    private final AfricasTalkingProperties africasTalkingProperties;
-    private SmsService smsService;
-
-    @PostConstruct
-    public void init() {
-        // Initialize the SDK once at startup
-        AfricasTalking.initialize(
-                africasTalkingProperties.getUsername(),
-                africasTalkingProperties.getApiKey()
-        );
-
-        // Get the SMS service
-        smsService = AfricasTalking.getService(AfricasTalking.SERVICE_SMS);
-
-        log.info("Africa's Talking ADK initialized with username: {}",
-                africasTalkingProperties.getUsername());
-
+public class SmsServiceImpl implements SmsService {
+
+    private final SmsProviderRouter router;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final SmsDispatcher dispatcher;
+    private final MeterRegistry meterRegistry;
+
+    public SmsServiceImpl(SmsProviderRouter router,
+                          SmsDeliveryService deliveryService,
+                          SmsDispatcherProperties dispatcherProperties,
+                          CircuitBreakerRegistry circuitBreakerRegistry,
+                          BulkheadRegistry bulkheadRegistry,
+                          MeterRegistry meterRegistry) {
+        this.router = router;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("sms");
+        this.bulkhead = bulkheadRegistry.bulkhead("sms");
+        this.meterRegistry = meterRegistry;
+        // Rate-shapes, groups and retries outgoing messages
+        this.dispatcher = new SmsDispatcher(dispatcherProperties, this::sendBatch, deliveryService::sent, meterRegistry);
     }
 
     @Override
-    public void sendSmsAsync(String phoneNumber, String message) {
-        log.info("Sending SMS to {} with message: {}", phoneNumber, message);
-        CompletableFuture.runAsync(() -> sendSms(phoneNumber, message));
+    public CompletableFuture<Void> sendSmsAsync(String phoneNumber, String message) {
+        return sendSmsAsync(phoneNumber, message, null);
     }
 
-    private void sendSms(String phoneNumber, String message) {
-        try {
-            // Set recipients (SDK requires array)
-            String[] recipients = new String[]{phoneNumber};
-
-            // Set sender ID (can be null for default)
-            String from = africasTalkingProperties.getSenderId();
-
-            log.info("Calling Africa's Talking SMS API - From: {}, To: {}", from, phoneNumber);
-
-            // Send SMS using SDK
-            List<Recipient> response = smsService.send(message, from, recipients, true);
+    @Override
+    public CompletableFuture<Void> sendSmsAsync(String phoneNumber, String message, String sessionId) {
+        log.info("Queueing SMS to {} with message: {}", phoneNumber, message);
+        return dispatcher.submit(phoneNumber, message, sessionId);
+    }
 
-            for (Recipient recipient : response) {
-                log.info("SMS Result - Number: {}. Status: {}, MessageId: {}, Cost: {}",
-                        recipient.number,
-                        recipient.status,
-                        recipient.messageId,
-                        recipient.cost);
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.close();
+    }
 
-                if ("Success".equalsIgnoreCase(recipient.status)) {
-                    log.info("SMS sent successfully to {}", recipient.number);
-                }else {
-                    log.error("SMS failed to {}: {}", recipient.number, recipient.status);
-                }
-            }
-        }catch (Exception ex){
-            log.error("Failed to send SMS to {}: {}", phoneNumber, ex.getMessage(), ex);
+    /**
+     * One gateway call for every recipient of the same message, through
+     * whichever provider the router picks. The breaker only opens once every
+     * provider is failing; while it is open the call fails at once and the
+     * dispatcher retries later.
+     */
+    private List<SmsResult> sendBatch(String message, List<String> phoneNumbers) throws Exception {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            List<SmsResult> results = CircuitBreaker.decorateCallable(circuitBreaker,
+                    Bulkhead.decorateCallable(bulkhead, () -> router.send(message, phoneNumbers))).call();
+            outcome = "success";
+            return results;
+        } finally {
+            sample.stop(Timer.builder("sms.submit")
+                    .tag("outcome", outcome)
+                    .description("Gateway calls, across providers, breaker and bulkhead included")
+                    .register(meterRegistry));
         }
     }
-
-
 }
@@ -0,0 +1,24 @@
+package com.taxhelp.nigerian_tax_ussd.service.pipeline;
+
+
+import com.taxhelp.nigerian_tax_ussd.model.QuestionJob;
+import com.taxhelp.nigerian_tax_ussd.service.QuestionProcessor;
+import com.taxhelp.nigerian_tax_ussd.service.util.QuestionExecutor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+// In-memory pipeline: the whole question runs on one executor thread
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "question.pipeline.mode", havingValue = "executor", matchIfMissing = true)
+public class ExecutorQuestionPipeline implements QuestionPipeline {
+
+    private final QuestionExecutor questionExecutor;
+    private final QuestionProcessor questionProcessor;
+
+    @Override
+    public boolean submit(QuestionJob job) {
+        return questionExecutor.submit(() -> questionProcessor.processInline(job));
+    }
+}
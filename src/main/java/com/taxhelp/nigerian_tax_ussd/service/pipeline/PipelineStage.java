@@ -0,0 +1,25 @@
+package com.taxhelp.nigerian_tax_ussd.service.pipeline;
+
+
+import lombok.Getter;
+
+@Getter
+public enum PipelineStage {
+    TRANSLATE_IN("translate-in"),
+    RAG_QUERY("rag-query"),
+    TRANSLATE_OUT("translate-out"),
+    SMS_SEND("sms-send"),
+    LOG("log");
+
+    private final String streamName;
+
+    PipelineStage(String streamName) {
+        this.streamName = streamName;
+    }
+
+    // Next stage in the pipeline, or null after LOG
+    public PipelineStage next() {
+        PipelineStage[] stages = values();
+        return ordinal() + 1 < stages.length ? stages[ordinal() + 1] : null;
+    }
+}
@@ -0,0 +1,12 @@
+package com.taxhelp.nigerian_tax_ussd.service.pipeline;
+
+
+import com.taxhelp.nigerian_tax_ussd.model.QuestionJob;
+
+public interface QuestionPipeline {
+    /**
+     * Hand a question over for answering.
+     * @return true if accepted, false if it was shed and the user should try again
+     */
+    boolean submit(QuestionJob job);
+}
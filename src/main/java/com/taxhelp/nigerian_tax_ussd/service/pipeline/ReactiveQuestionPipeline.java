@@ -0,0 +1,101 @@
+package com.taxhelp.nigerian_tax_ussd.service.pipeline;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.QuestionPipelineProperties;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionJob;
+import com.taxhelp.nigerian_tax_ussd.service.QuestionProcessor;
+import com.taxhelp.nigerian_tax_ussd.service.util.DeadlineBudget;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking pipeline: each question is one reactive chain
+ * (translate-in, RAG query, translate-out, SMS send, log) running on the
+ * WebClient event loops, so thousands of questions can wait on upstream calls
+ * without a thread each. Stage time limits come from the question's
+ * {@link DeadlineBudget}; stages that are safe to repeat are retried with
+ * backoff while the budget lasts, then the job is failed.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "question.pipeline.mode", havingValue = "reactive")
+public class ReactiveQuestionPipeline implements QuestionPipeline {
+
+    private final QuestionProcessor questionProcessor;
+    private final QuestionPipelineProperties.Reactive props;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+
+    public ReactiveQuestionPipeline(QuestionProcessor questionProcessor,
+                                    QuestionPipelineProperties pipelineProperties,
+                                    MeterRegistry meterRegistry) {
+        this.questionProcessor = questionProcessor;
+        this.props = pipelineProperties.getReactive();
+
+        Gauge.builder("question.pipeline.reactive.in_flight", inFlight, AtomicInteger::get)
+                .description("Questions currently in the reactive pipeline")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("question.pipeline.reactive.rejected")
+                .description("Questions shed because the reactive pipeline was full")
+                .register(meterRegistry);
+        log.info("Reactive question pipeline started - MaxInFlight: {}", props.getMaxInFlight());
+    }
+
+    @Override
+    public boolean submit(QuestionJob job) {
+        if (inFlight.incrementAndGet() > props.getMaxInFlight()) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            log.warn("Reactive pipeline full - shedding question (InFlight: {})", inFlight.get());
+            return false;
+        }
+
+        runFrom(PipelineStage.TRANSLATE_IN, job)
+                .doFinally(signal -> inFlight.decrementAndGet())
+                .subscribe(null, e -> log.error("Reactive pipeline failed - SessionID: {}", job.getSessionId(), e));
+        return true;
+    }
+
+    private Mono<Void> runFrom(PipelineStage stage, QuestionJob job) {
+        Mono<Void> run = Mono.defer(() -> questionProcessor.runStageAsync(stage, job));
+        if (isRetryable(stage) && props.getMaxRetries() > 0) {
+            run = run.retryWhen(Retry.backoff(props.getMaxRetries(), Duration.ofMillis(props.getRetryBackoffMillis()))
+                    // No point retrying once the question is out of time
+                    .filter(e -> !(e instanceof DeadlineBudget.ExceededException))
+                    .doBeforeRetry(retry -> log.warn("Retrying stage {} for session {} (attempt {}): {}",
+                            stage.getStreamName(), job.getSessionId(), retry.totalRetries() + 1,
+                            retry.failure().toString())));
+        }
+
+        return run
+                .onErrorResume(e -> {
+                    Throwable cause = Exceptions.isRetryExhausted(e) ? e.getCause() : e;
+                    if (stage == PipelineStage.LOG) {
+                        log.error("Failed to log question - SessionID: {}", job.getSessionId(), cause);
+                        return Mono.empty();
+                    }
+                    return questionProcessor.failAsync(job, cause);
+                })
+                .then(Mono.defer(() -> {
+                    if (stage == PipelineStage.LOG) {
+                        return Mono.empty();
+                    }
+                    return runFrom(job.isFailed() ? PipelineStage.LOG : stage.next(), job);
+                }));
+    }
+
+    // Sending an SMS twice or logging a question twice is worse than failing once
+    private static boolean isRetryable(PipelineStage stage) {
+        return stage != PipelineStage.SMS_SEND && stage != PipelineStage.LOG;
+    }
+}
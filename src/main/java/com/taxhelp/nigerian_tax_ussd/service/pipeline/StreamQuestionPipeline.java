@@ -0,0 +1,289 @@
+package com.taxhelp.nigerian_tax_ussd.service.pipeline;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.QuestionPipelineProperties;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionJob;
+import com.taxhelp.nigerian_tax_ussd.service.QuestionProcessor;
+import com.taxhelp.nigerian_tax_ussd.service.util.DeadlineBudget;
+import com.taxhelp.nigerian_tax_ussd.service.util.QuestionExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.data.redis.stream.StreamMessageListenerContainer;
+import org.springframework.data.redis.stream.StreamMessageListenerContainer.StreamMessageListenerContainerOptions;
+import org.springframework.data.redis.stream.StreamMessageListenerContainer.StreamReadRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable pipeline: every stage consumes from its own Redis Stream through a
+ * consumer group and appends the job to the next stage's stream, so accepted
+ * questions survive restarts and work is shared between instances.
+ * <p>
+ * Delivery is at-least-once. An entry is acknowledged only after the job has
+ * been handed to the next stage; entries left pending by a crashed consumer
+ * are reclaimed with XCLAIM once idle (with a fresh deadline budget), and
+ * dead-lettered after too many tries.
+ * <p>
+ * Streams are trimmed only below the group's oldest pending entry, so an
+ * entry that has not been handled yet is never dropped, however long the
+ * backlog gets; a backlog beyond {@code maxLength} is logged instead.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "question.pipeline.mode", havingValue = "stream")
+public class StreamQuestionPipeline implements QuestionPipeline, SmartLifecycle {
+
+    private static final String DEAD_LETTER_STREAM = "dead";
+
+    private final QuestionProcessor questionProcessor;
+    private final QuestionExecutor questionExecutor;
+    private final DeadlineBudget deadlineBudget;
+    private final QuestionPipelineProperties.Stream props;
+    private final RedisConnectionFactory connectionFactory;
+    private final StringRedisTemplate streamTemplate;
+    private final String consumerName;
+
+    private StreamMessageListenerContainer<String, MapRecord<String, String, String>> container;
+    private ScheduledExecutorService maintenanceScheduler;
+    private volatile boolean running;
+
+    public StreamQuestionPipeline(QuestionProcessor questionProcessor,
+                                  QuestionExecutor questionExecutor,
+                                  DeadlineBudget deadlineBudget,
+                                  QuestionPipelineProperties pipelineProperties,
+                                  RedisTemplate<String, Object> redisTemplate) {
+        this.questionProcessor = questionProcessor;
+        this.questionExecutor = questionExecutor;
+        this.deadlineBudget = deadlineBudget;
+        this.props = pipelineProperties.getStream();
+        this.connectionFactory = redisTemplate.getConnectionFactory();
+        // Stream fields are plain strings, not the JSON values used for sessions
+        this.streamTemplate = new StringRedisTemplate(connectionFactory);
+        this.consumerName = StringUtils.firstNonBlank(props.getConsumerName(), System.getenv("HOSTNAME"),
+                UUID.randomUUID().toString());
+    }
+
+    @Override
+    public boolean submit(QuestionJob job) {
+        try {
+            append(PipelineStage.TRANSLATE_IN, job);
+            return true;
+        } catch (Exception e) {
+            // Redis unavailable - still answer the question, just not durably
+            log.warn("Failed to enqueue question to stream, processing in memory - SessionID: {}: {}",
+                    job.getSessionId(), e.getMessage());
+            return questionExecutor.submit(() -> questionProcessor.processInline(job));
+        }
+    }
+
+    @Override
+    public void start() {
+        for (PipelineStage stage : PipelineStage.values()) {
+            createGroup(stage);
+        }
+
+        StreamMessageListenerContainerOptions<String, MapRecord<String, String, String>> options =
+                StreamMessageListenerContainerOptions.builder()
+                        .serializer(StringRedisSerializer.UTF_8)
+                        .batchSize(props.getBatchSize())
+                        .pollTimeout(Duration.ofMillis(props.getPollTimeoutMillis()))
+                        .executor(Executors.newThreadPerTaskExecutor(
+                                Thread.ofVirtual().name("question-stream-", 0).factory()))
+                        .errorHandler(e -> log.error("Question stream polling error: {}", e.getMessage()))
+                        .build();
+        container = StreamMessageListenerContainer.create(connectionFactory, options);
+
+        for (PipelineStage stage : PipelineStage.values()) {
+            int parallelism = props.getParallelism().getOrDefault(stage.getStreamName(), props.getDefaultParallelism());
+            for (int i = 0; i < parallelism; i++) {
+                StreamReadRequest<String> request = StreamReadRequest
+                        .builder(StreamOffset.create(streamKey(stage), ReadOffset.lastConsumed()))
+                        .consumer(Consumer.from(props.getGroup(), consumerName + "-" + stage.getStreamName() + "-" + i))
+                        .autoAcknowledge(false)
+                        .cancelOnError(e -> false)
+                        .build();
+                container.register(request, record -> handle(stage, record));
+            }
+            log.info("Question stage {} started with {} consumer(s)", stage.getStreamName(), parallelism);
+        }
+        container.start();
+
+        maintenanceScheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("question-stream-reclaim").daemon().factory());
+        maintenanceScheduler.scheduleWithFixedDelay(this::maintain,
+                props.getReclaimIntervalMillis(), props.getReclaimIntervalMillis(), TimeUnit.MILLISECONDS);
+
+        running = true;
+        log.info("Durable question pipeline started - Consumer: {}, Group: {}", consumerName, props.getGroup());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (maintenanceScheduler != null) {
+            maintenanceScheduler.shutdownNow();
+        }
+        if (container != null) {
+            container.stop();
+        }
+        log.info("Durable question pipeline stopped - Consumer: {}", consumerName);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void handle(PipelineStage stage, MapRecord<String, String, String> record) {
+        handle(stage, record, false);
+    }
+
+    private void handle(PipelineStage stage, MapRecord<String, String, String> record, boolean reclaimed) {
+        try {
+            QuestionJob job = QuestionJob.fromMap(record.getValue());
+            if (reclaimed) {
+                // It sat idle with a dead consumer for longer than the budget; the caller still wants an answer
+                deadlineBudget.restart(job);
+            }
+            PipelineStage next = questionProcessor.runStage(stage, job);
+            if (next != null) {
+                append(next, job);
+            }
+            streamTemplate.opsForStream().acknowledge(streamKey(stage), props.getGroup(), record.getId());
+        } catch (Exception e) {
+            // Left pending - it will be reclaimed and retried
+            log.error("Question stage {} failed for entry {}: {}", stage.getStreamName(), record.getId(), e.getMessage());
+        }
+    }
+
+    private void append(PipelineStage stage, QuestionJob job) {
+        streamTemplate.opsForStream().add(streamKey(stage), job.toMap());
+    }
+
+    // Reclaim entries stuck with dead consumers and drop the ones already handled
+    private void maintain() {
+        for (PipelineStage stage : PipelineStage.values()) {
+            try {
+                reclaim(stage);
+                trim(stage);
+            } catch (Exception e) {
+                log.warn("Question stage {} maintenance failed: {}", stage.getStreamName(), e.getMessage());
+            }
+        }
+    }
+
+    private void reclaim(PipelineStage stage) {
+        String key = streamKey(stage);
+        Duration minIdle = Duration.ofMillis(props.getReclaimIdleMillis());
+        String reclaimer = consumerName + "-reclaim";
+
+        PendingMessages pending = streamTemplate.opsForStream()
+                .pending(key, props.getGroup(), Range.unbounded(), props.getBatchSize() * 10L);
+
+        for (PendingMessage message : pending) {
+            if (message.getElapsedTimeSinceLastDelivery().compareTo(minIdle) < 0) {
+                continue;
+            }
+
+            // XCLAIM re-checks the idle time, so only one instance wins each entry
+            List<MapRecord<String, String, String>> claimed = streamTemplate.<String, String>opsForStream()
+                    .claim(key, props.getGroup(), reclaimer, minIdle, message.getId());
+
+            for (MapRecord<String, String, String> entry : claimed) {
+                if (message.getTotalDeliveryCount() >= props.getMaxDeliveries()) {
+                    deadLetter(stage, entry);
+                    continue;
+                }
+
+                log.warn("Reclaimed question entry {} on stage {} (deliveries: {})",
+                        entry.getId(), stage.getStreamName(), message.getTotalDeliveryCount());
+                if (!questionExecutor.submit(() -> handle(stage, entry, true))) {
+                    // Executor full - stays pending for the next round
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop entries the group has delivered and acknowledged. XTRIM knows
+     * nothing of consumer groups, so the cut-off is the oldest pending entry,
+     * or the last delivered one if nothing is pending.
+     */
+    void trim(PipelineStage stage) {
+        String key = streamKey(stage);
+        String lastDelivered = streamTemplate.opsForStream().groups(key).stream()
+                .filter(group -> props.getGroup().equals(group.groupName()))
+                .map(StreamInfo.XInfoGroup::lastDeliveredId)
+                .findFirst()
+                .orElse(null);
+        if (lastDelivered == null || "0-0".equals(lastDelivered)) {
+            return;
+        }
+        PendingMessagesSummary pending = streamTemplate.opsForStream().pending(key, props.getGroup());
+        String minId = pending.getTotalPendingMessages() > 0 ? pending.minMessageId() : lastDelivered;
+
+        // Approximate (~) so Redis only drops whole nodes; Spring Data has no MINID variant of trim
+        streamTemplate.execute((RedisCallback<Object>) connection -> connection.execute("XTRIM",
+                bytes(key), bytes("MINID"), bytes("~"), bytes(minId)));
+
+        Long length = streamTemplate.opsForStream().size(key);
+        if (length != null && length > props.getMaxLength()) {
+            log.warn("Question stage {} has a backlog of {} entries (max-length {}), none dropped",
+                    stage.getStreamName(), length, props.getMaxLength());
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void deadLetter(PipelineStage stage, MapRecord<String, String, String> record) {
+        Map<String, String> fields = new HashMap<>(record.getValue());
+        fields.put("stage", stage.getStreamName());
+        streamTemplate.opsForStream().add(props.getKeyPrefix() + DEAD_LETTER_STREAM, fields);
+        streamTemplate.opsForStream().acknowledge(streamKey(stage), props.getGroup(), record.getId());
+
+        log.error("Question entry {} dead-lettered after {} deliveries on stage {} - PhoneNumber: {}",
+                record.getId(), props.getMaxDeliveries(), stage.getStreamName(), fields.get("phoneNumber"));
+    }
+
+    private void createGroup(PipelineStage stage) {
+        try {
+            streamTemplate.opsForStream().createGroup(streamKey(stage), ReadOffset.from("0"), props.getGroup());
+            log.info("Created consumer group {} on {}", props.getGroup(), streamKey(stage));
+        } catch (Exception e) {
+            // BUSYGROUP - the group already exists
+            log.debug("Consumer group {} already exists on {}", props.getGroup(), streamKey(stage));
+        }
+    }
+
+    private String streamKey(PipelineStage stage) {
+        return props.getKeyPrefix() + stage.getStreamName();
+    }
+}
@@ -0,0 +1,140 @@
+package com.taxhelp.nigerian_tax_ussd.service.rag;
+
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One RAG replica and what the client has seen of it: requests in flight,
+ * recent answer latencies, errors and whether it is currently healthy.
+ */
+public class RagEndpoint {
+
+    @Getter
+    private final String url;
+    @Getter
+    private final WebClient webClient;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong hedgesSent = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+    @Getter
+    private volatile boolean healthy = true;
+
+    // Ring of the latest successful latencies, guarded by itself
+    private final long[] latencies;
+    private int latencyCount;
+    private int latencyNext;
+
+    public RagEndpoint(String url, WebClient webClient, int windowSize) {
+        this.url = url;
+        this.webClient = webClient;
+        this.latencies = new long[windowSize];
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    void started() {
+        outstanding.incrementAndGet();
+        requests.incrementAndGet();
+    }
+
+    void finished() {
+        outstanding.decrementAndGet();
+    }
+
+    void succeeded(long latencyMillis) {
+        consecutiveFailures.set(0);
+        synchronized (latencies) {
+            latencies[latencyNext] = latencyMillis;
+            latencyNext = (latencyNext + 1) % latencies.length;
+            latencyCount = Math.min(latencyCount + 1, latencies.length);
+        }
+    }
+
+    // @return failures in a row, including this one
+    int failed() {
+        errors.incrementAndGet();
+        return consecutiveFailures.incrementAndGet();
+    }
+
+    void hedgeSent() {
+        hedgesSent.incrementAndGet();
+    }
+
+    void hedgeWon() {
+        hedgesWon.incrementAndGet();
+    }
+
+    // @return true if this changed the endpoint's state
+    boolean markHealthy(boolean healthy) {
+        if (healthy) {
+            consecutiveFailures.set(0);
+        }
+        boolean changed = this.healthy != healthy;
+        this.healthy = healthy;
+        return changed;
+    }
+
+    /**
+     * Latency at {@code quantile} (0..1) over the recent window.
+     * @return -1 if fewer than {@code minSamples} answers have been seen
+     */
+    public long latencyQuantile(double quantile, int minSamples) {
+        long[] sorted;
+        synchronized (latencies) {
+            if (latencyCount == 0 || latencyCount < minSamples) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(latencies, latencyCount);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    public EndpointStats getStats() {
+        return EndpointStats.builder()
+                .url(url)
+                .healthy(healthy)
+                .outstanding(outstanding.get())
+                .requests(requests.get())
+                .errors(errors.get())
+                .consecutiveFailures(consecutiveFailures.get())
+                .hedgesSent(hedgesSent.get())
+                .hedgesWon(hedgesWon.get())
+                .p50Millis(latencyQuantile(0.5, 1))
+                .p95Millis(latencyQuantile(0.95, 1))
+                .p99Millis(latencyQuantile(0.99, 1))
+                .build();
+    }
+
+    @Data
+    @Builder
+    public static class EndpointStats {
+        private String url;
+        private boolean healthy;
+        private int outstanding;
+        private long requests;
+        private long errors;
+        private int consecutiveFailures;
+        // Hedged requests sent to this endpoint, and how many answered first
+        private long hedgesSent;
+        private long hedgesWon;
+        // Over the recent window of successful answers; -1 before the first one
+        private long p50Millis;
+        private long p95Millis;
+        private long p99Millis;
+    }
+}
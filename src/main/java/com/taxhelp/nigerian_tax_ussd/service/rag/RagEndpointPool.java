@@ -0,0 +1,207 @@
+package com.taxhelp.nigerian_tax_ussd.service.rag;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.RagServiceProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Spreads RAG queries over the replicas. Each query goes to the less busy of
+ * two healthy replicas picked at random (power of two choices), which keeps
+ * one slow replica from piling up work without every caller racing for the
+ * single least loaded one.
+ * <p>
+ * Replicas are probed on {@code /health} in the background, and taken out
+ * after a run of failed queries until they probe healthy again. If none is
+ * healthy, all of them are tried anyway.
+ * <p>
+ * A query that has not been answered within the replica's recent p95 latency
+ * is hedged: a second copy goes to another replica and whichever answers
+ * first wins, the other being cancelled. That way one stuck replica only
+ * costs the slowest few percent of questions a delay, not a timeout.
+ */
+@Slf4j
+public class RagEndpointPool implements AutoCloseable {
+
+    private final List<RagEndpoint> endpoints;
+    private final RagServiceProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService healthChecker;
+
+    public RagEndpointPool(List<RagEndpoint> endpoints, RagServiceProperties properties, MeterRegistry meterRegistry) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one RAG endpoint is required");
+        }
+        this.endpoints = List.copyOf(endpoints);
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+
+        for (RagEndpoint endpoint : this.endpoints) {
+            Gauge.builder("rag.endpoint.outstanding", endpoint, RagEndpoint::getOutstanding)
+                    .tag("endpoint", endpoint.getUrl())
+                    .description("RAG queries in flight per replica")
+                    .register(meterRegistry);
+            Gauge.builder("rag.endpoint.healthy", endpoint, e -> e.isHealthy() ? 1 : 0)
+                    .tag("endpoint", endpoint.getUrl())
+                    .description("1 if the replica is receiving queries")
+                    .register(meterRegistry);
+        }
+
+        healthChecker = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("rag-health-check").daemon().factory());
+        long interval = properties.getHealth().getIntervalMillis();
+        healthChecker.scheduleWithFixedDelay(this::probeAll, 0, interval, TimeUnit.MILLISECONDS);
+        log.info("RAG endpoint pool started - Endpoints: {}", this.endpoints.stream().map(RagEndpoint::getUrl).toList());
+    }
+
+    /**
+     * Run {@code call} against a chosen replica, hedging it to a second
+     * replica if it is slow. Fails only if every attempt fails.
+     */
+    public <T> Mono<T> execute(Function<RagEndpoint, Mono<T>> call) {
+        return Mono.defer(() -> {
+            RagEndpoint primary = choose(null);
+            Mono<T> first = tracked(primary, call);
+
+            Optional<Duration> hedgeDelay = hedgeDelay(primary);
+            if (hedgeDelay.isEmpty()) {
+                return first;
+            }
+
+            Mono<T> hedge = Mono.delay(hedgeDelay.get())
+                    .flatMap(tick -> {
+                        RagEndpoint second = choose(primary);
+                        if (second == null) {
+                            return Mono.<T>empty();
+                        }
+                        log.info("RAG query slower than {}ms on {}, hedging to {}",
+                                hedgeDelay.get().toMillis(), primary.getUrl(), second.getUrl());
+                        second.hedgeSent();
+                        return tracked(second, call).doOnNext(value -> second.hedgeWon());
+                    });
+
+            return Mono.firstWithValue(first, hedge)
+                    // Surface an attempt's own error rather than Reactor's "no value" wrapper
+                    .onErrorMap(NoSuchElementException.class,
+                            e -> e.getCause() != null ? Exceptions.unwrapMultiple(e.getCause()).get(0) : e);
+        });
+    }
+
+    public List<RagEndpoint.EndpointStats> getStats() {
+        return endpoints.stream().map(RagEndpoint::getStats).toList();
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+    }
+
+    /**
+     * Power of two choices among healthy replicas, leaving out {@code exclude}.
+     * @return null if {@code exclude} is the only candidate
+     */
+    RagEndpoint choose(RagEndpoint exclude) {
+        List<RagEndpoint> candidates = endpoints.stream()
+                .filter(endpoint -> endpoint != exclude && endpoint.isHealthy())
+                .toList();
+        if (candidates.isEmpty()) {
+            // Better to try a replica marked down than to fail without trying
+            candidates = endpoints.stream().filter(endpoint -> endpoint != exclude).toList();
+            if (candidates.isEmpty()) {
+                return null;
+            }
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(candidates.size());
+        int j = random.nextInt(candidates.size() - 1);
+        if (j >= i) {
+            j++;
+        }
+        RagEndpoint a = candidates.get(i);
+        RagEndpoint b = candidates.get(j);
+        return a.getOutstanding() <= b.getOutstanding() ? a : b;
+    }
+
+    private Optional<Duration> hedgeDelay(RagEndpoint primary) {
+        RagServiceProperties.Hedge hedge = properties.getHedge();
+        if (!hedge.getEnabled() || endpoints.size() < 2) {
+            return Optional.empty();
+        }
+        long quantile = primary.latencyQuantile(hedge.getQuantile(), hedge.getMinSamples());
+        if (quantile < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(Duration.ofMillis(Math.max(quantile, hedge.getMinDelayMillis())));
+    }
+
+    private <T> Mono<T> tracked(RagEndpoint endpoint, Function<RagEndpoint, Mono<T>> call) {
+        return Mono.defer(() -> {
+            endpoint.started();
+            long start = System.nanoTime();
+            return call.apply(endpoint)
+                    .doOnSuccess(value -> {
+                        long elapsed = System.nanoTime() - start;
+                        endpoint.succeeded(TimeUnit.NANOSECONDS.toMillis(elapsed));
+                        timer(endpoint, "success").record(elapsed, TimeUnit.NANOSECONDS);
+                    })
+                    .doOnError(e -> {
+                        timer(endpoint, "error").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        int failures = endpoint.failed();
+                        if (failures >= properties.getHealth().getMaxConsecutiveFailures() && endpoint.markHealthy(false)) {
+                            log.warn("RAG endpoint {} taken out after {} failed queries: {}",
+                                    endpoint.getUrl(), failures, e.getMessage());
+                        }
+                    })
+                    .doFinally(signal -> endpoint.finished());
+        });
+    }
+
+    private Timer timer(RagEndpoint endpoint, String outcome) {
+        return Timer.builder("rag.endpoint.requests")
+                .tag("endpoint", endpoint.getUrl())
+                .tag("outcome", outcome)
+                .description("RAG queries per replica")
+                .register(meterRegistry);
+    }
+
+    private void probeAll() {
+        RagServiceProperties.Health health = properties.getHealth();
+        for (RagEndpoint endpoint : endpoints) {
+            endpoint.getWebClient()
+                    .get()
+                    .uri(health.getEndpoint())
+                    .retrieve()
+                    .toBodilessEntity()
+                    .timeout(Duration.ofMillis(health.getTimeoutMillis()))
+                    .subscribe(
+                            response -> {
+                                if (endpoint.markHealthy(true)) {
+                                    log.info("RAG endpoint {} is healthy", endpoint.getUrl());
+                                }
+                            },
+                            e -> {
+                                if (endpoint.markHealthy(false)) {
+                                    log.warn("RAG endpoint {} failed its health check: {}", endpoint.getUrl(), e.getMessage());
+                                }
+                            });
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.taxhelp.nigerian_tax_ussd.service.session;
+
+
+import com.taxhelp.nigerian_tax_ussd.model.UserSession;
+import com.taxhelp.nigerian_tax_ussd.service.util.TimingWheel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Sessions kept on this instance only. Values are held encoded, which keeps
+ * them small and gives callers copies. Expiry is checked on every read, and a
+ * timing wheel removes sessions nobody reads again: each session has a single
+ * timer, which re-arms itself if the session was touched in the meantime.
+ */
+@Slf4j
+public class InMemorySessionStore implements SessionStore, AutoCloseable {
+
+    private final UserSessionCodec codec;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+    private final TimingWheel<String> expiryWheel;
+
+    public InMemorySessionStore(UserSessionCodec codec, long ttlSeconds, long tickMillis, int wheelSize) {
+        this(codec, ttlSeconds, tickMillis, wheelSize, System::currentTimeMillis);
+    }
+
+    InMemorySessionStore(UserSessionCodec codec, long ttlSeconds, long tickMillis, int wheelSize, LongSupplier clock) {
+        this.codec = codec;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.clock = clock;
+        this.expiryWheel = new TimingWheel<>("session-expiry", tickMillis, wheelSize, clock, this::expire);
+    }
+
+    @Override
+    public UserSession createOrTouch(UserSession candidate) {
+        long now = clock.getAsLong();
+        UserSession[] existing = new UserSession[1];
+
+        Entry stored = sessions.compute(candidate.getSessionId(), (id, entry) -> {
+            if (entry != null && entry.expiresAt > now) {
+                existing[0] = codec.deserialize(entry.value);
+                return new Entry(entry.value, now + ttlMillis, entry.timed);
+            }
+            return new Entry(codec.serialize(candidate), now + ttlMillis, entry != null && entry.timed);
+        });
+        armTimer(candidate.getSessionId(), stored);
+        return existing[0] != null ? existing[0] : candidate;
+    }
+
+    @Override
+    public Optional<UserSession> touch(String sessionId) {
+        long now = clock.getAsLong();
+        Entry entry = sessions.computeIfPresent(sessionId, (id, current) ->
+                current.expiresAt > now ? new Entry(current.value, now + ttlMillis, current.timed) : null);
+        return entry == null ? Optional.empty() : Optional.of(codec.deserialize(entry.value));
+    }
+
+    @Override
+    public void save(UserSession session) {
+        long now = clock.getAsLong();
+        byte[] value = codec.serialize(session);
+        Entry stored = sessions.compute(session.getSessionId(), (id, entry) ->
+                new Entry(value, now + ttlMillis, entry != null && entry.timed));
+        armTimer(session.getSessionId(), stored);
+    }
+
+    @Override
+    public boolean delete(String sessionId) {
+        Entry removed = sessions.remove(sessionId);
+        return removed != null && removed.expiresAt > clock.getAsLong();
+    }
+
+    @Override
+    public Optional<UserSession> take(String sessionId) {
+        Entry removed = sessions.remove(sessionId);
+        return removed != null && removed.expiresAt > clock.getAsLong()
+                ? Optional.of(codec.deserialize(removed.value))
+                : Optional.empty();
+    }
+
+    @Override
+    public boolean exists(String sessionId) {
+        return live(sessionId) != null;
+    }
+
+    @Override
+    public long getTtlSeconds(String sessionId) {
+        Entry entry = live(sessionId);
+        return entry == null ? -2 : (entry.expiresAt - clock.getAsLong() + 999) / 1000;
+    }
+
+    // May include sessions that expired within the last tick
+    @Override
+    public long countActive() {
+        return sessions.size();
+    }
+
+    @Override
+    public long clear() {
+        long count = sessions.size();
+        sessions.clear();
+        return count;
+    }
+
+    @Override
+    public void close() {
+        expiryWheel.close();
+    }
+
+    private Entry live(String sessionId) {
+        Entry entry = sessions.get(sessionId);
+        return entry != null && entry.expiresAt > clock.getAsLong() ? entry : null;
+    }
+
+    // First write of a session starts its timer; later writes only move expiresAt
+    private void armTimer(String sessionId, Entry entry) {
+        if (!entry.timed) {
+            Entry timed = new Entry(entry.value, entry.expiresAt, true);
+            if (sessions.replace(sessionId, entry, timed)) {
+                expiryWheel.schedule(sessionId, entry.expiresAt - clock.getAsLong());
+            }
+        }
+    }
+
+    private void expire(String sessionId) {
+        long now = clock.getAsLong();
+        Entry remaining = sessions.computeIfPresent(sessionId, (id, entry) -> entry.expiresAt <= now ? null : entry);
+        if (remaining != null) {
+            // Touched since the timer was set
+            expiryWheel.schedule(sessionId, remaining.expiresAt - now);
+        } else {
+            log.debug("Session expired from memory: {}", sessionId);
+        }
+    }
+
+    private record Entry(byte[] value, long expiresAt, boolean timed) {
+    }
+}
@@ -0,0 +1,207 @@
+package com.taxhelp.nigerian_tax_ussd.service.session;
+
+
+import com.taxhelp.nigerian_tax_ussd.model.UserSession;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sessions in Redis, shared by every instance. Each operation is one round
+ * trip (Redis 6.2+ for GETEX): create-or-touch, touch, save, delete and take
+ * are each one Lua script. Values are written with {@link UserSessionCodec}.
+ * <p>
+ * The scripts also keep an index of session ids scored by expiry time, so
+ * live sessions are counted with ZCARD and cleared without scanning the
+ * keyspace. The index is split into {@link #INDEX_SHARDS} sorted sets,
+ * {@code sessions:{n}:active}, and a session's key {@code session:{n}:<id>}
+ * carries the hash tag of its shard: on Redis Cluster each script then only
+ * touches keys in one slot, while sessions still spread over the nodes.
+ * Counting and clearing visit every shard.
+ */
+public class RedisSessionStore implements SessionStore {
+
+    private static final RedisScript<UserSession> GET_OR_CREATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/session_get_or_create.lua"), UserSession.class);
+    private static final RedisScript<UserSession> TOUCH_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/session_touch.lua"), UserSession.class);
+    private static final RedisScript<Long> SAVE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/session_save.lua"), Long.class);
+    private static final RedisScript<Long> DELETE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/session_delete.lua"), Long.class);
+    private static final RedisScript<UserSession> TAKE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/session_take.lua"), UserSession.class);
+    private static final RedisScript<Long> COUNT_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/session_count.lua"), Long.class);
+    // Integer replies are returned as-is; this is only there to satisfy the signature
+    private static final RedisSerializer<Long> LONG_RESULT = new GenericToStringSerializer<>(Long.class);
+
+    static final int INDEX_SHARDS = 16;
+    private static final int CLEAR_BATCH_SIZE = 500;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final UserSessionCodec codec;
+    private final long ttlSeconds;
+
+    public RedisSessionStore(RedisTemplate<String, Object> redisTemplate, UserSessionCodec codec, long ttlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.codec = codec;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    @Override
+    public UserSession createOrTouch(UserSession candidate) {
+        long now = System.currentTimeMillis();
+        UserSession existing = redisTemplate.execute(
+                GET_OR_CREATE_SCRIPT,
+                RedisSerializer.byteArray(),
+                codec,
+                keys(candidate.getSessionId()),
+                codec.serialize(candidate),
+                bytes(ttlSeconds),
+                bytes(now),
+                bytes(expiryMillis(now)),
+                bytes(candidate.getSessionId()));
+        return existing != null ? existing : candidate;
+    }
+
+    @Override
+    public Optional<UserSession> touch(String sessionId) {
+        UserSession session = redisTemplate.execute(
+                TOUCH_SCRIPT,
+                RedisSerializer.byteArray(),
+                codec,
+                keys(sessionId),
+                bytes(ttlSeconds),
+                bytes(expiryMillis(System.currentTimeMillis())),
+                bytes(sessionId));
+        return Optional.ofNullable(session);
+    }
+
+    @Override
+    public void save(UserSession session) {
+        redisTemplate.execute(
+                SAVE_SCRIPT,
+                RedisSerializer.byteArray(),
+                LONG_RESULT,
+                keys(session.getSessionId()),
+                codec.serialize(session),
+                bytes(ttlSeconds),
+                bytes(expiryMillis(System.currentTimeMillis())),
+                bytes(session.getSessionId()));
+    }
+
+    // UNLINK frees the memory off Redis's main thread
+    @Override
+    public boolean delete(String sessionId) {
+        Long deleted = redisTemplate.execute(
+                DELETE_SCRIPT,
+                RedisSerializer.byteArray(),
+                LONG_RESULT,
+                keys(sessionId),
+                bytes(sessionId));
+        return deleted != null && deleted > 0;
+    }
+
+    @Override
+    public Optional<UserSession> take(String sessionId) {
+        UserSession session = redisTemplate.execute(
+                TAKE_SCRIPT,
+                RedisSerializer.byteArray(),
+                codec,
+                keys(sessionId),
+                bytes(sessionId));
+        return Optional.ofNullable(session);
+    }
+
+    @Override
+    public boolean exists(String sessionId) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(sessionKey(sessionId)));
+    }
+
+    @Override
+    public long getTtlSeconds(String sessionId) {
+        Long ttl = redisTemplate.getExpire(sessionKey(sessionId), TimeUnit.SECONDS);
+        return ttl != null ? ttl : -2;
+    }
+
+    // Expired entries are pruned from the index first; one script per shard
+    @Override
+    public long countActive() {
+        long now = System.currentTimeMillis();
+        long count = 0;
+        for (int shard = 0; shard < INDEX_SHARDS; shard++) {
+            Long shardCount = redisTemplate.execute(
+                    COUNT_SCRIPT,
+                    RedisSerializer.byteArray(),
+                    LONG_RESULT,
+                    List.of(activeSessionsKey(shard)),
+                    bytes(now));
+            count += shardCount != null ? shardCount : 0;
+        }
+        return count;
+    }
+
+    // Walks each shard's index, one UNLINK per batch of sessions in that shard's slot
+    @Override
+    public long clear() {
+        Long deleted = redisTemplate.execute((RedisCallback<Long>) connection -> {
+            long count = 0;
+            for (int shard = 0; shard < INDEX_SHARDS; shard++) {
+                byte[] index = activeSessionsKey(shard).getBytes(StandardCharsets.UTF_8);
+                Set<byte[]> members;
+                while (!(members = connection.zSetCommands().zRange(index, 0, CLEAR_BATCH_SIZE - 1)).isEmpty()) {
+                    List<byte[]> keys = new ArrayList<>(members.size());
+                    for (byte[] member : members) {
+                        keys.add(sessionKey(new String(member, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8));
+                    }
+                    count += unlink(connection, keys);
+                    connection.zSetCommands().zRem(index, members.toArray(new byte[0][]));
+                }
+            }
+            return count;
+        });
+        return deleted != null ? deleted : 0;
+    }
+
+    private long expiryMillis(long now) {
+        return now + ttlSeconds * 1000;
+    }
+
+    private static long unlink(RedisConnection connection, List<byte[]> keys) {
+        Long unlinked = connection.keyCommands().unlink(keys.toArray(new byte[0][]));
+        return unlinked != null ? unlinked : 0;
+    }
+
+    private static int shard(String sessionId) {
+        return Math.floorMod(sessionId.hashCode(), INDEX_SHARDS);
+    }
+
+    static String sessionKey(String sessionId) {
+        return "session:{" + shard(sessionId) + "}:" + sessionId;
+    }
+
+    static String activeSessionsKey(int shard) {
+        return "sessions:{" + shard + "}:active";
+    }
+
+    // The session key and its shard of the index, in the order the scripts expect
+    private static List<String> keys(String sessionId) {
+        return List.of(sessionKey(sessionId), activeSessionsKey(shard(sessionId)));
+    }
+
+    private static byte[] bytes(Object value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
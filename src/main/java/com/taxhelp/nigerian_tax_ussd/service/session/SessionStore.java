@@ -0,0 +1,42 @@
+package com.taxhelp.nigerian_tax_ussd.service.session;
+
+
+import com.taxhelp.nigerian_tax_ussd.model.UserSession;
+
+import java.util.Optional;
+
+/**
+ * Where USSD sessions live. Every write and every read that finds a session
+ * resets its time to live; sessions are returned as copies, so changes only
+ * stick once saved.
+ */
+public interface SessionStore {
+
+    /**
+     * Return the stored session with its TTL refreshed, or store {@code candidate}
+     * if there is none.
+     * @return the existing session, or {@code candidate} itself when it was stored
+     */
+    UserSession createOrTouch(UserSession candidate);
+
+    // Read a session and refresh its TTL
+    Optional<UserSession> touch(String sessionId);
+
+    void save(UserSession session);
+
+    // @return true if a session was removed
+    boolean delete(String sessionId);
+
+    // Read and remove a session in one step, e.g. on the last hop of a USSD session
+    Optional<UserSession> take(String sessionId);
+
+    boolean exists(String sessionId);
+
+    // Seconds left before the session expires, -2 if there is no session
+    long getTtlSeconds(String sessionId);
+
+    long countActive();
+
+    // Remove every session; @return how many were removed
+    long clear();
+}
@@ -0,0 +1,174 @@
+package com.taxhelp.nigerian_tax_ussd.service.session;
+
+
+import com.taxhelp.nigerian_tax_ussd.model.UserSession;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Writes every session to local memory and through to a remote store
+ * (Redis). While the remote store answers it stays the source of truth, so
+ * instances behind a load balancer see each other's sessions. When it fails,
+ * sessions are served from local memory only, and the remote store is tried
+ * again after {@code retryAfterMillis}.
+ * <p>
+ * Sessions created or changed locally during an outage are marked dirty, and
+ * sessions removed during it are remembered. The first remote call after the
+ * outage pushes the dirty sessions over whatever copy the remote store still
+ * holds and replays the removals, so a caller in the middle of a USSD session
+ * keeps the language chosen during the outage, and an ended session does not
+ * come back.
+ */
+@Slf4j
+public class TieredSessionStore implements SessionStore, AutoCloseable {
+
+    private final SessionStore local;
+    private final SessionStore remote;
+    private final long retryAfterMillis;
+
+    private volatile long remoteDownUntil;
+    // Written or removed locally while the remote store was down, replayed on recovery
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final Set<String> removed = ConcurrentHashMap.newKeySet();
+
+    public TieredSessionStore(SessionStore local, SessionStore remote, long retryAfterMillis) {
+        this.local = local;
+        this.remote = remote;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    @Override
+    public UserSession createOrTouch(UserSession candidate) {
+        UserSession session = remote("createOrTouch", () -> remote.createOrTouch(candidate));
+
+        if (session == null) {
+            markDirty(candidate.getSessionId());
+            return local.createOrTouch(candidate);
+        }
+        local.save(session);
+        return session;
+    }
+
+    @Override
+    public Optional<UserSession> touch(String sessionId) {
+        Optional<UserSession> session = remote("touch", () -> remote.touch(sessionId));
+
+        if (session == null) {
+            return local.touch(sessionId);
+        }
+        session.ifPresent(local::save);
+        return session;
+    }
+
+    @Override
+    public void save(UserSession session) {
+        local.save(session);
+        Boolean saved = remote("save", () -> {
+            remote.save(session);
+            return Boolean.TRUE;
+        });
+        if (saved == null) {
+            markDirty(session.getSessionId());
+        }
+    }
+
+    @Override
+    public boolean delete(String sessionId) {
+        boolean deletedLocally = local.delete(sessionId);
+        Boolean deletedRemotely = remote("delete", () -> remote.delete(sessionId));
+        if (deletedRemotely == null) {
+            markRemoved(sessionId);
+        }
+        return deletedLocally || Boolean.TRUE.equals(deletedRemotely);
+    }
+
+    @Override
+    public Optional<UserSession> take(String sessionId) {
+        Optional<UserSession> kept = local.take(sessionId);
+        Optional<UserSession> taken = remote("take", () -> remote.take(sessionId));
+        if (taken == null) {
+            markRemoved(sessionId);
+        }
+        return taken != null && taken.isPresent() ? taken : kept;
+    }
+
+    @Override
+    public boolean exists(String sessionId) {
+        Boolean exists = remote("exists", () -> remote.exists(sessionId));
+        return exists != null ? exists : local.exists(sessionId);
+    }
+
+    @Override
+    public long getTtlSeconds(String sessionId) {
+        Long ttl = remote("getTtlSeconds", () -> remote.getTtlSeconds(sessionId));
+        return ttl != null ? ttl : local.getTtlSeconds(sessionId);
+    }
+
+    @Override
+    public long countActive() {
+        Long count = remote("countActive", remote::countActive);
+        return count != null ? count : local.countActive();
+    }
+
+    @Override
+    public long clear() {
+        long cleared = local.clear();
+        dirty.clear();
+        removed.clear();
+        Long clearedRemotely = remote("clear", remote::clear);
+        return clearedRemotely != null ? clearedRemotely : cleared;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (local instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private void markDirty(String sessionId) {
+        removed.remove(sessionId);
+        dirty.add(sessionId);
+    }
+
+    private void markRemoved(String sessionId) {
+        dirty.remove(sessionId);
+        removed.add(sessionId);
+    }
+
+    // Push what changed locally during an outage; an id stays marked until its call succeeds
+    private void replayOutage() {
+        for (String sessionId : removed) {
+            remote.delete(sessionId);
+            removed.remove(sessionId);
+        }
+        for (String sessionId : dirty) {
+            // Gone locally means it expired during the outage, and the remote copy is stale too
+            local.touch(sessionId).ifPresentOrElse(remote::save, () -> remote.delete(sessionId));
+            dirty.remove(sessionId);
+        }
+    }
+
+    // Run against the remote store; null if it is down or the call failed
+    private <R> R remote(String operation, Supplier<R> call) {
+        if (System.currentTimeMillis() < remoteDownUntil) {
+            return null;
+        }
+        try {
+            if (!dirty.isEmpty() || !removed.isEmpty()) {
+                replayOutage();
+            }
+            return call.get();
+        } catch (Exception e) {
+            // Logged once per outage window, as calls are skipped until it ends
+            log.warn("Remote session store failed on {}, serving sessions from memory for {}ms: {}",
+                    operation, retryAfterMillis, e.getMessage());
+            remoteDownUntil = System.currentTimeMillis() + retryAfterMillis;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.taxhelp.nigerian_tax_ussd.service.session;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taxhelp.nigerian_tax_ussd.model.UserSession;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Component;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary form of {@link UserSession} for Redis.
+ * <p>
+ * Layout (version 1): magic byte, version byte, sessionId, phoneNumber and
+ * language as varint-length-prefixed UTF-8 (length + 1, 0 meaning null),
+ * stage ordinal as one byte (-1 for null), then createdAt and lastAccessedAt
+ * as 8-byte epoch millis ({@link Long#MIN_VALUE} for null).
+ * <p>
+ * Stage is stored by ordinal, so new stages must be added at the end of the
+ * enum. Values written by the old JSON serializer start with '[' instead of
+ * the magic byte and are still read, so sessions created before a deploy keep
+ * working until they expire.
+ */
+@Component
+public class UserSessionCodec implements RedisSerializer<UserSession> {
+
+    static final byte MAGIC = (byte) 0xB5;
+    static final byte VERSION = 1;
+
+    private static final byte NO_STAGE = -1;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final UserSession.SessionStage[] STAGES = UserSession.SessionStage.values();
+
+    private final RedisSerializer<Object> legacySerializer;
+
+    // The mapper the old JSON values were written with (RedisConfig)
+    public UserSessionCodec(ObjectMapper objectMapper) {
+        this.legacySerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+    }
+
+    @Override
+    public byte[] serialize(UserSession session) {
+        if (session == null) {
+            return null;
+        }
+        byte[] sessionId = utf8(session.getSessionId());
+        byte[] phoneNumber = utf8(session.getPhoneNumber());
+        byte[] language = utf8(session.getLanguage());
+
+        int size = 2 + sizeOf(sessionId) + sizeOf(phoneNumber) + sizeOf(language) + 1 + 8 + 8;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(MAGIC).put(VERSION);
+        putString(buffer, sessionId);
+        putString(buffer, phoneNumber);
+        putString(buffer, language);
+        buffer.put(session.getStage() == null ? NO_STAGE : (byte) session.getStage().ordinal());
+        buffer.putLong(toMillis(session.getCreatedAt()));
+        buffer.putLong(toMillis(session.getLastAccessedAt()));
+        return buffer.array();
+    }
+
+    @Override
+    public UserSession deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return (UserSession) legacySerializer.deserialize(bytes);
+        }
+        if (bytes.length < 2 || bytes[1] != VERSION) {
+            throw new SerializationException("Unsupported session format version: "
+                    + (bytes.length < 2 ? "none" : bytes[1]));
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, bytes.length - 2);
+            UserSession session = new UserSession();
+            session.setSessionId(getString(buffer));
+            session.setPhoneNumber(getString(buffer));
+            session.setLanguage(getString(buffer));
+
+            byte stage = buffer.get();
+            if (stage != NO_STAGE) {
+                if (stage < 0 || stage >= STAGES.length) {
+                    throw new SerializationException("Unknown session stage ordinal: " + stage);
+                }
+                session.setStage(STAGES[stage]);
+            }
+            session.setCreatedAt(fromMillis(buffer.getLong()));
+            session.setLastAccessedAt(fromMillis(buffer.getLong()));
+            return session;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new SerializationException("Corrupt session value", e);
+        }
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        return UserSession.class;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] value) {
+        int length = value == null ? 0 : value.length + 1;
+        int size = 1;
+        while (length >= 0x80) {
+            length >>>= 7;
+            size++;
+        }
+        return size + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        int length = value == null ? 0 : value.length + 1;
+        while (length >= 0x80) {
+            buffer.put((byte) (length | 0x80));
+            length >>>= 7;
+        }
+        buffer.put((byte) length);
+        if (value != null) {
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new SerializationException("Corrupt session value: bad string length");
+            }
+            b = buffer.get();
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        if (length == 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length - 1, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length - 1);
+        return value;
+    }
+
+    private static long toMillis(Instant instant) {
+        return instant == null ? NO_TIME : instant.toEpochMilli();
+    }
+
+    private static Instant fromMillis(long millis) {
+        return millis == NO_TIME ? null : Instant.ofEpochMilli(millis);
+    }
+}
@@ -0,0 +1,89 @@
+package com.taxhelp.nigerian_tax_ussd.service.sms;
+
+
+import com.africastalking.AfricasTalking;
+import com.africastalking.SmsService;
+import com.africastalking.sms.Recipient;
+import com.taxhelp.nigerian_tax_ussd.config.AfricasTalkingProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Africa's Talking: one API call for all recipients of a message.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AfricasTalkingSmsProvider implements SmsProvider {
+
+    private final AfricasTalkingProperties africasTalkingProperties;
+    private SmsService smsService;
+
+    @PostConstruct
+    public void init() {
+        // Initialize the SDK once at startup
+        AfricasTalking.initialize(
+                africasTalkingProperties.getUsername(),
+                africasTalkingProperties.getApiKey()
+        );
+
+        // Get the SMS service
+        smsService = AfricasTalking.getService(AfricasTalking.SERVICE_SMS);
+
+        log.info("Africa's Talking ADK initialized with username: {}",
+                africasTalkingProperties.getUsername());
+    }
+
+    @Override
+    public String getName() {
+        return "africastalking";
+    }
+
+    @Override
+    public List<SmsResult> send(String message, List<String> phoneNumbers) throws Exception {
+        // Set recipients (SDK requires array)
+        String[] recipients = phoneNumbers.toArray(new String[0]);
+
+        // Set sender ID (can be null for default)
+        String from = africasTalkingProperties.getSenderId();
+
+        log.info("Calling Africa's Talking SMS API - From: {}, Recipients: {}", from, recipients.length);
+
+        // Send SMS using SDK
+        List<Recipient> response = smsService.send(message, from, recipients, true);
+
+        // The gateway may format numbers differently, so match them on digits
+        Map<String, String> byDigits = new HashMap<>();
+        phoneNumbers.forEach(number -> byDigits.put(digits(number), number));
+
+        List<SmsResult> results = new ArrayList<>(response.size());
+        for (Recipient recipient : response) {
+            log.info("SMS Result - Number: {}. Status: {}, MessageId: {}, Cost: {}",
+                    recipient.number,
+                    recipient.status,
+                    recipient.messageId,
+                    recipient.cost);
+
+            String submitted = byDigits.getOrDefault(digits(recipient.number), recipient.number);
+            if ("Success".equalsIgnoreCase(recipient.status)) {
+                results.add(SmsResult.accepted(submitted, recipient.messageId, recipient.status));
+            } else if (africasTalkingProperties.getRetryableStatusCodes().contains(recipient.statusCode)) {
+                results.add(SmsResult.retryable(submitted, recipient.status));
+            } else {
+                results.add(SmsResult.failed(submitted, recipient.status));
+            }
+        }
+        return results;
+    }
+
+    private static String digits(String phoneNumber) {
+        return phoneNumber == null ? "" : phoneNumber.replaceAll("\\D", "");
+    }
+}
@@ -0,0 +1,288 @@
+package com.taxhelp.nigerian_tax_ussd.service.sms;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.SmsDeliveryProperties;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionLog;
+import com.taxhelp.nigerian_tax_ussd.repository.SmsDeliveryWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks answer SMS from the provider accepting them to the handset getting
+ * them. Two kinds of update are queued and written to question_logs in
+ * batches by a background writer:
+ * <ul>
+ *     <li>the provider's message id, once the provider has taken the SMS
+ *     ({@link #sent}), recorded against the question's session id;</li>
+ *     <li>delivery reports from the provider's callback ({@link #report}),
+ *     matched on that message id.</li>
+ * </ul>
+ * Either can arrive before the row it updates exists: the log is written
+ * behind, and a report can overtake its message id. Such updates are tried
+ * again every {@code matchRetryMillis}, up to {@code maxMatchAttempts} times.
+ */
+@Slf4j
+@Service
+public class SmsDeliveryService {
+
+    // Africa's Talking report statuses; anything else is recorded as "other"
+    private static final Set<String> KNOWN_STATUSES = Set.of(
+            "Sent", "Submitted", "Buffered", "Rejected", "Success", "Failed", "AbsentSubscriber", "Expired");
+
+    // A queued update and how many times it has found no question log
+    private sealed interface Pending permits LinkUpdate, ReportUpdate {
+        int attempts();
+
+        Pending retried();
+    }
+
+    private record LinkUpdate(SmsDeliveryWriter.MessageLink link, int attempts) implements Pending {
+        @Override
+        public Pending retried() {
+            return new LinkUpdate(link, attempts + 1);
+        }
+    }
+
+    private record ReportUpdate(SmsDeliveryWriter.Report report, int attempts) implements Pending {
+        @Override
+        public Pending retried() {
+            return new ReportUpdate(report, attempts + 1);
+        }
+    }
+
+    private record Deferred(Pending pending, long notBefore) {
+    }
+
+    private final SmsDeliveryWriter writer;
+    private final SmsDeliveryProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<Pending> buffer;
+    // Only touched by the writer thread
+    private final List<Deferred> deferred = new ArrayList<>();
+    private final Timer deliveryLatency;
+    private final Thread writerThread;
+
+    private volatile boolean running = true;
+
+    public SmsDeliveryService(SmsDeliveryWriter writer, SmsDeliveryProperties properties, MeterRegistry meterRegistry) {
+        this.writer = writer;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.buffer = new ArrayBlockingQueue<>(properties.getBufferCapacity());
+
+        Gauge.builder("sms.delivery.buffer.size", buffer, BlockingQueue::size)
+                .description("SMS message ids and delivery reports waiting to be written")
+                .register(meterRegistry);
+        this.deliveryLatency = Timer.builder("sms.delivery.latency")
+                .description("Time from an answer SMS being queued to the provider reporting it delivered")
+                .register(meterRegistry);
+
+        this.writerThread = Thread.ofPlatform().name("sms-delivery-writer").daemon().start(this::writeLoop);
+
+        if (StringUtils.isBlank(properties.getCallbackToken())) {
+            log.warn("sms.delivery.callback-token is not set: anyone who can reach POST /sms/delivery-report "
+                    + "can mark answers delivered. Set SMS_DELIVERY_CALLBACK_TOKEN and add ?token= to the callback URL");
+        }
+    }
+
+    /**
+     * The provider took the answer SMS for the question asked in {@code sessionId}.
+     */
+    public void sent(String sessionId, SmsResult result, long submittedAtMillis) {
+        if (result.messageId() == null) {
+            return;
+        }
+        LocalDateTime submittedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(submittedAtMillis), ZoneId.systemDefault());
+        offer(new LinkUpdate(new SmsDeliveryWriter.MessageLink(sessionId, result.messageId(), "Sent", submittedAt), 0));
+    }
+
+    // A delivery report from the provider's callback
+    public void report(String messageId, String reportedStatus) {
+        String status = normalize(reportedStatus);
+        boolean delivered = properties.getDeliveredStatuses().stream().anyMatch(status::equalsIgnoreCase);
+        Counter.builder("sms.delivery.reports")
+                .tag("status", status)
+                .description("Delivery reports received by status")
+                .register(meterRegistry)
+                .increment();
+        offer(new ReportUpdate(new SmsDeliveryWriter.Report(messageId, status, delivered, LocalDateTime.now()), 0));
+    }
+
+    /**
+     * The callback is open to anyone, so only a fixed set of statuses is kept,
+     * both as the metric tag and in the question log.
+     */
+    private String normalize(String reportedStatus) {
+        for (String known : properties.getDeliveredStatuses()) {
+            if (known.equalsIgnoreCase(reportedStatus)) {
+                return known;
+            }
+        }
+        for (String known : KNOWN_STATUSES) {
+            if (known.equalsIgnoreCase(reportedStatus)) {
+                return known;
+            }
+        }
+        return "other";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread.interrupt();
+
+        int unwritten = buffer.size() + deferred.size();
+        if (unwritten > 0) {
+            log.warn("SMS delivery writer stopped with {} update(s) unwritten", unwritten);
+        }
+    }
+
+    private void offer(Pending pending) {
+        if (!running || !buffer.offer(pending)) {
+            outcome(pending, "dropped").increment();
+            log.warn("SMS delivery buffer full ({}), dropping {}", properties.getBufferCapacity(), pending);
+        }
+    }
+
+    private void writeLoop() {
+        int batchSize = properties.getBatchSize();
+        long flushIntervalMillis = properties.getFlushIntervalMillis();
+        List<Pending> batch = new ArrayList<>(batchSize);
+
+        while (running || !buffer.isEmpty()) {
+            try {
+                Pending first = buffer.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                    // Fill the batch until it is full or the first update has waited long enough
+                    while (batch.size() < batchSize) {
+                        buffer.drainTo(batch, batchSize - batch.size());
+                        long wait = deadline - System.currentTimeMillis();
+                        if (batch.size() >= batchSize || wait <= 0 || !running) {
+                            break;
+                        }
+                        Pending next = buffer.poll(wait, TimeUnit.MILLISECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                }
+                takeDueRetries(batch);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.error("SMS delivery writer failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void takeDueRetries(List<Pending> batch) {
+        long now = System.currentTimeMillis();
+        for (Iterator<Deferred> it = deferred.iterator(); it.hasNext(); ) {
+            Deferred entry = it.next();
+            if (entry.notBefore() <= now) {
+                batch.add(entry.pending());
+                it.remove();
+            }
+        }
+    }
+
+    // Message ids go first, so a report in the same batch can find its log
+    private void writeBatch(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<LinkUpdate> links = new ArrayList<>();
+        List<ReportUpdate> reports = new ArrayList<>();
+        for (Pending pending : batch) {
+            switch (pending) {
+                case LinkUpdate link -> links.add(link);
+                case ReportUpdate report -> reports.add(report);
+            }
+        }
+        batch.clear();
+
+        if (!links.isEmpty()) {
+            try {
+                boolean[] found = writer.linkMessageIds(links.stream().map(LinkUpdate::link).toList());
+                for (int i = 0; i < found.length; i++) {
+                    if (found[i]) {
+                        outcome(links.get(i), "applied").increment();
+                    } else {
+                        retryLater(links.get(i));
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Failed to write {} SMS message ids: {}", links.size(), e.getMessage());
+                links.forEach(this::retryLater);
+            }
+        }
+
+        if (!reports.isEmpty()) {
+            try {
+                SmsDeliveryWriter.Applied applied = writer.applyReports(
+                        reports.stream().map(ReportUpdate::report).toList());
+                for (ReportUpdate update : reports) {
+                    if (applied.matched().contains(update.report().messageId())) {
+                        outcome(update, "applied").increment();
+                    } else {
+                        retryLater(update);
+                    }
+                }
+                for (QuestionLog questionLog : applied.delivered()) {
+                    if (questionLog.getSmsSubmittedAt() != null) {
+                        deliveryLatency.record(Duration.between(
+                                questionLog.getSmsSubmittedAt(), questionLog.getSmsDeliveredAt()));
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Failed to write {} SMS delivery reports: {}", reports.size(), e.getMessage());
+                reports.forEach(this::retryLater);
+            }
+        }
+    }
+
+    private void retryLater(Pending pending) {
+        if (pending.attempts() + 1 >= properties.getMaxMatchAttempts()
+                || deferred.size() >= properties.getBufferCapacity()) {
+            outcome(pending, "unmatched").increment();
+            log.warn("No question log found for {} after {} attempt(s), dropping it", pending, pending.attempts() + 1);
+            return;
+        }
+        deferred.add(new Deferred(pending.retried(), System.currentTimeMillis() + properties.getMatchRetryMillis()));
+    }
+
+    private Counter outcome(Pending pending, String outcome) {
+        return Counter.builder("sms.delivery.updates")
+                .tag("type", pending instanceof LinkUpdate ? "message-id" : "report")
+                .tag("outcome", outcome)
+                .description("SMS message ids and delivery reports by outcome")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,297 @@
+package com.taxhelp.nigerian_tax_ussd.service.sms;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.SmsDispatcherProperties;
+import com.taxhelp.nigerian_tax_ussd.service.util.TimingWheel;
+import com.taxhelp.nigerian_tax_ussd.service.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outbound SMS queue. Messages wait in a bounded queue and a single
+ * dispatcher thread hands them to the gateway no faster than the provider
+ * allows (a token bucket per gateway call). Messages with the same body
+ * (error notices, popular cached answers) that are waiting together go out
+ * as one multi-recipient call.
+ * <p>
+ * Recipients the gateway could not reach are retried with exponential
+ * backoff and jitter, scheduled on a timing wheel, up to {@code maxAttempts}.
+ */
+@Slf4j
+public class SmsDispatcher implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface Gateway {
+        /**
+         * Send one message body to all recipients in a single call.
+         * @return one result per recipient; RETRYABLE ones are retried, missing ones count as sent
+         * @throws Exception if the call as a whole failed; every recipient is retried
+         */
+        List<SmsResult> send(String message, List<String> recipients) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface AcceptedListener {
+        /**
+         * Called once the gateway has taken a message submitted with a reference,
+         * on whichever attempt that happened.
+         */
+        void accepted(String reference, SmsResult result, long submittedAtMillis);
+    }
+
+    // firstAttempt completes once the recipient has been tried once; reference may be null
+    private record Recipient(String phoneNumber, String reference, long submittedAtMillis, int attempt,
+                             CompletableFuture<Void> firstAttempt) {
+
+        Recipient nextAttempt() {
+            return new Recipient(phoneNumber, reference, submittedAtMillis, attempt + 1, firstAttempt);
+        }
+    }
+
+    private record Batch(String message, List<Recipient> recipients) {
+    }
+
+    private record Retry(String message, Recipient recipient) {
+    }
+
+    private final SmsDispatcherProperties properties;
+    private final Gateway gateway;
+    private final AcceptedListener acceptedListener;
+    private final TokenBucket rateShaper;
+    private final TimingWheel<Retry> retryWheel;
+    private final ExecutorService senders;
+    private final Thread dispatcher;
+
+    // Waiting recipients grouped by message body, oldest body first; guarded by lock
+    private final Map<String, List<Recipient>> waiting = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private int queued;
+    private volatile boolean running = true;
+
+    private final Counter sent;
+    private final Counter retried;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary recipientsPerCall;
+
+    public SmsDispatcher(SmsDispatcherProperties properties, Gateway gateway, AcceptedListener acceptedListener,
+                         MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.gateway = gateway;
+        this.acceptedListener = acceptedListener;
+        this.meterRegistry = meterRegistry;
+        this.rateShaper = new TokenBucket(properties.getRatePerSecond(), properties.getBurst());
+        this.retryWheel = new TimingWheel<>("sms-retry", properties.getWheelTickMillis(), properties.getWheelSize(),
+                this::requeue);
+        // Gateway calls block on HTTP; the rate shaper and SMS bulkhead bound how many run at once
+        this.senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sms-send-", 0).factory());
+
+        Gauge.builder("sms.queue.size", this, SmsDispatcher::queued)
+                .description("Recipients waiting to be sent")
+                .register(meterRegistry);
+        this.sent = outcome("sent");
+        this.retried = outcome("retried");
+        this.recipientsPerCall = DistributionSummary.builder("sms.batch.recipients")
+                .description("Recipients per gateway call")
+                .register(meterRegistry);
+
+        this.dispatcher = Thread.ofPlatform().name("sms-dispatcher").daemon().start(this::dispatchLoop);
+        log.info("SMS dispatcher started - Rate: {}/s, Burst: {}, QueueCapacity: {}",
+                properties.getRatePerSecond(), properties.getBurst(), properties.getQueueCapacity());
+    }
+
+    /**
+     * Queue a message. Never fails: a message that cannot be queued is logged
+     * and dropped.
+     * @param reference passed to the {@link AcceptedListener} once the gateway takes the message; may be null
+     * @return completes once the first attempt to send it has been made
+     */
+    public CompletableFuture<Void> submit(String phoneNumber, String message, String reference) {
+        CompletableFuture<Void> firstAttempt = new CompletableFuture<>();
+        Recipient recipient = new Recipient(phoneNumber, reference, System.currentTimeMillis(), 1, firstAttempt);
+        if (!enqueue(message, recipient, false)) {
+            outcome("dropped").increment();
+            log.error("SMS queue full ({}), dropping message to {}", properties.getQueueCapacity(), phoneNumber);
+            firstAttempt.complete(null);
+        }
+        return firstAttempt;
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Send what is queued (up to the shutdown timeout); pending retries are dropped
+    @Override
+    public void close() {
+        running = false;
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(properties.getShutdownTimeoutSeconds()));
+            senders.shutdown();
+            senders.awaitTermination(properties.getShutdownTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dispatcher.interrupt();
+        retryWheel.close();
+
+        int unsent = queued() + retryWheel.size();
+        if (unsent > 0) {
+            log.warn("SMS dispatcher stopped with {} message(s) unsent", unsent);
+        }
+    }
+
+    // Retries were accepted once already, so they may go over capacity
+    private boolean enqueue(String message, Recipient recipient, boolean retry) {
+        lock.lock();
+        try {
+            if (!running || (!retry && queued >= properties.getQueueCapacity())) {
+                return false;
+            }
+            waiting.computeIfAbsent(message, key -> new ArrayList<>()).add(recipient);
+            queued++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchLoop() {
+        try {
+            while (running || queued() > 0) {
+                // Take the token first, so identical messages keep piling up while we wait for it
+                rateShaper.acquire();
+                Batch batch = take();
+                if (batch != null) {
+                    senders.execute(() -> send(batch));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Up to maxRecipientsPerCall recipients of the oldest waiting body; null if idle for a while or stopping
+    private Batch take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (waiting.isEmpty()) {
+                if (!running || !notEmpty.await(1, TimeUnit.SECONDS)) {
+                    return null;
+                }
+            }
+            Iterator<Map.Entry<String, List<Recipient>>> oldest = waiting.entrySet().iterator();
+            Map.Entry<String, List<Recipient>> entry = oldest.next();
+            List<Recipient> group = entry.getValue();
+
+            List<Recipient> taken;
+            if (group.size() <= properties.getMaxRecipientsPerCall()) {
+                taken = group;
+                oldest.remove();
+            } else {
+                List<Recipient> head = group.subList(0, properties.getMaxRecipientsPerCall());
+                taken = new ArrayList<>(head);
+                head.clear();
+            }
+            queued -= taken.size();
+            return new Batch(entry.getKey(), taken);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void send(Batch batch) {
+        List<String> numbers = batch.recipients().stream().map(Recipient::phoneNumber).toList();
+        recipientsPerCall.record(numbers.size());
+
+        Map<String, SmsResult> results = new HashMap<>();
+        try {
+            gateway.send(batch.message(), numbers).forEach(result -> results.put(result.phoneNumber(), result));
+        } catch (Exception e) {
+            log.warn("SMS gateway call for {} recipient(s) failed: {}", numbers.size(), e.getMessage());
+            numbers.forEach(number -> results.put(number, SmsResult.retryable(number, e.getMessage())));
+        }
+
+        for (Recipient recipient : batch.recipients()) {
+            SmsResult result = results.get(recipient.phoneNumber());
+            if (result == null || result.status() == SmsResult.Status.ACCEPTED) {
+                sent.increment();
+                if (result != null && recipient.reference() != null) {
+                    notifyAccepted(recipient, result);
+                }
+            } else if (result.status() == SmsResult.Status.RETRYABLE) {
+                scheduleRetry(batch.message(), recipient);
+            } else {
+                outcome("failed").increment();
+            }
+            recipient.firstAttempt().complete(null);
+        }
+    }
+
+    private void notifyAccepted(Recipient recipient, SmsResult result) {
+        try {
+            acceptedListener.accepted(recipient.reference(), result, recipient.submittedAtMillis());
+        } catch (Exception e) {
+            log.warn("SMS accepted listener failed for {}: {}", recipient.phoneNumber(), e.getMessage());
+        }
+    }
+
+    private void scheduleRetry(String message, Recipient recipient) {
+        if (recipient.attempt() >= properties.getMaxAttempts()) {
+            outcome("dropped").increment();
+            log.error("SMS to {} failed after {} attempts, giving up", recipient.phoneNumber(), recipient.attempt());
+            return;
+        }
+        // Full jitter over the upper half, so a burst of failures does not retry in lockstep
+        long backoff = Math.min(properties.getRetryMaxDelayMillis(),
+                properties.getRetryBaseDelayMillis() << Math.min(recipient.attempt() - 1, 20));
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+
+        retried.increment();
+        log.info("Retrying SMS to {} in {}ms (attempt {})", recipient.phoneNumber(), delay, recipient.attempt() + 1);
+        retryWheel.schedule(new Retry(message, recipient.nextAttempt()), delay);
+    }
+
+    private void requeue(Retry retry) {
+        if (!enqueue(retry.message(), retry.recipient(), true)) {
+            outcome("dropped").increment();
+            log.warn("SMS dispatcher stopping, dropping retry to {}", retry.recipient().phoneNumber());
+        }
+    }
+
+    private Counter outcome(String outcome) {
+        return Counter.builder("sms.messages")
+                .tag("outcome", outcome)
+                .description("SMS recipients by outcome")
+                .register(meterRegistry);
+    }
+}
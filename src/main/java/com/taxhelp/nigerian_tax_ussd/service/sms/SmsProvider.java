@@ -0,0 +1,26 @@
+package com.taxhelp.nigerian_tax_ussd.service.sms;
+
+
+import java.util.List;
+
+/**
+ * An SMS gateway (Africa's Talking, Twilio, or a local stub).
+ * {@link SmsProviderRouter} picks one per call.
+ */
+public interface SmsProvider {
+
+    // Name used in sms.routing.providers
+    String getName();
+
+    // False when credentials are missing; such providers are left out of routing
+    default boolean isConfigured() {
+        return true;
+    }
+
+    /**
+     * Send one message body to every recipient, in as few calls as the gateway allows.
+     * @return one result per recipient
+     * @throws Exception if the gateway could not be used at all
+     */
+    List<SmsResult> send(String message, List<String> recipients) throws Exception;
+}
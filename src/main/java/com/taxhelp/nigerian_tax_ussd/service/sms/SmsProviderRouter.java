@@ -0,0 +1,267 @@
+package com.taxhelp.nigerian_tax_ussd.service.sms;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.SmsRoutingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Picks the SMS provider for each gateway call. Providers are listed in
+ * failover order: the first healthy one is used, or, when healthy providers
+ * have weights, traffic is split between them by weight. A call that throws,
+ * or where every recipient comes back retryable (so nothing was sent), is
+ * tried on the next provider straight away.
+ * <p>
+ * Each provider's last {@code windowSize} calls are kept. Once its error
+ * rate or p95 latency goes over the limit it is degraded: skipped for
+ * {@code cooldownMillis} (unless nothing else is left), then given traffic
+ * again with a fresh window.
+ */
+@Slf4j
+public class SmsProviderRouter {
+
+    private final SmsRoutingProperties properties;
+    private final List<Route> routes = new ArrayList<>();
+    private final LongSupplier clock;
+    private final MeterRegistry meterRegistry;
+    private final Counter failovers;
+
+    public SmsProviderRouter(SmsRoutingProperties properties, Map<String, SmsProvider> providers,
+                             MeterRegistry meterRegistry) {
+        this(properties, providers, meterRegistry, System::currentTimeMillis);
+    }
+
+    SmsProviderRouter(SmsRoutingProperties properties, Map<String, SmsProvider> providers,
+                      MeterRegistry meterRegistry, LongSupplier clock) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+
+        for (SmsRoutingProperties.Route route : properties.getProviders()) {
+            SmsProvider provider = providers.get(route.getName());
+            if (provider == null) {
+                throw new IllegalArgumentException("Unknown SMS provider: " + route.getName());
+            }
+            if (!provider.isConfigured()) {
+                log.warn("SMS provider {} has no credentials, leaving it out of routing", route.getName());
+                continue;
+            }
+            routes.add(new Route(provider, route.getWeight(), properties.getWindowSize()));
+        }
+        if (routes.isEmpty()) {
+            throw new IllegalStateException("No configured SMS provider in sms.routing.providers");
+        }
+
+        this.failovers = Counter.builder("sms.provider.failovers")
+                .description("Gateway calls moved to another provider after one failed")
+                .register(meterRegistry);
+        log.info("SMS routing - Providers: {}", routes.stream()
+                .map(route -> route.provider.getName() + "(" + route.weight + ")").toList());
+    }
+
+    /**
+     * Send through the preferred provider, failing over to the others.
+     * @return the first results where some recipient was not retryable, or, if
+     * every provider failed and at least one answered, the last all-retryable results
+     * @throws Exception the last provider's error if every provider failed by throwing
+     */
+    public List<SmsResult> send(String message, List<String> recipients) throws Exception {
+        List<Route> order = callOrder();
+        Exception lastError = null;
+        List<SmsResult> lastResults = null;
+        String lastFailure = null;
+
+        for (int i = 0; i < order.size(); i++) {
+            Route route = order.get(i);
+            if (i > 0) {
+                failovers.increment();
+                log.warn("SMS provider {} failed, trying {}: {}",
+                        order.get(i - 1).provider.getName(), route.provider.getName(), lastFailure);
+            }
+
+            long start = System.nanoTime();
+            try {
+                List<SmsResult> results = route.provider.send(message, recipients);
+                // Every recipient bounced: nothing went out, so it counts against the provider and fails over
+                boolean failed = !results.isEmpty()
+                        && results.stream().allMatch(result -> result.status() == SmsResult.Status.RETRYABLE);
+                record(route, System.nanoTime() - start, failed);
+                if (!failed) {
+                    return results;
+                }
+                lastResults = results;
+                lastFailure = "every recipient was retryable";
+            } catch (Exception e) {
+                record(route, System.nanoTime() - start, true);
+                lastError = e;
+                lastFailure = e.getMessage();
+            }
+        }
+        if (lastResults != null) {
+            return lastResults;
+        }
+        throw lastError;
+    }
+
+    public List<ProviderStats> getStats() {
+        long now = clock.getAsLong();
+        return routes.stream().map(route -> route.stats(now)).toList();
+    }
+
+    // Healthy providers first (the chosen one at the head), degraded ones last
+    List<Route> callOrder() {
+        long now = clock.getAsLong();
+        List<Route> healthy = new ArrayList<>();
+        List<Route> degraded = new ArrayList<>();
+        for (Route route : routes) {
+            (route.isDegraded(now) ? degraded : healthy).add(route);
+        }
+
+        if (!healthy.isEmpty()) {
+            Route chosen = pickWeighted(healthy);
+            if (chosen != null) {
+                healthy.remove(chosen);
+                healthy.add(0, chosen);
+            }
+        }
+        healthy.addAll(degraded);
+        return healthy;
+    }
+
+    // null if no healthy provider has a weight, in which case the failover order decides
+    private static Route pickWeighted(List<Route> healthy) {
+        int total = healthy.stream().mapToInt(route -> route.weight).sum();
+        if (total <= 0) {
+            return null;
+        }
+        int point = ThreadLocalRandom.current().nextInt(total);
+        for (Route route : healthy) {
+            point -= route.weight;
+            if (point < 0) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private void record(Route route, long elapsedNanos, boolean failed) {
+        Timer.builder("sms.provider.requests")
+                .tag("provider", route.provider.getName())
+                .tag("outcome", failed ? "error" : "success")
+                .description("Gateway calls per SMS provider")
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        Health health = route.record(TimeUnit.NANOSECONDS.toMillis(elapsedNanos), failed, properties.getMinCalls());
+        if (health != null && (health.errorRate > properties.getMaxErrorRate()
+                || health.p95LatencyMillis > properties.getMaxLatencyMillis())) {
+            route.degrade(clock.getAsLong() + properties.getCooldownMillis());
+            log.warn("SMS provider {} degraded for {}ms - ErrorRate: {}, p95: {}ms",
+                    route.provider.getName(), properties.getCooldownMillis(),
+                    String.format("%.2f", health.errorRate), health.p95LatencyMillis);
+        }
+    }
+
+    private record Health(double errorRate, long p95LatencyMillis) {
+    }
+
+    static final class Route {
+        private final SmsProvider provider;
+        private final int weight;
+
+        // Ring of the latest calls, guarded by this
+        private final long[] latencies;
+        private final boolean[] failures;
+        private int count;
+        private int next;
+        private long totalCalls;
+        private long totalFailures;
+        private volatile long degradedUntil;
+
+        Route(SmsProvider provider, int weight, int windowSize) {
+            this.provider = provider;
+            this.weight = weight;
+            this.latencies = new long[windowSize];
+            this.failures = new boolean[windowSize];
+        }
+
+        boolean isDegraded(long now) {
+            return now < degradedUntil;
+        }
+
+        // @return the window's health once it holds minCalls calls, otherwise null
+        synchronized Health record(long latencyMillis, boolean failed, int minCalls) {
+            latencies[next] = latencyMillis;
+            failures[next] = failed;
+            next = (next + 1) % latencies.length;
+            count = Math.min(count + 1, latencies.length);
+            totalCalls++;
+            if (failed) {
+                totalFailures++;
+            }
+            return count >= minCalls ? health() : null;
+        }
+
+        // Starts a fresh window, so the provider is judged on new calls when the cooldown ends
+        synchronized void degrade(long until) {
+            degradedUntil = until;
+            count = 0;
+            next = 0;
+        }
+
+        synchronized ProviderStats stats(long now) {
+            Health health = count > 0 ? health() : new Health(0, 0);
+            return ProviderStats.builder()
+                    .name(provider.getName())
+                    .weight(weight)
+                    .degraded(isDegraded(now))
+                    .degradedForMillis(Math.max(0, degradedUntil - now))
+                    .windowCalls(count)
+                    .errorRate(health.errorRate)
+                    .p95LatencyMillis(health.p95LatencyMillis)
+                    .totalCalls(totalCalls)
+                    .totalFailures(totalFailures)
+                    .build();
+        }
+
+        private Health health() {
+            int failed = 0;
+            for (int i = 0; i < count; i++) {
+                if (failures[i]) {
+                    failed++;
+                }
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int p95 = Math.max(0, (int) Math.ceil(0.95 * count) - 1);
+            return new Health((double) failed / count, sorted[p95]);
+        }
+    }
+
+    @Data
+    @Builder
+    public static class ProviderStats {
+        private String name;
+        private int weight;
+        private boolean degraded;
+        private long degradedForMillis;
+        // Over the recent window used for health
+        private int windowCalls;
+        private double errorRate;
+        private long p95LatencyMillis;
+        private long totalCalls;
+        private long totalFailures;
+    }
+}
@@ -0,0 +1,32 @@
+package com.taxhelp.nigerian_tax_ussd.service.sms;
+
+
+/**
+ * What a gateway said about one recipient.
+ *
+ * @param phoneNumber as submitted, not as the gateway formatted it
+ * @param messageId   the gateway's id for the message, if it took it
+ * @param detail      the gateway's own status, for logs
+ */
+public record SmsResult(String phoneNumber, Status status, String messageId, String detail) {
+
+    public enum Status {
+        ACCEPTED,
+        // Worth trying again later, e.g. a gateway-side error
+        RETRYABLE,
+        // Will not succeed on retry, e.g. an invalid number
+        FAILED
+    }
+
+    public static SmsResult accepted(String phoneNumber, String messageId, String detail) {
+        return new SmsResult(phoneNumber, Status.ACCEPTED, messageId, detail);
+    }
+
+    public static SmsResult retryable(String phoneNumber, String detail) {
+        return new SmsResult(phoneNumber, Status.RETRYABLE, null, detail);
+    }
+
+    public static SmsResult failed(String phoneNumber, String detail) {
+        return new SmsResult(phoneNumber, Status.FAILED, null, detail);
+    }
+}
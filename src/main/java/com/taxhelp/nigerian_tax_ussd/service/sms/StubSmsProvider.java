@@ -0,0 +1,53 @@
+package com.taxhelp.nigerian_tax_ussd.service.sms;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends nothing. Stands in for a real gateway in local runs and tests, with
+ * adjustable latency and failures to exercise routing and retries offline.
+ * Route to it by naming a provider {@code stub} (or {@code stub-anything}).
+ */
+@Slf4j
+@Getter
+@Setter
+public class StubSmsProvider implements SmsProvider {
+
+    private final String name;
+    private volatile long latencyMillis;
+    // Share of calls that throw, 0..1
+    private volatile double failureRate;
+    // Status every recipient gets when the call does not throw
+    private volatile SmsResult.Status status = SmsResult.Status.ACCEPTED;
+    private final AtomicLong calls = new AtomicLong();
+
+    public StubSmsProvider(String name) {
+        this.name = name;
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    @Override
+    public List<SmsResult> send(String message, List<String> recipients) throws Exception {
+        calls.incrementAndGet();
+        if (latencyMillis > 0) {
+            Thread.sleep(latencyMillis);
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IllegalStateException("Stub SMS provider " + name + " failed");
+        }
+        log.info("Stub SMS provider {} - Recipients: {}, Message: {}", name, recipients.size(), message);
+        return recipients.stream()
+                .map(recipient -> new SmsResult(recipient, status,
+                        status == SmsResult.Status.ACCEPTED ? name + "-" + calls.get() + "-" + recipient : null, "stub"))
+                .toList();
+    }
+}
@@ -0,0 +1,68 @@
+package com.taxhelp.nigerian_tax_ussd.service.sms;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.TwilioProperties;
+import com.twilio.exception.ApiException;
+import com.twilio.http.TwilioRestClient;
+import com.twilio.rest.api.v2010.account.Message;
+import com.twilio.type.PhoneNumber;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Twilio: one API call per recipient. Connection errors are thrown so the
+ * router fails over; throttling and server errors make a recipient retryable.
+ */
+@Slf4j
+@Component
+public class TwilioSmsProvider implements SmsProvider {
+
+    private final TwilioProperties twilioProperties;
+    private final TwilioRestClient client;
+
+    public TwilioSmsProvider(TwilioProperties twilioProperties) {
+        this.twilioProperties = twilioProperties;
+        this.client = isConfigured()
+                ? new TwilioRestClient.Builder(twilioProperties.getAccountSid(), twilioProperties.getAuthToken()).build()
+                : null;
+    }
+
+    @Override
+    public String getName() {
+        return "twilio";
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return StringUtils.isNoneBlank(twilioProperties.getAccountSid(),
+                twilioProperties.getAuthToken(), twilioProperties.getPhoneNumber());
+    }
+
+    @Override
+    public List<SmsResult> send(String message, List<String> recipients) {
+        PhoneNumber from = new PhoneNumber(twilioProperties.getPhoneNumber());
+        log.info("Calling Twilio SMS API - From: {}, Recipients: {}", from, recipients.size());
+
+        List<SmsResult> results = new ArrayList<>(recipients.size());
+        for (String recipient : recipients) {
+            try {
+                Message sent = Message.creator(new PhoneNumber(recipient), from, message).create(client);
+                log.info("SMS Result - Number: {}. Status: {}, MessageId: {}", recipient, sent.getStatus(), sent.getSid());
+                results.add(SmsResult.accepted(recipient, sent.getSid(), String.valueOf(sent.getStatus())));
+            } catch (ApiException e) {
+                Integer status = e.getStatusCode();
+                log.error("SMS failed to {}: {} ({})", recipient, e.getMessage(), status);
+                if (status == null || status == 429 || status >= 500) {
+                    results.add(SmsResult.retryable(recipient, e.getMessage()));
+                } else {
+                    results.add(SmsResult.failed(recipient, e.getMessage()));
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,119 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.QuestionBudgetProperties;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionJob;
+import com.taxhelp.nigerian_tax_ussd.service.pipeline.PipelineStage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Every question gets {@code totalMillis} from submission to get its answer
+ * out. Each stage may use what is left of that, capped by its own limit, and
+ * is cancelled when the time is up. Time spent waiting in a queue or stream
+ * counts too, as the caller is waiting all the same. A job recovered from a
+ * dead consumer gets a fresh budget ({@link #restart}), as it could only be
+ * reclaimed after sitting idle for longer than the budget.
+ * <p>
+ * How much of its allotment each stage used is recorded, to tune the limits.
+ */
+@Component
+public class DeadlineBudget {
+
+    // The question's overall budget ran out during (or before) this stage
+    @Getter
+    public static class ExceededException extends RuntimeException {
+        private final PipelineStage stage;
+
+        public ExceededException(PipelineStage stage) {
+            super("Question deadline exceeded in stage " + stage.getStreamName());
+            this.stage = stage;
+        }
+    }
+
+    private final QuestionBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public DeadlineBudget(QuestionBudgetProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public long remainingMillis(QuestionJob job) {
+        if (!properties.getEnabled()) {
+            return Long.MAX_VALUE;
+        }
+        return job.budgetStartedAt() + properties.getTotalMillis() - System.currentTimeMillis();
+    }
+
+    // Give the job a full budget again from now
+    public void restart(QuestionJob job) {
+        job.setBudgetStartTime(System.currentTimeMillis());
+    }
+
+    /**
+     * Run one attempt of a stage within its allotment. Fails with
+     * {@link ExceededException} if the overall budget is (or runs) out, and
+     * with a {@link TimeoutException} if only the stage limit was hit.
+     */
+    public <T> Mono<T> run(PipelineStage stage, QuestionJob job, Supplier<Mono<T>> work) {
+        return Mono.defer(() -> {
+            long remaining = remainingMillis(job);
+            if (remaining <= 0) {
+                exhausted(stage).increment();
+                return Mono.error(new ExceededException(stage));
+            }
+            long stageLimit = properties.getStageMillis().getOrDefault(stage.getStreamName(), properties.getDefaultStageMillis());
+            long allotted = Math.min(remaining, stageLimit);
+            boolean budgetBound = remaining <= stageLimit;
+            long started = System.nanoTime();
+
+            Mono<T> expired = Mono.defer(() -> Mono.error(budgetBound
+                    ? new ExceededException(stage)
+                    : new TimeoutException("Stage " + stage.getStreamName() + " took longer than " + stageLimit + "ms")));
+
+            return work.get()
+                    .timeout(Duration.ofMillis(allotted), expired)
+                    .doOnSuccess(value -> record(stage, "ok", started, allotted))
+                    .doOnError(e -> {
+                        if (e instanceof ExceededException) {
+                            exhausted(stage).increment();
+                        }
+                        record(stage, e instanceof ExceededException || e instanceof TimeoutException ? "timeout" : "error",
+                                started, allotted);
+                    });
+        });
+    }
+
+    private void record(PipelineStage stage, String outcome, long startedNanos, long allottedMillis) {
+        long elapsedNanos = System.nanoTime() - startedNanos;
+        Timer.builder("question.stage.duration")
+                .tag("stage", stage.getStreamName())
+                .tag("outcome", outcome)
+                .description("Time spent in each answer pipeline stage")
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("question.stage.budget.used")
+                .tag("stage", stage.getStreamName())
+                .description("Fraction of its allotted time a stage used")
+                .register(meterRegistry)
+                .record((double) TimeUnit.NANOSECONDS.toMillis(elapsedNanos) / allottedMillis);
+    }
+
+    private Counter exhausted(PipelineStage stage) {
+        return Counter.builder("question.budget.exhausted")
+                .tag("stage", stage.getStreamName())
+                .description("Questions whose deadline ran out in this stage")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,290 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-instance rate limiter that does not allocate on the request path.
+ * <p>
+ * Phone numbers are parsed to a {@code long} and kept in open-addressing
+ * tables of primitive arrays, split into segments that are each guarded by
+ * their own lock, so the check and the increment happen atomically. Each
+ * number has a daily counter and a ring of six 10-minute buckets for a
+ * sliding hourly window. Expired entries are not swept: a probe that passes
+ * one reuses it in place, and a segment that fills up is compacted while it
+ * is being resized.
+ */
+public final class LocalRateLimiter {
+
+    // Results of tryAcquire other than the new daily count
+    public static final int REJECTED_DAILY = -1;
+    public static final int REJECTED_HOURLY = -2;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int BUCKETS = 6;
+    private static final long BUCKET_MILLIS = 10 * 60 * 1000L;
+    private static final int SEGMENT_BITS = 6;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int maxPerDay;
+    private final int maxPerHour;
+    private final ZoneId zone;
+    private final LongSupplier clock;
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    private volatile Day day;
+
+    public LocalRateLimiter(int maxPerDay, int maxPerHour, ZoneId zone) {
+        this(maxPerDay, maxPerHour, zone, System::currentTimeMillis);
+    }
+
+    LocalRateLimiter(int maxPerDay, int maxPerHour, ZoneId zone, LongSupplier clock) {
+        this.maxPerDay = maxPerDay;
+        this.maxPerHour = maxPerHour;
+        this.zone = zone;
+        this.clock = clock;
+        this.day = dayAt(clock.getAsLong());
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Count the request if both limits allow it.
+     * @return the number's request count for today including this one,
+     * or {@link #REJECTED_DAILY} / {@link #REJECTED_HOURLY}
+     */
+    public int tryAcquire(String phoneNumber) {
+        long key = key(phoneNumber);
+        long hash = mix(key);
+        long now = clock.getAsLong();
+        int today = today(now);
+        int bucket = (int) (now / BUCKET_MILLIS);
+
+        Segment segment = segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+        synchronized (segment) {
+            return segment.tryAcquire(key, (int) hash, today, bucket);
+        }
+    }
+
+    public int getDailyCount(String phoneNumber) {
+        long key = key(phoneNumber);
+        long hash = mix(key);
+        int today = today(clock.getAsLong());
+
+        Segment segment = segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+        synchronized (segment) {
+            return segment.dailyCount(key, (int) hash, today);
+        }
+    }
+
+    // Numbers currently held, including expired entries not yet reused
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.used;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Digits of the number tagged with their count, so "0801..." and "801..."
+     * stay distinct. Anything that is not a phone number is hashed into the
+     * negative range, which parsed numbers never use.
+     */
+    static long key(String phoneNumber) {
+        long value = 0;
+        int digits = 0;
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits++;
+            }
+        }
+        if (digits > 0 && digits <= 17) {
+            return ((long) digits << 57) | value;
+        }
+
+        long hash = 1125899906842597L;
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            hash = 31 * hash + phoneNumber.charAt(i);
+        }
+        hash = mix(hash) | Long.MIN_VALUE;
+        return hash == EMPTY ? EMPTY + 1 : hash;
+    }
+
+    // Only allocates when the day rolls over
+    private int today(long now) {
+        Day current = day;
+        if (now < current.start || now >= current.end) {
+            current = dayAt(now);
+            day = current;
+        }
+        return current.epochDay;
+    }
+
+    private Day dayAt(long now) {
+        LocalDate date = Instant.ofEpochMilli(now).atZone(zone).toLocalDate();
+        return new Day((int) date.toEpochDay(),
+                date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+    }
+
+    // 64-bit finalizer from MurmurHash3
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    private record Day(int epochDay, long start, long end) {
+    }
+
+    /**
+     * One open-addressing table. Slot i holds keys[i], days[i] packed as
+     * (epochDay << 32 | count) and BUCKETS entries in buckets[] packed as
+     * (bucketNumber << 32 | count). Callers hold the segment's monitor.
+     */
+    private final class Segment {
+        private long[] keys;
+        private long[] days;
+        private long[] buckets;
+        private int used;
+
+        Segment() {
+            allocate(INITIAL_CAPACITY);
+        }
+
+        int tryAcquire(long key, int hash, int today, int bucket) {
+            int slot = findOrClaim(key, hash, today, bucket);
+
+            long dayEntry = days[slot];
+            int dailyCount = (int) (dayEntry >>> 32) == today ? (int) dayEntry : 0;
+            if (dailyCount >= maxPerDay) {
+                return REJECTED_DAILY;
+            }
+            if (hourlyCount(slot, bucket) >= maxPerHour) {
+                return REJECTED_HOURLY;
+            }
+
+            dailyCount++;
+            days[slot] = ((long) today << 32) | dailyCount;
+
+            int index = slot * BUCKETS + bucket % BUCKETS;
+            long bucketEntry = buckets[index];
+            int bucketCount = (int) (bucketEntry >>> 32) == bucket ? (int) bucketEntry : 0;
+            buckets[index] = ((long) bucket << 32) | (bucketCount + 1);
+            return dailyCount;
+        }
+
+        int dailyCount(long key, int hash, int today) {
+            int mask = keys.length - 1;
+            for (int slot = hash & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    long dayEntry = days[slot];
+                    return (int) (dayEntry >>> 32) == today ? (int) dayEntry : 0;
+                }
+            }
+            return 0;
+        }
+
+        private int findOrClaim(long key, int hash, int today, int bucket) {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            int reusable = -1;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                // Keep probing in case the key is further along, but remember the first expired slot
+                if (reusable < 0 && isExpired(slot, today, bucket)) {
+                    reusable = slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            if (reusable >= 0) {
+                keys[reusable] = key;
+                clear(reusable);
+                return reusable;
+            }
+            if (used + 1 > keys.length * 3 / 4) {
+                rebuild(today, bucket);
+                return findOrClaim(key, hash, today, bucket);
+            }
+            keys[slot] = key;
+            used++;
+            return slot;
+        }
+
+        private int hourlyCount(int slot, int bucket) {
+            int count = 0;
+            for (int i = slot * BUCKETS, end = i + BUCKETS; i < end; i++) {
+                long entry = buckets[i];
+                if ((int) (entry >>> 32) > bucket - BUCKETS) {
+                    count += (int) entry;
+                }
+            }
+            return count;
+        }
+
+        // Nothing counted today and nothing in the hourly window: same as never seen
+        private boolean isExpired(int slot, int today, int bucket) {
+            return (int) (days[slot] >>> 32) != today && hourlyCount(slot, bucket) == 0;
+        }
+
+        private void clear(int slot) {
+            days[slot] = 0;
+            Arrays.fill(buckets, slot * BUCKETS, slot * BUCKETS + BUCKETS, 0);
+        }
+
+        // Drop expired entries, doubling the table only if at least half of it is still live
+        private void rebuild(int today, int bucket) {
+            long[] oldKeys = keys;
+            long[] oldDays = days;
+            long[] oldBuckets = buckets;
+
+            int live = 0;
+            boolean[] keep = new boolean[oldKeys.length];
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                keep[slot] = oldKeys[slot] != EMPTY && !isExpired(slot, today, bucket);
+                if (keep[slot]) {
+                    live++;
+                }
+            }
+
+            allocate(live * 2 >= oldKeys.length ? oldKeys.length * 2 : oldKeys.length);
+            int mask = keys.length - 1;
+            for (int old = 0; old < oldKeys.length; old++) {
+                if (!keep[old]) {
+                    continue;
+                }
+                int slot = (int) mix(oldKeys[old]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[old];
+                days[slot] = oldDays[old];
+                System.arraycopy(oldBuckets, old * BUCKETS, buckets, slot * BUCKETS, BUCKETS);
+                used++;
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            days = new long[capacity];
+            buckets = new long[capacity * BUCKETS];
+            used = 0;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects concurrent requests that share a key for a short window (or until
+ * {@code maxBatchSize} distinct items arrive), sends them as one batch call
+ * and fans the results back out to each caller's future. Equal items in the
+ * same batch are sent once and share the result.
+ *
+ * @param <K> batch key, e.g. a language pair
+ * @param <I> request item
+ * @param <O> result for one item
+ */
+@Slf4j
+public class MicroBatcher<K, I, O> implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface BatchFunction<K, I, O> {
+        // Must return exactly one result per item, in the same order
+        CompletableFuture<List<O>> apply(K key, List<I> items);
+    }
+
+    private final String name;
+    private final BatchFunction<K, I, O> batchFunction;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final DistributionSummary batchSizes;
+    private final Counter duplicates;
+    private final Map<K, Batch> pending = new ConcurrentHashMap<>();
+
+    public MicroBatcher(String name, long windowMillis, int maxBatchSize,
+                        BatchFunction<K, I, O> batchFunction, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.batchFunction = batchFunction;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name(name + "-batcher").daemon().factory());
+        this.batchSizes = DistributionSummary.builder("batcher.batch.size")
+                .tag("name", name)
+                .description("Items sent per batch call")
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("batcher.items.deduplicated")
+                .tag("name", name)
+                .description("Items that shared a result with an equal item in the same batch")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<O> submit(K key, I item) {
+        CompletableFuture<O> future = new CompletableFuture<>();
+        List<Batch> full = new ArrayList<>(1);
+
+        pending.compute(key, (k, batch) -> {
+            if (batch == null) {
+                Batch created = new Batch(k);
+                scheduler.schedule(() -> flushIfPending(created), windowMillis, TimeUnit.MILLISECONDS);
+                batch = created;
+            }
+            List<CompletableFuture<O>> waiters = batch.waiters.get(item);
+            if (waiters != null) {
+                waiters.add(future);
+                duplicates.increment();
+                return batch;
+            }
+            batch.waiters.put(item, new ArrayList<>(List.of(future)));
+            if (batch.waiters.size() >= maxBatchSize) {
+                full.add(batch);
+                return null;
+            }
+            return batch;
+        });
+
+        if (!full.isEmpty()) {
+            dispatch(full.get(0));
+        }
+        return future;
+    }
+
+    // Send everything still waiting, e.g. on shutdown
+    @Override
+    public void close() {
+        pending.values().forEach(this::flushIfPending);
+        scheduler.shutdown();
+    }
+
+    private void flushIfPending(Batch batch) {
+        // Already sent if it filled up before the window closed
+        if (pending.remove(batch.key, batch)) {
+            dispatch(batch);
+        }
+    }
+
+    private void dispatch(Batch batch) {
+        List<I> items = new ArrayList<>(batch.waiters.keySet());
+        batchSizes.record(items.size());
+        log.debug("Batcher {} sending {} item(s) for {}", name, items.size(), batch.key);
+
+        CompletableFuture<List<O>> results;
+        try {
+            results = batchFunction.apply(batch.key, items);
+        } catch (Exception e) {
+            results = CompletableFuture.failedFuture(e);
+        }
+
+        results.whenComplete((values, error) -> {
+            if (error == null && (values == null || values.size() != items.size())) {
+                error = new IllegalStateException("Batch " + name + " returned "
+                        + (values == null ? 0 : values.size()) + " results for " + items.size() + " items");
+            }
+            for (int i = 0; i < items.size(); i++) {
+                for (CompletableFuture<O> future : batch.waiters.get(items.get(i))) {
+                    if (error != null) {
+                        future.completeExceptionally(error);
+                    } else {
+                        future.complete(values.get(i));
+                    }
+                }
+            }
+        });
+    }
+
+    private class Batch {
+        private final K key;
+        // Distinct items in arrival order, each with the callers waiting on it
+        private final Map<I, List<CompletableFuture<O>>> waiters = new LinkedHashMap<>();
+
+        Batch(K key) {
+            this.key = key;
+        }
+    }
+}
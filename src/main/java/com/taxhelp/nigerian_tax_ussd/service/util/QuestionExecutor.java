@@ -0,0 +1,110 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+
+import com.taxhelp.nigerian_tax_ussd.config.QuestionExecutorProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs submitted questions on virtual threads.
+ * At most {@code maxInFlight} questions run at once, up to {@code queueCapacity}
+ * wait for a slot, and anything beyond that is rejected instead of piling up.
+ */
+@Slf4j
+@Component
+public class QuestionExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final QuestionExecutorProperties properties;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public QuestionExecutor(QuestionExecutorProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.executor = new ThreadPoolExecutor(
+                properties.getMaxInFlight(),
+                properties.getMaxInFlight(),
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(properties.getQueueCapacity()),
+                Thread.ofVirtual().name("question-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("question.executor.queue.size", executor, e -> e.getQueue().size())
+                .description("Questions waiting for a processing slot")
+                .register(meterRegistry);
+        Gauge.builder("question.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Questions currently being processed")
+                .register(meterRegistry);
+        FunctionCounter.builder("question.executor.rejected", rejectedCount, AtomicLong::get)
+                .description("Questions shed because the executor was full")
+                .register(meterRegistry);
+
+        log.info("Question executor started - MaxInFlight: {}, QueueCapacity: {}",
+                properties.getMaxInFlight(), properties.getQueueCapacity());
+    }
+
+    /**
+     * Submit a question for processing.
+     * @return true if accepted, false if the executor is full and the work was shed
+     */
+    public boolean submit(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            long rejected = rejectedCount.incrementAndGet();
+            log.warn("Question executor full - shedding work (Active: {}, Queued: {}, Rejected total: {})",
+                    executor.getActiveCount(), executor.getQueue().size(), rejected);
+            return false;
+        }
+    }
+
+    public ExecutorStats getStats() {
+        return ExecutorStats.builder()
+                .activeTasks(executor.getActiveCount())
+                .queueSize(executor.getQueue().size())
+                .queueCapacity(properties.getQueueCapacity())
+                .maxInFlight(properties.getMaxInFlight())
+                .completedTasks(executor.getCompletedTaskCount())
+                .rejectedTasks(rejectedCount.get())
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down question executor - Active: {}, Queued: {}",
+                executor.getActiveCount(), executor.getQueue().size());
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(properties.getShutdownTimeoutSeconds(), TimeUnit.SECONDS)) {
+                log.warn("Question executor did not drain in {}s, {} questions dropped",
+                        properties.getShutdownTimeoutSeconds(), executor.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Data
+    @Builder
+    public static class ExecutorStats {
+        private int activeTasks;
+        private int queueSize;
+        private int queueCapacity;
+        private int maxInFlight;
+        private long completedTasks;
+        private long rejectedTasks;
+    }
+}
@@ -1,29 +1,33 @@
 package com.taxhelp.nigerian_tax_ussd.service.util;
 
 
+import com.taxhelp.nigerian_tax_ussd.config.RateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.time.ZoneId;
 
 @Service
 @Slf4j
 public class RateLimiterService {
 
-    // Store: "phoneNumber_date" -> count
-    private final Map<String, AtomicInteger> dailyRequestCounts = new ConcurrentHashMap<>();
-    private final Map<String, LocalDateTime> lastCleanupTime = new ConcurrentHashMap<>();
-
-    // Configuration
-    private static final int MAX_REQUESTS_PER_DAY = 50;
-    private static final int MAX_REQUESTS_PER_HOUR = 15;
-
-    // Store hourly counts: "phoneNumber_date_hour" -> count
-    private final Map<String, AtomicInteger> hourlyRequestCounts = new ConcurrentHashMap<>();
+    private final RateLimitProperties properties;
+    private final RedisRateLimiter redisRateLimiter;
+    private final LocalRateLimiter localRateLimiter;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimiterService(RateLimitProperties properties, RedisRateLimiter redisRateLimiter,
+                              MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.redisRateLimiter = redisRateLimiter;
+        this.meterRegistry = meterRegistry;
+        this.localRateLimiter = new LocalRateLimiter(
+                properties.getMaxRequestsPerDay(),
+                properties.getMaxRequestsPerHour(),
+                ZoneId.of(properties.getZone()));
+    }
 
     /**
      * Check if the user has exceeded their rate limit
@@ -31,27 +35,38 @@ public class RateLimiterService {
      * @return true if within limit, false if exceeded
      */
     public boolean allowRequest(String phoneNumber) {
-        cleanupOldEntries();
+        if (useRedis()) {
+            try {
+                RedisRateLimiter.Decision decision = redisRateLimiter.tryAcquire(phoneNumber);
+                if (!decision.isAllowed()) {
+                    log.warn("{} rate limit exceeded for: {}",
+                            decision.isDailyLimitReached() ? "Daily" : "Hourly", phoneNumber);
+                    rejected(decision.isDailyLimitReached() ? "daily" : "hourly", "redis");
+                }
+                return decision.isAllowed();
+            } catch (Exception e) {
+                // Per-instance limits are better than none while Redis is down
+                log.warn("Shared rate limiter unavailable, using local limits: {}", e.getMessage());
+            }
+        }
 
-        // Check daily limimt
-        if (!checkDailyLimit(phoneNumber)){
+        // Check and increment in one step
+        int dailyCount = localRateLimiter.tryAcquire(phoneNumber);
+        if (dailyCount == LocalRateLimiter.REJECTED_DAILY) {
             log.warn("Daily rate limit exceeded for: {}", phoneNumber);
+            rejected("daily", "local");
             return false;
         }
-
-        // Check hourly limit
-        if (!checkHourlyLimit(phoneNumber)){
+        if (dailyCount == LocalRateLimiter.REJECTED_HOURLY) {
             log.warn("Hourly rate limit exceeded for: {}", phoneNumber);
+            rejected("hourly", "local");
             return false;
         }
 
-        // Increment counters
-        incrementCounters(phoneNumber);
-
         log.info("Rate limit check passed for: {} (Daily: {}/{})",
                 phoneNumber,
-                getDailyCount(phoneNumber),
-                MAX_REQUESTS_PER_DAY);
+                dailyCount,
+                properties.getMaxRequestsPerDay());
 
         return true;
     }
@@ -60,85 +75,31 @@ public class RateLimiterService {
      * Get remaining requests for a phone number today
      */
     public int getRemainingRequests(String phoneNumber) {
-        int dailyCount = getDailyCount(phoneNumber);
-        return Math.max(0, MAX_REQUESTS_PER_DAY - dailyCount);
-    }
-
-
-    private String getHourlyKey(String phoneNumber) {
-        LocalDateTime now = LocalDateTime.now();
-        return phoneNumber + "_" + now.toLocalDate() + "_" + now.getHour();
-    }
-
-    private String getDailyKey(String phoneNumber) {
-        return phoneNumber + "_" + LocalDate.now();
-    }
-
-    private boolean checkHourlyLimit(String phoneNumber) {
-        int count = getHourlyCount(phoneNumber);
-        return count < MAX_REQUESTS_PER_HOUR;
-    }
-
-    private int getHourlyCount(String phoneNumber) {
-        String hourlyKey = getHourlyKey(phoneNumber);
-        AtomicInteger count = hourlyRequestCounts.get(hourlyKey);
-        return count != null ? count.get() : 0;
-    }
-
-    private boolean checkDailyLimit(String phoneNumber) {
-        int count =  getDailyCount(phoneNumber);
-        return count < MAX_REQUESTS_PER_DAY;
-    }
-
-    private int getDailyCount(String phoneNumber) {
-        String dailyKey = getDailyKey(phoneNumber);
-        AtomicInteger count = dailyRequestCounts.get(dailyKey);
-        return count != null ? count.get() : 0;
+        int dailyCount = -1;
+        if (useRedis()) {
+            try {
+                dailyCount = redisRateLimiter.getDailyCount(phoneNumber);
+            } catch (Exception e) {
+                log.warn("Shared rate limiter unavailable, using local count: {}", e.getMessage());
+            }
+        }
+        if (dailyCount < 0) {
+            dailyCount = localRateLimiter.getDailyCount(phoneNumber);
+        }
+        return Math.max(0, properties.getMaxRequestsPerDay() - dailyCount);
     }
 
-    private void incrementCounters(String phoneNumber) {
-        // Increment daily counter
-        String dailyKey = getDailyKey(phoneNumber);
-        dailyRequestCounts.computeIfAbsent(dailyKey, k -> new AtomicInteger(0))
-                .incrementAndGet();
-
-        // Increment hourly counter
-        String hourlyKey = getHourlyKey(phoneNumber);
-        hourlyRequestCounts.computeIfAbsent(hourlyKey, k -> new AtomicInteger(0))
-                .incrementAndGet();
+    private boolean useRedis() {
+        return "redis".equalsIgnoreCase(properties.getStore());
     }
 
-    /**
-     * Clean up old entries to prevent memory leaks
-     */
-    private void cleanupOldEntries() {
-        LocalDateTime now = LocalDateTime.now();
-        String cleanupKey = "cleanup";
-
-        LocalDateTime lastCleanup = lastCleanupTime.get(cleanupKey);
-
-        // Only cleanup once per hour
-        if (lastCleanup != null && lastCleanup.plusHours(1).isAfter(now)) {
-            return;
-        }
-
-        log.info("Cleaning up old rate limit entries...");
-
-        // Remove entries older than 2 days
-        String twoDaysAgo = LocalDate.now().minusDays(2).toString();
-        dailyRequestCounts.keySet().removeIf(key -> key.contains(twoDaysAgo));
-
-        // Remove hourly entries older than 2 hours
-        int twoHoursAgo = now.minusHours(2).getHour();
-        hourlyRequestCounts.keySet().removeIf(key ->
-                key.contains("_" + twoHoursAgo + "_") ||
-                        key.contains(twoDaysAgo)
-        );
-
-        lastCleanupTime.put(cleanupKey, now);
-
-        log.info("Cleanup complete. Daily entries: {}, Hourly entries: {}",
-                dailyRequestCounts.size(),
-                hourlyRequestCounts.size());
+    // limiter: redis when the shared limit decided, local when it was unavailable or disabled
+    private void rejected(String limit, String limiter) {
+        Counter.builder("rate.limit.rejections")
+                .tag("limit", limit)
+                .tag("limiter", limiter)
+                .description("Questions refused by the per-phone rate limit")
+                .register(meterRegistry)
+                .increment();
     }
 }
@@ -0,0 +1,140 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.taxhelp.nigerian_tax_ussd.config.RateLimitProperties;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Rate limits shared by every instance. The daily counter (calendar day) and
+ * the hourly sliding window (sorted set of request times) are checked and
+ * incremented by one Lua script, so a request costs a single round trip and
+ * concurrent requests for the same number cannot both slip under the limit.
+ * <p>
+ * Numbers that hit a limit are remembered locally until the limit resets, so
+ * repeated dials from a blocked number never reach Redis.
+ */
+@Slf4j
+@Component
+public class RedisRateLimiter {
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RATE_LIMIT_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/rate_limit.lua"), List.class);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final RateLimitProperties properties;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ZoneId zone;
+    // phone number -> when its current block ends
+    private final Cache<String, Block> blockedNumbers;
+
+    public RedisRateLimiter(RateLimitProperties properties, RedisTemplate<String, Object> redisTemplate) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.zone = ZoneId.of(properties.getZone());
+        this.blockedNumbers = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalBlockCacheSize())
+                .expireAfterWrite(Duration.ofDays(1))
+                .build();
+    }
+
+    /**
+     * Check the limits and count the request if it is allowed.
+     * Throws if Redis cannot be reached so the caller can fall back.
+     */
+    public Decision tryAcquire(String phoneNumber) {
+        long now = System.currentTimeMillis();
+        Block block = blockedNumbers.getIfPresent(phoneNumber);
+        if (block != null) {
+            if (block.until() > now) {
+                return new Decision(false, block.daily(), block.until());
+            }
+            blockedNumbers.invalidate(phoneNumber);
+        }
+
+        // Plain string arguments; the script only returns integers
+        StringRedisSerializer serializer = StringRedisSerializer.UTF_8;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<Long> result = redisTemplate.execute(RATE_LIMIT_SCRIPT, serializer, (RedisSerializer) serializer,
+                List.of(dailyKey(phoneNumber), hourlyKey(phoneNumber)),
+                String.valueOf(now),
+                String.valueOf(properties.getMaxRequestsPerDay()),
+                String.valueOf(properties.getMaxRequestsPerHour()),
+                String.valueOf(secondsUntilTomorrow() + 3600),
+                UUID.randomUUID().toString());
+
+        if (result == null || result.size() < 4) {
+            throw new IllegalStateException("Unexpected rate limit script result: " + result);
+        }
+        if (result.get(0) == 1L) {
+            return new Decision(true, false, 0);
+        }
+
+        boolean daily = result.get(2) == 1L;
+        long until = daily ? startOfTomorrow() : result.get(3);
+        blockedNumbers.put(phoneNumber, new Block(until, daily));
+        return new Decision(false, daily, until);
+    }
+
+    public int getDailyCount(String phoneNumber) {
+        Block block = blockedNumbers.getIfPresent(phoneNumber);
+        if (block != null && block.daily() && block.until() > System.currentTimeMillis()) {
+            return properties.getMaxRequestsPerDay();
+        }
+
+        byte[] key = dailyKey(phoneNumber).getBytes(StandardCharsets.UTF_8);
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(key));
+        return value == null ? 0 : Integer.parseInt(new String(value, StandardCharsets.UTF_8));
+    }
+
+    // Hash tag keeps both keys of a number in the same cluster slot
+    private String dailyKey(String phoneNumber) {
+        return properties.getKeyPrefix() + "{" + phoneNumber + "}:day:" + LocalDate.now(zone).format(DAY_FORMAT);
+    }
+
+    private String hourlyKey(String phoneNumber) {
+        return properties.getKeyPrefix() + "{" + phoneNumber + "}:hour";
+    }
+
+    private long startOfTomorrow() {
+        return LocalDate.now(zone).plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private long secondsUntilTomorrow() {
+        return Duration.between(ZonedDateTime.now(zone).toInstant(),
+                LocalDate.now(zone).plusDays(1).atStartOfDay(zone).toInstant()).toSeconds();
+    }
+
+    private record Block(long until, boolean daily) {
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Decision {
+        private final boolean allowed;
+        private final boolean dailyLimitReached;
+        // When a rejected number may try again (epoch ms)
+        private final long retryAt;
+    }
+}
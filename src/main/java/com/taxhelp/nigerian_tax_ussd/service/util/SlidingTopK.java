@@ -0,0 +1,85 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Most frequent keys over a sliding time window, in fixed memory. The window
+ * is a ring of {@code buckets} {@link SpaceSaving} sketches, each covering
+ * {@code bucketMillis}; the oldest is cleared and reused as time moves on, and
+ * queries merge the live ones.
+ */
+public class SlidingTopK<K> {
+
+    private final long bucketMillis;
+    private final LongSupplier clock;
+    private final SpaceSaving<K>[] sketches;
+    private final long[] bucketEpochs;
+
+    public SlidingTopK(int buckets, long bucketMillis, int capacity) {
+        this(buckets, bucketMillis, capacity, System::currentTimeMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    SlidingTopK(int buckets, long bucketMillis, int capacity, LongSupplier clock) {
+        this.bucketMillis = bucketMillis;
+        this.clock = clock;
+        this.sketches = new SpaceSaving[buckets];
+        this.bucketEpochs = new long[buckets];
+        for (int i = 0; i < buckets; i++) {
+            sketches[i] = new SpaceSaving<>(capacity);
+            bucketEpochs[i] = -1;
+        }
+    }
+
+    public synchronized void offer(K key) {
+        long epoch = clock.getAsLong() / bucketMillis;
+        int index = (int) (epoch % sketches.length);
+        if (bucketEpochs[index] != epoch) {
+            sketches[index].clear();
+            bucketEpochs[index] = epoch;
+        }
+        sketches[index].offer(key, 1);
+    }
+
+    /**
+     * The {@code limit} most frequent keys in the window, most frequent first.
+     * A count may be over by up to its error, or under if the key was dropped
+     * from a busy bucket; both only matter for keys near the tracking limit.
+     */
+    public synchronized List<SpaceSaving.Entry<K>> top(int limit) {
+        long oldestLive = clock.getAsLong() / bucketMillis - sketches.length;
+        Map<K, long[]> merged = new HashMap<>();
+        for (int i = 0; i < sketches.length; i++) {
+            if (bucketEpochs[i] > oldestLive) {
+                for (SpaceSaving.Entry<K> entry : sketches[i].entries()) {
+                    long[] totals = merged.computeIfAbsent(entry.key(), k -> new long[2]);
+                    totals[0] += entry.count();
+                    totals[1] += entry.error();
+                }
+            }
+        }
+
+        List<SpaceSaving.Entry<K>> top = new ArrayList<>(merged.size());
+        merged.forEach((key, totals) -> top.add(new SpaceSaving.Entry<>(key, totals[0], totals[1])));
+        top.sort(Comparator.comparingLong(SpaceSaving.Entry<K>::count).reversed());
+        return top.size() > limit ? new ArrayList<>(top.subList(0, limit)) : top;
+    }
+
+    // Everything offered in the window, tracked or not
+    public synchronized long total() {
+        long oldestLive = clock.getAsLong() / bucketMillis - sketches.length;
+        long total = 0;
+        for (int i = 0; i < sketches.length; i++) {
+            if (bucketEpochs[i] > oldestLive) {
+                total += sketches[i].total();
+            }
+        }
+        return total;
+    }
+}
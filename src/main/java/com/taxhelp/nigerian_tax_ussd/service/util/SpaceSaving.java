@@ -0,0 +1,139 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy hitters: approximate counts for the most frequent keys
+ * of a stream in a fixed number of counters. When every counter is taken, the
+ * key with the smallest count is replaced and the newcomer inherits its count
+ * as possible overcount ({@code error}). Any key seen more than
+ * {@code total / capacity} times is guaranteed to be tracked.
+ * <p>
+ * Counters are kept in an indexed min-heap, so each update is O(log capacity).
+ * Not thread safe.
+ */
+public class SpaceSaving<K> {
+
+    public record Entry<K>(K key, long count, long error) {
+    }
+
+    private final int capacity;
+    private final Object[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<K, Integer> positions;
+    private int size;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.keys = new Object[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    public void offer(K key, long weight) {
+        total += weight;
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += weight;
+            siftDown(position);
+        } else if (size < capacity) {
+            keys[size] = key;
+            counts[size] = weight;
+            errors[size] = 0;
+            positions.put(key, size);
+            siftUp(size++);
+        } else {
+            // Evict the smallest counter; the newcomer may have been seen up to that many times
+            positions.remove(keys[0]);
+            long evicted = counts[0];
+            keys[0] = key;
+            counts[0] = evicted + weight;
+            errors[0] = evicted;
+            positions.put(key, 0);
+            siftDown(0);
+        }
+    }
+
+    // Tracked keys in no particular order
+    @SuppressWarnings("unchecked")
+    public List<Entry<K>> entries() {
+        List<Entry<K>> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new Entry<>((K) keys[i], counts[i], errors[i]));
+        }
+        return entries;
+    }
+
+    // Sum of all weights offered, tracked or not
+    public long total() {
+        return total;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        positions.clear();
+        for (int i = 0; i < size; i++) {
+            keys[i] = null;
+        }
+        size = 0;
+        total = 0;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (counts[parent] <= counts[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void swap(int a, int b) {
+        Object key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+        long error = errors[a];
+        errors[a] = errors[b];
+        errors[b] = error;
+        positions.put((K) keys[a], a);
+        positions.put((K) keys[b], b);
+    }
+}
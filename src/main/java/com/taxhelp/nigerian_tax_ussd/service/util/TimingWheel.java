@@ -0,0 +1,147 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Hashed timing wheel: timers are dropped into one of {@code wheelSize}
+ * buckets by deadline, and a single thread advancing one tick at a time hands
+ * whatever is due to {@code onExpire}. Scheduling and cancelling cost O(1)
+ * however many timers are pending, unlike one scheduled task per timer.
+ * Timers fire up to one tick late.
+ *
+ * @param <T> what is handed back when a timer fires, e.g. a session id
+ */
+@Slf4j
+public class TimingWheel<T> implements AutoCloseable {
+
+    public interface Timeout {
+        // Stop the timer if it has not fired yet
+        void cancel();
+    }
+
+    private final String name;
+    private final long tickMillis;
+    private final int mask;
+    private final List<Timer<T>>[] buckets;
+    private final LongSupplier clock;
+    private final Consumer<T> onExpire;
+    private final ScheduledExecutorService ticker;
+
+    // Last tick processed; guarded by this
+    private long currentTick;
+    private int pending;
+
+    public TimingWheel(String name, long tickMillis, int wheelSize, Consumer<T> onExpire) {
+        this(name, tickMillis, wheelSize, System::currentTimeMillis, onExpire);
+    }
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(String name, long tickMillis, int wheelSize, LongSupplier clock, Consumer<T> onExpire) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+        }
+        // Power of two so the bucket is a mask instead of a modulo
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.name = name;
+        this.tickMillis = tickMillis;
+        this.mask = Math.max(size, 1) - 1;
+        this.buckets = new List[mask + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.clock = clock;
+        this.onExpire = onExpire;
+        this.currentTick = clock.getAsLong() / tickMillis;
+
+        this.ticker = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name(name + "-wheel").daemon().factory());
+        ticker.scheduleAtFixedRate(() -> advance(clock.getAsLong()), tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Timeout schedule(T item, long delayMillis) {
+        long deadline = clock.getAsLong() + Math.max(0, delayMillis);
+        synchronized (this) {
+            long deadlineTick = Math.max(currentTick + 1, (deadline + tickMillis - 1) / tickMillis);
+            Timer<T> timer = new Timer<>(item, deadlineTick);
+            buckets[(int) (deadlineTick & mask)].add(timer);
+            pending++;
+            return timer;
+        }
+    }
+
+    // Timers not yet fired (cancelled ones are counted until their bucket comes round)
+    public synchronized int size() {
+        return pending;
+    }
+
+    /**
+     * Fire every timer due by {@code nowMillis}. Called by the wheel's own
+     * thread each tick; callable directly to drive the wheel from a test clock.
+     */
+    public void advance(long nowMillis) {
+        List<T> due = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = nowMillis / tickMillis;
+            if (targetTick <= currentTick) {
+                return;
+            }
+            // After a long pause every bucket is visited once rather than once per missed tick
+            long firstTick = Math.max(currentTick + 1, targetTick - mask);
+            for (long tick = firstTick; tick <= targetTick; tick++) {
+                List<Timer<T>> bucket = buckets[(int) (tick & mask)];
+                int kept = 0;
+                for (int i = 0; i < bucket.size(); i++) {
+                    Timer<T> timer = bucket.get(i);
+                    if (timer.cancelled) {
+                        pending--;
+                    } else if (timer.deadlineTick <= targetTick) {
+                        due.add(timer.item);
+                        pending--;
+                    } else {
+                        bucket.set(kept++, timer);
+                    }
+                }
+                bucket.subList(kept, bucket.size()).clear();
+            }
+            currentTick = targetTick;
+        }
+
+        for (T item : due) {
+            try {
+                onExpire.accept(item);
+            } catch (Exception e) {
+                log.warn("Timing wheel {} callback failed: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    private static final class Timer<T> implements Timeout {
+        private final T item;
+        private final long deadlineTick;
+        private volatile boolean cancelled;
+
+        Timer(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+-- Atomic rate-limit check and increment for one phone number.
+-- KEYS[1] = daily counter (per calendar day), KEYS[2] = hourly sliding-window log (sorted set)
+-- ARGV[1] = now (epoch ms), ARGV[2] = daily limit, ARGV[3] = hourly limit,
+-- ARGV[4] = daily key TTL (s), ARGV[5] = unique request id
+-- Returns {allowed (1/0), daily count, reason (0 ok, 1 daily, 2 hourly), retry at (epoch ms)}
+
+local now = tonumber(ARGV[1])
+local window = 3600000
+
+local daily = tonumber(redis.call('GET', KEYS[1]) or '0')
+if daily >= tonumber(ARGV[2]) then
+    return {0, daily, 1, 0}
+end
+
+redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', now - window)
+if redis.call('ZCARD', KEYS[2]) >= tonumber(ARGV[3]) then
+    local oldest = redis.call('ZRANGE', KEYS[2], 0, 0, 'WITHSCORES')
+    return {0, daily, 2, tonumber(oldest[2]) + window}
+end
+
+daily = redis.call('INCR', KEYS[1])
+if daily == 1 then
+    redis.call('EXPIRE', KEYS[1], ARGV[4])
+end
+redis.call('ZADD', KEYS[2], now, ARGV[5])
+redis.call('PEXPIRE', KEYS[2], window)
+return {1, daily, 0, 0}
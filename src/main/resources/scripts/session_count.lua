@@ -0,0 +1,4 @@
+-- Count live sessions. KEYS[1] = active session index, ARGV[1] = now (epoch ms)
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', ARGV[1])
+return redis.call('ZCARD', KEYS[1])
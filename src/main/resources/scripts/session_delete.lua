@@ -0,0 +1,5 @@
+-- Remove a session.
+-- KEYS[1] = session key, KEYS[2] = active session index, ARGV[1] = session id
+
+redis.call('ZREM', KEYS[2], ARGV[1])
+return redis.call('UNLINK', KEYS[1])
@@ -0,0 +1,17 @@
+-- Create-or-touch a USSD session in one round trip.
+-- KEYS[1] = session key, KEYS[2] = active session index (sorted set scored by expiry)
+-- ARGV[1] = serialized new session, ARGV[2] = TTL (s), ARGV[3] = now (epoch ms),
+-- ARGV[4] = expiry (epoch ms), ARGV[5] = session id
+-- Returns the existing session (TTL refreshed), or nil if the new one was stored
+
+-- Sessions enter the index once, so pruning here is amortized O(log N) per session
+redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', ARGV[3])
+redis.call('ZADD', KEYS[2], ARGV[4], ARGV[5])
+
+local existing = redis.call('GETEX', KEYS[1], 'EX', ARGV[2])
+if existing then
+    return existing
+end
+
+redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2])
+return false
@@ -0,0 +1,7 @@
+-- Store a session.
+-- KEYS[1] = session key, KEYS[2] = active session index
+-- ARGV[1] = serialized session, ARGV[2] = TTL (s), ARGV[3] = expiry (epoch ms), ARGV[4] = session id
+
+redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2])
+redis.call('ZADD', KEYS[2], ARGV[3], ARGV[4])
+return 1
@@ -0,0 +1,10 @@
+-- Read and remove a session, for the last hop of a USSD session.
+-- KEYS[1] = session key, KEYS[2] = active session index, ARGV[1] = session id
+-- Returns the session, or nil if there was none
+
+local existing = redis.call('GET', KEYS[1])
+if existing then
+    redis.call('UNLINK', KEYS[1])
+end
+redis.call('ZREM', KEYS[2], ARGV[1])
+return existing
@@ -0,0 +1,9 @@
+-- Read a session and refresh its TTL.
+-- KEYS[1] = session key, KEYS[2] = active session index
+-- ARGV[1] = TTL (s), ARGV[2] = expiry (epoch ms), ARGV[3] = session id
+
+local existing = redis.call('GETEX', KEYS[1], 'EX', ARGV[1])
+if existing then
+    redis.call('ZADD', KEYS[2], ARGV[2], ARGV[3])
+end
+return existing
@@ -0,0 +1,134 @@
+package com.taxhelp.nigerian_tax_ussd.config;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.internal.shaded.reactor.pool.PoolAcquirePendingLimitException;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpstreamHttpClientsTest {
+
+    private final UpstreamHttpProperties properties = new UpstreamHttpProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Client ports seen by the server, one per connection
+    private final Set<Integer> connections = new ConcurrentSkipListSet<>();
+    private final List<String> acceptEncodings = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+    private UpstreamHttpClients clients;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            connections.add(exchange.getRemoteAddress().getPort());
+            acceptEncodings.add(String.valueOf(exchange.getRequestHeaders().getFirst("Accept-Encoding")));
+            if (exchange.getRequestURI().getPath().equals("/slow")) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        // Reactor Netty reports to the global registry
+        Metrics.addRegistry(meterRegistry);
+        clients = new UpstreamHttpClients(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        clients.shutdown();
+        server.stop(0);
+        Metrics.removeRegistry(meterRegistry);
+    }
+
+    @Test
+    void callsReuseTheirUpstreamsConnection() {
+        // With one connection allowed, a second port would mean it was not kept alive
+        UpstreamHttpProperties.Pool pool = new UpstreamHttpProperties.Pool();
+        pool.setMaxConnections(1);
+        properties.getPools().put("rag", pool);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(get("rag", "/query?key=secret")).isEqualTo("ok");
+        }
+        assertThat(connections).hasSize(1);
+        assertThat(acceptEncodings).allMatch(encoding -> encoding.contains("gzip"));
+
+        // Another upstream has a pool of its own
+        get("translation", "/translate");
+        assertThat(connections).hasSize(2);
+    }
+
+    @Test
+    void poolLimitsApplyPerUpstream() {
+        UpstreamHttpProperties.Pool pool = new UpstreamHttpProperties.Pool();
+        pool.setMaxConnections(1);
+        pool.setPendingAcquireMaxCount(1);
+        properties.getPools().put("rag", pool);
+
+        // One call holds the only connection, one waits for it, the next is turned away
+        Mono<String> first = client("rag").get().uri("/slow").retrieve().bodyToMono(String.class).cache();
+        Mono<String> second = client("rag").get().uri("/slow").retrieve().bodyToMono(String.class).cache();
+        first.subscribe();
+        second.subscribe();
+        assertThatThrownBy(() -> get("rag", "/slow")).hasRootCauseInstanceOf(PoolAcquirePendingLimitException.class);
+
+        // Translation is not held up by the busy RAG pool
+        assertThat(get("translation", "/translate")).isEqualTo("ok");
+        release.countDown();
+        assertThat(first.block(Duration.ofSeconds(5))).isEqualTo("ok");
+        assertThat(second.block(Duration.ofSeconds(5))).isEqualTo("ok");
+    }
+
+    @Test
+    void metricsAreTaggedByPoolWithoutQueryStrings() {
+        get("rag", "/query?key=secret");
+
+        assertThat(meterRegistry.find("reactor.netty.connection.provider.total.connections").tag("name", "rag").gauge())
+                .isNotNull();
+        List<String> uris = meterRegistry.getMeters().stream()
+                .filter(meter -> meter.getId().getName().startsWith("reactor.netty.http.client"))
+                .map(meter -> meter.getId().getTag("uri"))
+                .filter(uri -> uri != null)
+                .toList();
+        assertThat(uris).contains("/query").noneMatch(uri -> uri.contains("secret"));
+    }
+
+    private WebClient client(String upstream) {
+        return WebClient.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .clientConnector(clients.connector(upstream))
+                .build();
+    }
+
+    private String get(String upstream, String uri) {
+        return client(upstream).get().uri(uri).retrieve().bodyToMono(String.class).block(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,174 @@
+package com.taxhelp.nigerian_tax_ussd.repository;
+
+import com.taxhelp.nigerian_tax_ussd.NigerianTaxUssdApplication;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionLog;
+import com.taxhelp.nigerian_tax_ussd.service.QuestionAnalyticsService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * The rollup SQL is PostgreSQL only, so these run against an embedded
+ * PostgreSQL server instead of the H2 test database.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(classes = NigerianTaxUssdApplication.class, properties = {
+        "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration",
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+        // Nothing to drop on shutdown: the server is stopped before the context closes
+        "spring.jpa.hibernate.ddl-auto=create",
+        "analytics.rebuild-range-size=2"
+})
+class QuestionLogRollupWriterTest {
+
+    private static final LocalDateTime NINE_AM = LocalDateTime.of(2026, 1, 15, 9, 10);
+    private static final EmbeddedPostgres postgres = start();
+
+    @MockBean
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @SpyBean
+    private QuestionLogRollupWriter rollupWriter;
+
+    @Autowired
+    private QuestionLogBatchWriter batchWriter;
+    @Autowired
+    private SmsDeliveryWriter deliveryWriter;
+    @Autowired
+    private QuestionAnalyticsService analyticsService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static EmbeddedPostgres start() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void emptyTables() {
+        jdbcTemplate.update("DELETE FROM question_logs");
+        jdbcTemplate.update("DELETE FROM question_log_hourly_rollups");
+        jdbcTemplate.update("DELETE FROM question_log_question_rollups");
+    }
+
+    @Test
+    void rollupsFollowNewLogsAndDeliveries() {
+        batchWriter.insertAll(List.of(
+                questionLog("s1", "What is VAT rate?", "en", 1000),
+                questionLog("s2", "What is VAT rate?", "en", 3000),
+                questionLog("s3", "Kí ni oṣùwọ̀n VAT?", "yo", null)));
+        deliver("s1", "m1");
+
+        QuestionAnalyticsService.PeriodStats day = analyticsService.getDailyStats(NINE_AM.toLocalDate(),
+                NINE_AM.toLocalDate()).get(0);
+        assertThat(day.getQuestions()).isEqualTo(3);
+        assertThat(day.getSmsDelivered()).isEqualTo(1);
+        assertThat(day.getByLanguage()).isEqualTo(Map.of("en", 2L, "yo", 1L));
+        assertThat(day.getAverageResponseTimeMs()).isEqualTo(2000.0);
+        assertThat(analyticsService.getTopQuestions(1, null).get(0).getQuestionCount()).isEqualTo(2);
+
+        // Incremental and rebuilt rollups agree
+        List<Map<String, Object>> incremental = hourlyRollups();
+        QuestionAnalyticsService.RebuildResult result = analyticsService.rebuildRollups();
+        assertThat(result.getFailedRanges()).isZero();
+        assertThat(result.getRanges()).isGreaterThan(1);
+        assertThat(hourlyRollups()).isEqualTo(incremental);
+    }
+
+    @Test
+    void deliveryDuringRebuildIsCountedOnce() throws Exception {
+        batchWriter.insertAll(List.of(
+                questionLog("s1", "What is VAT rate?", "en", 1000),
+                questionLog("s2", "What is CIT rate?", "en", 1000)));
+        deliveryWriter.linkMessageIds(List.of(new SmsDeliveryWriter.MessageLink("s1", "m1", "Sent", NINE_AM)));
+
+        // Hold the rebuild after it has emptied the rollups, before any range is read
+        CountDownLatch rangeStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            rangeStarted.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(rollupWriter).rebuildRange(anyLong(), anyLong());
+
+        CompletableFuture<QuestionAnalyticsService.RebuildResult> rebuild =
+                CompletableFuture.supplyAsync(analyticsService::rebuildRollups);
+        assertThat(rangeStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<SmsDeliveryWriter.Applied> report = CompletableFuture.supplyAsync(() ->
+                deliveryWriter.applyReports(List.of(new SmsDeliveryWriter.Report("m1", "Success", true, NINE_AM))));
+
+        // The report waits for the rebuild instead of racing its ranges
+        Thread.sleep(300);
+        assertThat(report).isNotDone();
+        release.countDown();
+        rebuild.get(10, TimeUnit.SECONDS);
+        assertThat(report.get(10, TimeUnit.SECONDS).delivered()).hasSize(1);
+
+        QuestionAnalyticsService.PeriodStats day = analyticsService.getDailyStats(NINE_AM.toLocalDate(),
+                NINE_AM.toLocalDate()).get(0);
+        assertThat(day.getQuestions()).isEqualTo(2);
+        assertThat(day.getSmsDelivered()).isEqualTo(1);
+        assertThat(hourlyRollups()).allSatisfy(row -> assertThat((Long) row.get("question_count")).isPositive());
+    }
+
+    private void deliver(String sessionId, String messageId) {
+        deliveryWriter.linkMessageIds(List.of(new SmsDeliveryWriter.MessageLink(sessionId, messageId, "Sent", NINE_AM)));
+        deliveryWriter.applyReports(List.of(new SmsDeliveryWriter.Report(messageId, "Success", true, NINE_AM)));
+    }
+
+    private List<Map<String, Object>> hourlyRollups() {
+        return jdbcTemplate.queryForList("SELECT rollup_date, rollup_hour, language, sms_delivered, question_count, "
+                + "response_time_total_ms, response_time_count FROM question_log_hourly_rollups "
+                + "WHERE question_count <> 0 ORDER BY 1, 2, 3, 4");
+    }
+
+    private static QuestionLog questionLog(String sessionId, String question, String language, Integer responseTimeMs) {
+        QuestionLog questionLog = new QuestionLog();
+        questionLog.setSessionId(sessionId);
+        questionLog.setPhoneNumber("+2348012345678");
+        questionLog.setQuestion(question);
+        questionLog.setAnswer("answer");
+        questionLog.setLanguage(language);
+        questionLog.setSmsDelivered(false);
+        questionLog.setResponseTimeMs(responseTimeMs);
+        questionLog.setTimestamp(NINE_AM);
+        return questionLog;
+    }
+}
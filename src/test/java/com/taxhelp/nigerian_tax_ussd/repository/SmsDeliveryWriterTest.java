@@ -0,0 +1,105 @@
+package com.taxhelp.nigerian_tax_ussd.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class SmsDeliveryWriterTest {
+
+    private static final LocalDateTime NINE_AM = LocalDateTime.of(2026, 1, 15, 9, 10);
+
+    private JdbcTemplate jdbcTemplate;
+    private QuestionLogRollupWriter rollupWriter;
+    private SmsDeliveryWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new SimpleDriverDataSource(new org.h2.Driver(),
+                "jdbc:h2:mem:sms-delivery;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE question_logs (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "session_id VARCHAR(100), language VARCHAR(5), response_time_ms INTEGER, timestamp TIMESTAMP, "
+                + "sms_message_id VARCHAR(100), sms_status VARCHAR(30), sms_delivered BOOLEAN, "
+                + "sms_submitted_at TIMESTAMP, sms_delivered_at TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO question_logs (session_id, language, response_time_ms, timestamp, sms_delivered) "
+                + "VALUES ('s1', 'en', 1200, ?, FALSE)", NINE_AM);
+        rollupWriter = mock(QuestionLogRollupWriter.class);
+        writer = new SmsDeliveryWriter(jdbcTemplate, rollupWriter);
+    }
+
+    @AfterEach
+    void dropTable() {
+        jdbcTemplate.execute("DROP TABLE question_logs");
+    }
+
+    @Test
+    void reportBeforeItsLinkIsNotMatched() {
+        assertThat(writer.applyReports(List.of(report("Success", true))).matched()).isEmpty();
+
+        assertThat(writer.linkMessageIds(List.of(link("s1"), link("s2")))).containsExactly(true, false);
+        SmsDeliveryWriter.Applied applied = writer.applyReports(List.of(report("Success", true)));
+
+        assertThat(applied.matched()).containsExactly("m1");
+        assertThat(applied.delivered()).singleElement().satisfies(questionLog -> {
+            assertThat(questionLog.getSmsSubmittedAt()).isEqualTo(NINE_AM);
+            assertThat(questionLog.getSmsDeliveredAt()).isEqualTo(NINE_AM.plusMinutes(1));
+        });
+        assertThat(status()).isEqualTo("Success");
+    }
+
+    @Test
+    void linkIsWrittenOnce() {
+        writer.linkMessageIds(List.of(link("s1")));
+
+        // A second send for the same session does not take over the log
+        assertThat(writer.linkMessageIds(List.of(new SmsDeliveryWriter.MessageLink("s1", "m2", "Sent", NINE_AM))))
+                .containsExactly(false);
+    }
+
+    @Test
+    void deliveredIsSticky() {
+        writer.linkMessageIds(List.of(link("s1")));
+
+        // In one batch, and across batches
+        assertThat(writer.applyReports(List.of(report("Success", true), report("Failed", false))).delivered()).hasSize(1);
+        assertThat(writer.applyReports(List.of(report("Expired", false))).delivered()).isEmpty();
+        assertThat(writer.applyReports(List.of(report("Success", true))).delivered()).isEmpty();
+
+        assertThat(status()).isEqualTo("Success");
+        assertThat(jdbcTemplate.queryForObject("SELECT sms_delivered FROM question_logs", Boolean.class)).isTrue();
+        // Moved between the rollups once
+        verify(rollupWriter, times(1)).markDelivered(anyList());
+    }
+
+    @Test
+    void failureBeforeDeliveryIsOverwritten() {
+        writer.linkMessageIds(List.of(link("s1")));
+
+        assertThat(writer.applyReports(List.of(report("Failed", false))).delivered()).isEmpty();
+        assertThat(status()).isEqualTo("Failed");
+        assertThat(writer.applyReports(List.of(report("Success", true))).delivered()).hasSize(1);
+        assertThat(status()).isEqualTo("Success");
+    }
+
+    private String status() {
+        return jdbcTemplate.queryForObject("SELECT sms_status FROM question_logs", String.class);
+    }
+
+    private static SmsDeliveryWriter.MessageLink link(String sessionId) {
+        return new SmsDeliveryWriter.MessageLink(sessionId, "m1", "Sent", NINE_AM);
+    }
+
+    private static SmsDeliveryWriter.Report report(String status, boolean delivered) {
+        return new SmsDeliveryWriter.Report("m1", status, delivered, NINE_AM.plusMinutes(1));
+    }
+}
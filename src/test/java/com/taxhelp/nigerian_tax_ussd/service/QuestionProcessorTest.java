@@ -0,0 +1,95 @@
+package com.taxhelp.nigerian_tax_ussd.service;
+
+import com.taxhelp.nigerian_tax_ussd.config.GoogleTranslationService;
+import com.taxhelp.nigerian_tax_ussd.config.QuestionBudgetProperties;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionJob;
+import com.taxhelp.nigerian_tax_ussd.model.response.RagQueryResponse;
+import com.taxhelp.nigerian_tax_ussd.service.cache.QuestionSimilarityIndex;
+import com.taxhelp.nigerian_tax_ussd.service.cache.RagAnswerCache;
+import com.taxhelp.nigerian_tax_ussd.service.cache.TrendingQuestions;
+import com.taxhelp.nigerian_tax_ussd.service.pipeline.PipelineStage;
+import com.taxhelp.nigerian_tax_ussd.service.util.DeadlineBudget;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuestionProcessorTest {
+
+    private SmsService smsService;
+    private RagClientService ragClientService;
+    private GoogleTranslationService translationService;
+    private SimpleMeterRegistry meterRegistry;
+    private QuestionProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        smsService = mock(SmsService.class);
+        ragClientService = mock(RagClientService.class);
+        translationService = mock(GoogleTranslationService.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        // Pass text through untranslated
+        when(translationService.translateAsync(anyString(), anyString(), anyString()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+        when(smsService.sendSmsAsync(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(smsService.sendSmsAsync(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+
+        processor = new QuestionProcessor(smsService, ragClientService, translationService,
+                mock(QuestionLogService.class), mock(QuestionSimilarityIndex.class), mock(RagAnswerCache.class),
+                mock(TrendingQuestions.class), new DeadlineBudget(new QuestionBudgetProperties(), meterRegistry),
+                meterRegistry);
+    }
+
+    @Test
+    void answeredQuestionIsTranslatedAndSent() {
+        RagQueryResponse response = new RagQueryResponse();
+        response.setSuccess(true);
+        response.setAnswer("VAT is 7.5%");
+        when(ragClientService.queryTaxAssistantReactive("What is VAT?")).thenReturn(Mono.just(response));
+        QuestionJob job = job();
+
+        assertThat(processor.runStage(PipelineStage.RAG_QUERY, job)).isEqualTo(PipelineStage.TRANSLATE_OUT);
+        assertThat(job.isFailed()).isFalse();
+        assertThat(job.getAnswerInEnglish()).isEqualTo("VAT is 7.5%");
+
+        assertThat(processor.runStage(PipelineStage.TRANSLATE_OUT, job)).isEqualTo(PipelineStage.SMS_SEND);
+        assertThat(processor.runStage(PipelineStage.SMS_SEND, job)).isEqualTo(PipelineStage.LOG);
+        verify(smsService).sendSmsAsync(eq("+2348012345678"), contains("VAT is 7.5%"), eq("s1"));
+        assertThat(meterRegistry.find("question.failures").counter()).isNull();
+    }
+
+    @Test
+    void emptyRagResponseFailsTheJob() {
+        when(ragClientService.queryTaxAssistantReactive("What is VAT?")).thenReturn(Mono.empty());
+        QuestionJob job = job();
+
+        assertThat(processor.runStage(PipelineStage.RAG_QUERY, job)).isEqualTo(PipelineStage.LOG);
+        assertThat(job.isFailed()).isTrue();
+        verify(smsService, never()).sendSmsAsync(anyString(), anyString(), any());
+        verify(smsService).sendSmsAsync(eq("+2348012345678"), anyString());
+    }
+
+    private static QuestionJob job() {
+        return QuestionJob.builder()
+                .sessionId("s1")
+                .phoneNumber("+2348012345678")
+                .question("What is VAT?")
+                .questionInEnglish("What is VAT?")
+                .language("en")
+                .startTime(System.currentTimeMillis())
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.taxhelp.nigerian_tax_ussd.service;
+
+import com.taxhelp.nigerian_tax_ussd.config.RedisConfig;
+import com.taxhelp.nigerian_tax_ussd.config.SessionProperties;
+import com.taxhelp.nigerian_tax_ussd.model.UserSession;
+import com.taxhelp.nigerian_tax_ussd.service.session.RedisSessionStore;
+import com.taxhelp.nigerian_tax_ussd.service.session.UserSessionCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.Invocation;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Instant;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts the Redis round trips SessionService makes for each USSD hop.
+ * Before the rework: menu 2 (GET, SET), language 5 (GET, SET, GET, SET, SET),
+ * question 3 (GET, SET, DEL).
+ */
+class SessionServiceRoundTripTest {
+
+    // Template methods that only build or configure, without talking to Redis
+    private static final Set<String> LOCAL_METHODS = Set.of(
+            "opsForValue", "getValueSerializer", "getKeySerializer", "getStringSerializer");
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private ValueOperations<String, Object> valueOperations;
+    private SessionService sessionService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        UserSessionCodec codec = new UserSessionCodec(new RedisConfig().objectMapper());
+        sessionService = new SessionService(new RedisSessionStore(redisTemplate, codec, 300), new SessionProperties(),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void eachUssdHopMakesAtMostOneRoundTrip() {
+        // Hop 1: dial, menu shown (session created)
+        when(redisTemplate.execute(any(), any(), any(), anyList(), any(Object[].class))).thenReturn(null);
+        sessionService.getOrCreate("s1", "+2348012345678");
+        int menuHop = roundTrips();
+
+        // Hop 2: language selected
+        sessionService.selectLanguage("s1", "+2348012345678", "yo");
+        int languageHop = roundTrips();
+
+        // Hop 3: question submitted, session removed
+        UserSession stored = UserSession.builder()
+                .sessionId("s1")
+                .phoneNumber("+2348012345678")
+                .language("yo")
+                .stage(UserSession.SessionStage.LANGUAGE_SELECTED)
+                .createdAt(Instant.now())
+                .build();
+        when(redisTemplate.execute(any(), any(), any(), anyList(), any(Object[].class))).thenAnswer(invocation ->
+                invocation.getArgument(0, RedisScript.class).getResultType() == UserSession.class ? stored : 1L);
+        UserSession session = sessionService.take("s1").orElseThrow();
+        int questionHop = roundTrips();
+
+        assertThat(menuHop).isEqualTo(1);
+        assertThat(languageHop).isEqualTo(1);
+        assertThat(questionHop).isEqualTo(1);
+        assertThat(session.getLanguage()).isEqualTo("yo");
+    }
+
+    @Test
+    void readRefreshesTtlInTheSameCall() {
+        sessionService.get("s1");
+        assertThat(roundTrips()).isEqualTo(1);
+    }
+
+    // Redis calls since the last count
+    private int roundTrips() {
+        int count = 0;
+        for (Invocation invocation : Mockito.mockingDetails(redisTemplate).getInvocations()) {
+            if (!LOCAL_METHODS.contains(invocation.getMethod().getName())) {
+                count++;
+            }
+        }
+        count += Mockito.mockingDetails(valueOperations).getInvocations().size();
+        Mockito.clearInvocations(redisTemplate, valueOperations);
+        return count;
+    }
+}
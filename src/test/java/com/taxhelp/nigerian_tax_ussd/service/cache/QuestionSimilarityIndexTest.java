@@ -0,0 +1,69 @@
+package com.taxhelp.nigerian_tax_ussd.service.cache;
+
+import com.taxhelp.nigerian_tax_ussd.config.SimilarityIndexProperties;
+import com.taxhelp.nigerian_tax_ussd.repository.QuestionLogQuestionRollupRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class QuestionSimilarityIndexTest {
+
+    private QuestionSimilarityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new QuestionSimilarityIndex(new SimilarityIndexProperties(),
+                mock(QuestionLogQuestionRollupRepository.class), new SimpleMeterRegistry());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "What is the penalty for late filing of VAT returns? | What is the penalty for late filing of CIT returns?",
+            "How much tax on income of 500000 naira? | How much tax on income of 5000000 naira?",
+            "VAT on exported goods | VAT on imported goods",
+            "What is VAT rate? | What is CIT rate?",
+            "Do residents pay tax on foreign income? | Do nonresidents pay tax on foreign income?",
+    })
+    void nearMissesAreNotMatched(String answered, String asked) {
+        index.add(answered, "en", answered);
+
+        assertThat(index.findSimilar(asked, "en")).isEmpty();
+        // Not even at the lowest threshold
+        assertThat(index.findSimilar(asked, "en", 0.0)).isEmpty();
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "What is the penalty for late filing of VAT returns? | what is the penalty for late filling of VAT return",
+            "What is the VAT rate? | what is VAT rate",
+            "What is the penalty for late payment of PAYE? | what is the penalty for late paymnt of PAYE",
+    })
+    void rewordingsAndTyposAreMatched(String answered, String asked) {
+        index.add(answered, "en", answered);
+
+        assertThat(index.findSimilar(asked, "en"))
+                .hasValueSatisfying(match -> assertThat(match.getEnglishQuestion()).isEqualTo(answered));
+    }
+
+    @Test
+    void languagesAreKeptApart() {
+        index.add("Kí ni oṣùwọ̀n VAT?", "yo", "What is the VAT rate?");
+
+        assertThat(index.findSimilar("ki ni osuwon VAT", "yo")).isPresent();
+        assertThat(index.findSimilar("ki ni osuwon VAT", "ha")).isEmpty();
+    }
+
+    @Test
+    void wordsMustMatchBothWays() {
+        String[] answered = {"penalty", "late", "filing", "vat"};
+
+        assertThat(QuestionSimilarityIndex.sameWords(answered, new String[]{"penalty", "late", "filling", "vat"})).isTrue();
+        assertThat(QuestionSimilarityIndex.sameWords(answered, new String[]{"penalty", "late", "filing"})).isFalse();
+        assertThat(QuestionSimilarityIndex.sameWords(answered, new String[]{"penalty", "late", "filing", "vat", "2024"})).isFalse();
+    }
+}
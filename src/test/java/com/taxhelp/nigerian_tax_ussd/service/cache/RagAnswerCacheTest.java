@@ -0,0 +1,130 @@
+package com.taxhelp.nigerian_tax_ussd.service.cache;
+
+import com.taxhelp.nigerian_tax_ussd.config.AnswerCacheProperties;
+import com.taxhelp.nigerian_tax_ussd.config.RedisConfig;
+import com.taxhelp.nigerian_tax_ussd.support.EmbeddedRedis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RagAnswerCacheTest {
+
+    private static EmbeddedRedis redis;
+
+    private final AnswerCacheProperties properties = new AnswerCacheProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flushAll();
+        // Check the generation on every lookup
+        properties.setGenerationRefreshSeconds(0);
+    }
+
+    @Test
+    void answersAreSharedThroughRedisUnderTheNormalizedQuestion() {
+        RagAnswerCache writer = cache();
+        RagAnswerCache reader = cache();
+
+        writer.put("What is  VAT rate?", "7.5%");
+
+        assertThat(reader.get("what is vat rate")).contains("7.5%");
+        assertThat(reader.get("WHAT IS VAT RATE!")).contains("7.5%");
+        RagAnswerCache.AnswerCacheStats stats = reader.getStats();
+        assertThat(stats.getRedisHits()).isEqualTo(1);
+        assertThat(stats.getLocalHits()).isEqualTo(1);
+        assertThat(reader.get("What is CIT rate?")).isEmpty();
+        assertThat(reader.getStats().getRedisMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateAllReachesOtherInstances() {
+        RagAnswerCache admin = cache();
+        RagAnswerCache other = cache();
+        admin.put("What is VAT rate?", "5%");
+        assertThat(other.get("What is VAT rate?")).contains("5%");
+
+        admin.invalidateAll();
+
+        // Gone from the other instance's local tier too, and new answers go under the new generation
+        assertThat(other.get("What is VAT rate?")).isEmpty();
+        assertThat(other.getStats().getGeneration()).isEqualTo(1);
+        admin.put("What is VAT rate?", "7.5%");
+        assertThat(other.get("What is VAT rate?")).contains("7.5%");
+    }
+
+    @Test
+    void invalidateDropsOneQuestionFromBothTiers() {
+        RagAnswerCache cache = cache();
+        cache.put("What is VAT rate?", "7.5%");
+        cache.put("What is CIT rate?", "30%");
+
+        cache.invalidate("what is vat rate");
+
+        assertThat(cache.get("What is VAT rate?")).isEmpty();
+        assertThat(cache().get("What is VAT rate?")).isEmpty();
+        assertThat(cache.get("What is CIT rate?")).contains("30%");
+    }
+
+    @Test
+    void reactiveMethodsUseTheSameKeys() {
+        RagAnswerCache writer = cache();
+        RagAnswerCache reader = cache();
+
+        writer.putReactive("What is VAT rate?", "7.5%").block(Duration.ofSeconds(5));
+        assertThat(reader.get("what is vat rate")).contains("7.5%");
+
+        writer.invalidateAll();
+        writer.put("What is CIT rate?", "30%");
+        assertThat(reader.getReactive("What is VAT rate?").blockOptional(Duration.ofSeconds(5))).isEmpty();
+        assertThat(reader.getReactive("what is cit rate").block(Duration.ofSeconds(5))).isEqualTo("30%");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void redisFailuresFallBackToTheLocalTier() {
+        RedisTemplate<String, Object> brokenTemplate = mock(RedisTemplate.class);
+        when(brokenTemplate.opsForValue()).thenThrow(new RedisConnectionFailureException("Redis down"));
+        RagAnswerCache cache = new RagAnswerCache(properties, brokenTemplate, mock(ObjectProvider.class),
+                new RedisConfig().objectMapper(), meterRegistry);
+
+        cache.put("What is VAT rate?", "7.5%");
+        cache.invalidateAll();
+        assertThat(cache.get("What is VAT rate?")).isEmpty();
+
+        cache.put("What is VAT rate?", "7.5%");
+        assertThat(cache.get("What is VAT rate?")).contains("7.5%");
+        assertThat(cache.getReactive("What is CIT rate?").blockOptional(Duration.ofSeconds(5))).isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private RagAnswerCache cache() {
+        ObjectProvider<ReactiveRedisConnectionFactory> connectionFactory = mock(ObjectProvider.class);
+        when(connectionFactory.getIfAvailable()).thenReturn(redis.connectionFactory());
+        RedisTemplate<String, Object> redisTemplate = new RedisConfig().redisTemplate(redis.connectionFactory());
+        return new RagAnswerCache(properties, redisTemplate, connectionFactory, new RedisConfig().objectMapper(),
+                new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,71 @@
+package com.taxhelp.nigerian_tax_ussd.service.cache;
+
+import com.taxhelp.nigerian_tax_ussd.config.RedisConfig;
+import com.taxhelp.nigerian_tax_ussd.config.TranslationCacheProperties;
+import com.taxhelp.nigerian_tax_ussd.support.EmbeddedRedis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TranslationCacheTest {
+
+    private static EmbeddedRedis redis;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        redis.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reactiveMethodsShareTheRedisTierWithoutTheBlockingTemplate() {
+        RedisTemplate<String, Object> blockingTemplate = mock(RedisTemplate.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TranslationCache writer = cache(blockingTemplate, meterRegistry);
+        TranslationCache reader = cache(blockingTemplate, meterRegistry);
+
+        writer.putReactive("What is VAT rate?", "en", "yo", "Kí ni oṣùwọ̀n VAT?").block(Duration.ofSeconds(5));
+
+        // On an event-loop style thread, as in the reactive pipeline
+        String translated = Mono.defer(() -> reader.getReactive("What is VAT rate?", "EN", "yo"))
+                .subscribeOn(Schedulers.parallel())
+                .block(Duration.ofSeconds(5));
+        assertThat(translated).isEqualTo("Kí ni oṣùwọ̀n VAT?");
+        assertThat(reader.getReactive("What is CIT rate?", "en", "yo").blockOptional(Duration.ofSeconds(5))).isEmpty();
+        assertThat(meterRegistry.counter("translations.redis", "result", "hit").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("translations.redis", "result", "miss").count()).isEqualTo(1);
+        verifyNoInteractions(blockingTemplate);
+
+        // Now in the reader's local tier
+        assertThat(reader.get("What is VAT rate?", "en", "yo")).contains("Kí ni oṣùwọ̀n VAT?");
+        verifyNoInteractions(blockingTemplate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TranslationCache cache(RedisTemplate<String, Object> blockingTemplate, SimpleMeterRegistry meterRegistry) {
+        TranslationCacheProperties properties = new TranslationCacheProperties();
+        properties.setRedisEnabled(true);
+        ObjectProvider<ReactiveRedisConnectionFactory> connectionFactory = mock(ObjectProvider.class);
+        when(connectionFactory.getIfAvailable()).thenReturn(redis.connectionFactory());
+        return new TranslationCache(properties, blockingTemplate, connectionFactory,
+                new RedisConfig().objectMapper(), meterRegistry);
+    }
+}
@@ -0,0 +1,54 @@
+package com.taxhelp.nigerian_tax_ussd.service.cache;
+
+import com.taxhelp.nigerian_tax_ussd.config.TrendingQuestionsProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrendingQuestionsTest {
+
+    private final TrendingQuestionsProperties properties = new TrendingQuestionsProperties();
+    private final TrendingQuestions trending = new TrendingQuestions(properties);
+
+    @Test
+    void rewordingsCountAsOneQuestionPerLanguage() {
+        trending.record("What is the VAT rate?", "en");
+        trending.record("what is VAT rate", "en");
+        trending.record("What is VAT rate, please?", "en");
+        trending.record("How do I file PAYE?", "en");
+        trending.record("What is VAT rate?", "yo");
+
+        List<TrendingQuestions.TrendingQuestion> top = trending.getTrending(TrendingQuestions.Window.LAST_HOUR, 2);
+
+        assertThat(top).hasSize(2);
+        TrendingQuestions.TrendingQuestion first = top.get(0);
+        assertThat(first.getCanonical()).isEqualTo("what vat rate");
+        assertThat(first.getLanguage()).isEqualTo("en");
+        assertThat(first.getCount()).isEqualTo(3);
+        assertThat(first.getMaxOvercount()).isZero();
+        assertThat(first.getShare()).isEqualTo(0.6);
+        // Shown as last asked
+        assertThat(first.getQuestion()).isEqualTo("What is VAT rate, please?");
+        for (TrendingQuestions.Window window : TrendingQuestions.Window.values()) {
+            assertThat(trending.getTrending(window, 10)).hasSize(3);
+        }
+    }
+
+    @Test
+    void blankAndStopwordOnlyQuestionsAreIgnored() {
+        trending.record("  ", "en");
+        trending.record("Please tell me", "en");
+        properties.setEnabled(false);
+        trending.record("What is VAT rate?", "en");
+
+        assertThat(trending.getTrending(TrendingQuestions.Window.LAST_15_MINUTES, 10)).isEmpty();
+    }
+
+    @Test
+    void windowsAreLookedUpByLabel() {
+        assertThat(TrendingQuestions.Window.fromLabel("1H")).contains(TrendingQuestions.Window.LAST_HOUR);
+        assertThat(TrendingQuestions.Window.fromLabel("7d")).isEmpty();
+    }
+}
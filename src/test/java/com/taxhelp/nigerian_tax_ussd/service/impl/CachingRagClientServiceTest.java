@@ -0,0 +1,94 @@
+package com.taxhelp.nigerian_tax_ussd.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taxhelp.nigerian_tax_ussd.config.AnswerCacheProperties;
+import com.taxhelp.nigerian_tax_ussd.config.SimilarityIndexProperties;
+import com.taxhelp.nigerian_tax_ussd.model.response.RagQueryResponse;
+import com.taxhelp.nigerian_tax_ussd.repository.QuestionLogQuestionRollupRepository;
+import com.taxhelp.nigerian_tax_ussd.service.cache.QuestionSimilarityIndex;
+import com.taxhelp.nigerian_tax_ussd.service.cache.RagAnswerCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CachingRagClientServiceTest {
+
+    private static final String ANSWERED = "What is the penalty for late filing of VAT returns?";
+
+    private RagClientServiceImpl ragClient;
+    private SimpleMeterRegistry meterRegistry;
+    private CachingRagClientService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ragClient = mock(RagClientServiceImpl.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        AnswerCacheProperties cacheProperties = new AnswerCacheProperties();
+        cacheProperties.setRedisEnabled(false);
+        RagAnswerCache answerCache = new RagAnswerCache(cacheProperties, mock(RedisTemplate.class),
+                mock(ObjectProvider.class), new ObjectMapper(), meterRegistry);
+
+        // Only exact repeats hit the cache up front, so anything else reaches the RAG service
+        SimilarityIndexProperties similarityProperties = new SimilarityIndexProperties();
+        similarityProperties.setThreshold(0.99);
+        QuestionSimilarityIndex similarityIndex = new QuestionSimilarityIndex(similarityProperties,
+                mock(QuestionLogQuestionRollupRepository.class), meterRegistry);
+
+        service = new CachingRagClientService(ragClient, answerCache, similarityIndex, similarityProperties, meterRegistry);
+
+        when(ragClient.queryTaxAssistant(ANSWERED)).thenReturn(response(true, "Up to N100,000."));
+        when(ragClient.queryTaxAssistantReactive(ANSWERED)).thenReturn(Mono.just(response(true, "Up to N100,000.")));
+        assertThat(service.queryTaxAssistant(ANSWERED).getAnswer()).isEqualTo("Up to N100,000.");
+
+        // The RAG service is down from here on
+        when(ragClient.queryTaxAssistant(anyString())).thenReturn(response(false, "Service unavailable"));
+        when(ragClient.queryTaxAssistantReactive(anyString())).thenReturn(Mono.just(response(false, "Service unavailable")));
+    }
+
+    @Test
+    void repeatIsServedFromCache() {
+        assertThat(service.queryTaxAssistant(ANSWERED).getAnswer()).isEqualTo("Up to N100,000.");
+        assertThat(service.queryTaxAssistantReactive(ANSWERED).block(Duration.ofSeconds(5)).getAnswer())
+                .isEqualTo("Up to N100,000.");
+    }
+
+    @Test
+    void closeMatchIsServedInBothPathsWhenTheRagServiceFails() {
+        String asked = "what is the penalty for late filling of VAT return";
+
+        assertThat(service.queryTaxAssistant(asked).getAnswer()).isEqualTo("Up to N100,000.");
+        RagQueryResponse reactive = service.queryTaxAssistantReactive(asked).block(Duration.ofSeconds(5));
+        assertThat(reactive.getSuccess()).isTrue();
+        assertThat(reactive.getAnswer()).isEqualTo("Up to N100,000.");
+        assertThat(meterRegistry.counter("rag.answers.fallback").count()).isEqualTo(2);
+    }
+
+    @Test
+    void answerForAnotherTaxIsNeverAFallback() {
+        String asked = "What is the penalty for late filing of CIT returns?";
+
+        assertThat(service.queryTaxAssistant(asked).getSuccess()).isFalse();
+        assertThat(service.queryTaxAssistantReactive(asked).block(Duration.ofSeconds(5)).getSuccess()).isFalse();
+        assertThat(meterRegistry.counter("rag.answers.fallback").count()).isZero();
+    }
+
+    private static RagQueryResponse response(boolean success, String answer) {
+        RagQueryResponse response = new RagQueryResponse();
+        response.setSuccess(success);
+        response.setAnswer(answer);
+        return response;
+    }
+}
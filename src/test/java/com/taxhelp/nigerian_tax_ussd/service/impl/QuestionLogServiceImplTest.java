@@ -0,0 +1,163 @@
+package com.taxhelp.nigerian_tax_ussd.service.impl;
+
+import com.taxhelp.nigerian_tax_ussd.config.QuestionLogProperties;
+import com.taxhelp.nigerian_tax_ussd.config.RedisConfig;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionLog;
+import com.taxhelp.nigerian_tax_ussd.repository.QuestionLogBatchWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QuestionLogServiceImplTest {
+
+    @TempDir
+    Path dir;
+
+    private final QuestionLogProperties properties = new QuestionLogProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Batches written, and whether the database is up
+    private final List<List<QuestionLog>> written = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean databaseUp = new AtomicBoolean(true);
+    private QuestionLogServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        properties.setBatchSize(3);
+        properties.setFlushIntervalMillis(50);
+        properties.setSpillFile(dir.resolve("spill.jsonl").toString());
+        properties.setSpillReplayIntervalMillis(0);
+        properties.setShutdownTimeoutSeconds(1);
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    private QuestionLogServiceImpl start(QuestionLogBatchWriter batchWriter) {
+        service = new QuestionLogServiceImpl(batchWriter, properties, new RedisConfig().objectMapper(), meterRegistry);
+        return service;
+    }
+
+    private QuestionLogBatchWriter recordingWriter() {
+        return new QuestionLogBatchWriter(null, null) {
+            @Override
+            public void insertAll(List<QuestionLog> logs) {
+                if (!databaseUp.get()) {
+                    throw new IllegalStateException("database down");
+                }
+                written.add(List.copyOf(logs));
+            }
+        };
+    }
+
+    @Test
+    void logsAreWrittenInBatches() throws Exception {
+        QuestionLogServiceImpl service = start(recordingWriter());
+
+        for (int i = 0; i < 7; i++) {
+            log(service, "s" + i);
+        }
+
+        waitUntil(() -> writtenCount() == 7);
+        assertThat(written).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(3));
+        assertThat(written.size()).isLessThan(7);
+    }
+
+    @Test
+    void failedBatchesAreSpilledAndReplayed() throws Exception {
+        databaseUp.set(false);
+        QuestionLogServiceImpl service = start(recordingWriter());
+
+        log(service, "s1");
+        log(service, "s2");
+        // Replays keep failing and spill the logs again, so the count only grows
+        waitUntil(() -> meterRegistry.counter("question.log.spilled").count() >= 2);
+        assertThat(written).isEmpty();
+
+        databaseUp.set(true);
+        waitUntil(() -> writtenCount() == 2);
+        assertThat(written.stream().flatMap(List::stream).map(QuestionLog::getSessionId))
+                .containsExactlyInAnyOrder("s1", "s2");
+        assertThat(Files.exists(Path.of(properties.getSpillFile()))).isFalse();
+    }
+
+    @Test
+    void fullBufferSpillsInsteadOfBlocking() throws Exception {
+        properties.setBufferCapacity(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        QuestionLogServiceImpl service = start(new QuestionLogBatchWriter(null, null) {
+            @Override
+            public void insertAll(List<QuestionLog> logs) {
+                writing.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                written.add(List.copyOf(logs));
+            }
+        });
+
+        // The writer is stuck on the first log; the second fills the buffer, the rest overflow
+        log(service, "s1");
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 2; i <= 5; i++) {
+            log(service, "s" + i);
+        }
+
+        assertThat(meterRegistry.counter("question.log.spilled").count()).isEqualTo(3);
+        assertThat(Files.readAllLines(Path.of(properties.getSpillFile()))).hasSize(3);
+        release.countDown();
+        waitUntil(() -> writtenCount() == 5);
+    }
+
+    @Test
+    void shutdownDrainsTheBuffer() {
+        properties.setFlushIntervalMillis(60_000);
+        properties.setBatchSize(100);
+        QuestionLogServiceImpl service = start(recordingWriter());
+
+        log(service, "s1");
+        log(service, "s2");
+        service.shutdown();
+        this.service = null;
+
+        assertThat(writtenCount()).isEqualTo(2);
+        // Logged after shutdown: straight to the spill file
+        log(service, "s3");
+        assertThat(meterRegistry.counter("question.log.spilled").count()).isEqualTo(1);
+    }
+
+    // The writer runs on its own thread
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private int writtenCount() {
+        return written.stream().mapToInt(List::size).sum();
+    }
+
+    private static void log(QuestionLogServiceImpl service, String sessionId) {
+        service.logQuestion(sessionId, "+2348012345678", "What is VAT rate?", "7.5%", "en", true, 1200);
+    }
+}
@@ -0,0 +1,75 @@
+package com.taxhelp.nigerian_tax_ussd.service.pipeline;
+
+import com.taxhelp.nigerian_tax_ussd.config.QuestionPipelineProperties;
+import com.taxhelp.nigerian_tax_ussd.service.QuestionProcessor;
+import com.taxhelp.nigerian_tax_ussd.service.util.DeadlineBudget;
+import com.taxhelp.nigerian_tax_ussd.service.util.QuestionExecutor;
+import com.taxhelp.nigerian_tax_ussd.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class StreamQuestionPipelineTest {
+
+    private static EmbeddedRedis redis;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        redis.close();
+    }
+
+    @Test
+    void trimKeepsEntriesNotYetHandled() {
+        QuestionPipelineProperties properties = new QuestionPipelineProperties();
+        String group = properties.getStream().getGroup();
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(redis.connectionFactory());
+        redisTemplate.afterPropertiesSet();
+        StreamQuestionPipeline pipeline = new StreamQuestionPipeline(mock(QuestionProcessor.class),
+                mock(QuestionExecutor.class), mock(DeadlineBudget.class), properties, redisTemplate);
+
+        StringRedisTemplate streams = new StringRedisTemplate(redis.connectionFactory());
+        String key = properties.getStream().getKeyPrefix() + PipelineStage.RAG_QUERY.getStreamName();
+        for (int i = 0; i < 1000; i++) {
+            streams.opsForStream().add(key, Map.of("question", "q" + i));
+        }
+        streams.opsForStream().createGroup(key, ReadOffset.from("0"), group);
+
+        // A backlog nobody has read yet is left alone, however long
+        pipeline.trim(PipelineStage.RAG_QUERY);
+        assertThat(streams.opsForStream().size(key)).isEqualTo(1000);
+
+        // 700 delivered, of which 500 acknowledged: 200 pending and 300 undelivered must stay
+        List<MapRecord<String, Object, Object>> delivered = streams.opsForStream().read(Consumer.from(group, "c1"),
+                StreamReadOptions.empty().count(700), StreamOffset.create(key, ReadOffset.lastConsumed()));
+        for (MapRecord<String, Object, Object> record : delivered.subList(0, 500)) {
+            streams.opsForStream().acknowledge(key, group, record.getId());
+        }
+        pipeline.trim(PipelineStage.RAG_QUERY);
+
+        // Approximate trimming drops whole nodes (100 entries), so up to 99 handled ones may remain
+        assertThat(streams.opsForStream().size(key)).isBetween(500L, 599L);
+        List<MapRecord<String, Object, Object>> remaining = streams.opsForStream().range(key,
+                Range.unbounded());
+        assertThat(remaining).extracting(MapRecord::getId).contains(delivered.get(500).getId());
+    }
+}
@@ -0,0 +1,146 @@
+package com.taxhelp.nigerian_tax_ussd.service.rag;
+
+import com.taxhelp.nigerian_tax_ussd.config.RagServiceProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RagEndpointPoolTest {
+
+    private final RagServiceProperties properties = new RagServiceProperties();
+    // What each replica's /health answers
+    private final Map<String, HttpStatus> health = new ConcurrentHashMap<>();
+    private final List<RagEndpoint> endpoints = new ArrayList<>();
+    private RagEndpointPool pool;
+
+    @BeforeEach
+    void setUp() {
+        properties.getHealth().setIntervalMillis(50L);
+        properties.getHedge().setMinSamples(5);
+        properties.getHedge().setMinDelayMillis(50L);
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    private RagEndpointPool start(String... urls) {
+        for (String url : urls) {
+            health.put(url, HttpStatus.OK);
+            WebClient webClient = WebClient.builder()
+                    .exchangeFunction(request -> Mono.fromSupplier(() -> ClientResponse.create(health.get(url)).build()))
+                    .build();
+            endpoints.add(new RagEndpoint(url, webClient, properties.getHedge().getWindowSize()));
+        }
+        pool = new RagEndpointPool(endpoints, properties, new SimpleMeterRegistry());
+        return pool;
+    }
+
+    @Test
+    void busiestReplicaIsNeverChosenOverALessBusyOne() {
+        start("http://rag-a", "http://rag-b", "http://rag-c");
+        RagEndpoint busy = endpoints.get(2);
+        for (int i = 0; i < 5; i++) {
+            busy.started();
+        }
+
+        // Two distinct replicas are compared, so the busiest always loses
+        for (int i = 0; i < 200; i++) {
+            assertThat(pool.choose(null)).isNotSameAs(busy);
+        }
+        assertThat(pool.choose(endpoints.get(0))).isSameAs(endpoints.get(1));
+    }
+
+    @Test
+    void slowQueryIsHedgedAfterTheP95AndTheLoserCancelled() throws Exception {
+        start("http://rag-a", "http://rag-b");
+        for (RagEndpoint endpoint : endpoints) {
+            for (int i = 0; i < 5; i++) {
+                endpoint.succeeded(150);
+            }
+        }
+        List<String> called = new CopyOnWriteArrayList<>();
+        List<String> cancelled = new CopyOnWriteArrayList<>();
+
+        long start = System.nanoTime();
+        String answer = pool.execute(endpoint -> {
+            called.add(endpoint.getUrl());
+            // The first replica is stuck, the hedge answers
+            return called.size() == 1
+                    ? Mono.<String>never().doOnCancel(() -> cancelled.add(endpoint.getUrl()))
+                    : Mono.just(endpoint.getUrl());
+        }).block(Duration.ofSeconds(5));
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertThat(called).hasSize(2).doesNotHaveDuplicates();
+        assertThat(answer).isEqualTo(called.get(1));
+        assertThat(cancelled).containsExactly(called.get(0));
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(150);
+        RagEndpoint hedged = endpoints.stream().filter(e -> e.getUrl().equals(answer)).findFirst().orElseThrow();
+        assertThat(hedged.getStats().getHedgesSent()).isEqualTo(1);
+        assertThat(hedged.getStats().getHedgesWon()).isEqualTo(1);
+        // Released once the winner completes, which may be just after block() returns
+        waitUntil(() -> endpoints.stream().allMatch(endpoint -> endpoint.getOutstanding() == 0));
+    }
+
+    @Test
+    void noHedgeUntilEnoughAnswersHaveBeenSeen() {
+        start("http://rag-a", "http://rag-b");
+        List<String> called = new CopyOnWriteArrayList<>();
+
+        String answer = pool.execute(endpoint -> {
+            called.add(endpoint.getUrl());
+            return Mono.delay(Duration.ofMillis(200)).thenReturn(endpoint.getUrl());
+        }).block(Duration.ofSeconds(5));
+
+        assertThat(called).containsExactly(answer);
+    }
+
+    @Test
+    void healthProbesTakeReplicasOutAndBringThemBack() throws Exception {
+        start("http://rag-a", "http://rag-b");
+        RagEndpoint down = endpoints.get(0);
+
+        health.put(down.getUrl(), HttpStatus.SERVICE_UNAVAILABLE);
+        waitUntil(() -> !down.isHealthy());
+        for (int i = 0; i < 50; i++) {
+            assertThat(pool.choose(null)).isNotSameAs(down);
+        }
+
+        health.put(down.getUrl(), HttpStatus.OK);
+        waitUntil(down::isHealthy);
+    }
+
+    @Test
+    void replicasMarkedDownAreStillTriedWhenNoneIsHealthy() throws Exception {
+        start("http://rag-a");
+        health.put("http://rag-a", HttpStatus.SERVICE_UNAVAILABLE);
+        waitUntil(() -> !endpoints.get(0).isHealthy());
+
+        assertThat(pool.execute(endpoint -> Mono.just("answer")).block(Duration.ofSeconds(5))).isEqualTo("answer");
+    }
+
+    // Probes and hedges run on other threads
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
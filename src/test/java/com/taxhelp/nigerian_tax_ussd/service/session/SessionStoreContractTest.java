@@ -0,0 +1,376 @@
+package com.taxhelp.nigerian_tax_ussd.service.session;
+
+import com.taxhelp.nigerian_tax_ussd.config.RedisConfig;
+import com.taxhelp.nigerian_tax_ussd.model.UserSession;
+import com.taxhelp.nigerian_tax_ussd.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Behaviour every {@link SessionStore} must share. The Redis store runs
+ * against an embedded server; the tiered store is covered with in-memory
+ * stores standing in for Redis, so outages can be switched on and off.
+ */
+class SessionStoreContractTest {
+
+    private static final long TTL_SECONDS = 300;
+    private static final UserSessionCodec CODEC = new UserSessionCodec(new RedisConfig().objectMapper());
+
+    private final AtomicLong clock = new AtomicLong(1768460400000L);
+    private final List<AutoCloseable> opened = new ArrayList<>();
+    // Started by the first Redis test, shared by the rest
+    private static EmbeddedRedis redis;
+
+    private InMemorySessionStore memoryStore() {
+        InMemorySessionStore store = new InMemorySessionStore(CODEC, TTL_SECONDS, 1000, 512, clock::get);
+        opened.add(store);
+        return store;
+    }
+
+    @AfterEach
+    void closeStores() throws Exception {
+        for (AutoCloseable store : opened) {
+            store.close();
+        }
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        if (redis != null) {
+            redis.close();
+        }
+    }
+
+    private static UserSession session(String sessionId) {
+        return UserSession.builder()
+                .sessionId(sessionId)
+                .phoneNumber("+2348012345678")
+                .stage(UserSession.SessionStage.INITIAL)
+                .createdAt(Instant.ofEpochMilli(1768460400000L))
+                .build();
+    }
+
+    abstract class Contract {
+
+        SessionStore store;
+
+        abstract SessionStore createStore();
+
+        // Whether the store reads the test clock, so expiry can be tested without waiting
+        boolean usesTestClock() {
+            return true;
+        }
+
+        @BeforeEach
+        void setUp() {
+            store = createStore();
+        }
+
+        @Test
+        void createOrTouchStoresCandidateOnlyOnce() {
+            UserSession candidate = session("s1");
+            assertThat(store.createOrTouch(candidate)).isSameAs(candidate);
+
+            UserSession withLanguage = session("s1");
+            withLanguage.setLanguage("ha");
+            store.save(withLanguage);
+
+            UserSession again = store.createOrTouch(session("s1"));
+            assertThat(again.getLanguage()).isEqualTo("ha");
+        }
+
+        @Test
+        void returnsCopies() {
+            store.save(session("s1"));
+            store.touch("s1").orElseThrow().setLanguage("yo");
+
+            assertThat(store.touch("s1").orElseThrow().getLanguage()).isNull();
+        }
+
+        @Test
+        void sessionsExpireAfterTtl() {
+            assumeTrue(usesTestClock());
+            store.save(session("s1"));
+            assertThat(store.getTtlSeconds("s1")).isBetween(TTL_SECONDS - 1, TTL_SECONDS);
+
+            clock.addAndGet((TTL_SECONDS + 1) * 1000);
+
+            assertThat(store.touch("s1")).isEmpty();
+            assertThat(store.exists("s1")).isFalse();
+            assertThat(store.getTtlSeconds("s1")).isEqualTo(-2);
+            UserSession candidate = session("s1");
+            assertThat(store.createOrTouch(candidate)).isSameAs(candidate);
+        }
+
+        @Test
+        void readsRefreshTtl() {
+            assumeTrue(usesTestClock());
+            store.save(session("s1"));
+            clock.addAndGet(200_000);
+            assertThat(store.touch("s1")).isPresent();
+            clock.addAndGet(200_000);
+            assertThat(store.createOrTouch(session("s1"))).isNotNull();
+            clock.addAndGet(200_000);
+
+            assertThat(store.exists("s1")).isTrue();
+        }
+
+        @Test
+        void deleteCountAndClear() {
+            store.save(session("s1"));
+            store.save(session("s2"));
+            store.createOrTouch(session("s3"));
+            assertThat(store.countActive()).isEqualTo(3);
+
+            assertThat(store.delete("s1")).isTrue();
+            assertThat(store.delete("s1")).isFalse();
+            assertThat(store.exists("s1")).isFalse();
+            assertThat(store.countActive()).isEqualTo(2);
+
+            assertThat(store.clear()).isEqualTo(2);
+            assertThat(store.countActive()).isZero();
+            assertThat(store.touch("s2")).isEmpty();
+        }
+
+        @Test
+        void takeReadsAndRemoves() {
+            UserSession withLanguage = session("s1");
+            withLanguage.setLanguage("ha");
+            store.save(withLanguage);
+
+            assertThat(store.take("s1").map(UserSession::getLanguage)).contains("ha");
+            assertThat(store.take("s1")).isEmpty();
+            assertThat(store.exists("s1")).isFalse();
+            assertThat(store.countActive()).isZero();
+        }
+    }
+
+    @Nested
+    class InMemory extends Contract {
+        @Override
+        SessionStore createStore() {
+            return memoryStore();
+        }
+
+        @Test
+        void timingWheelReclaimsSessionsNobodyReads() throws Exception {
+            InMemorySessionStore memory = (InMemorySessionStore) store;
+            memory.save(session("s1"));
+
+            clock.addAndGet((TTL_SECONDS + 2) * 1000);
+            // Driven by the store's own wheel thread, which reads the same clock
+            for (int i = 0; i < 50 && memory.countActive() > 0; i++) {
+                Thread.sleep(100);
+            }
+            assertThat(memory.countActive()).isZero();
+        }
+    }
+
+    @Nested
+    class Tiered extends Contract {
+        final Switchable remote = new Switchable(memoryStore());
+
+        @Override
+        SessionStore createStore() {
+            return new TieredSessionStore(memoryStore(), remote, 0);
+        }
+
+        @Test
+        void changesDuringOutageWinOverTheStaleRemoteCopy() {
+            store.createOrTouch(session("s1"));
+
+            remote.down = true;
+            UserSession withLanguage = session("s1");
+            withLanguage.setLanguage("ig");
+            store.save(withLanguage);
+            assertThat(store.createOrTouch(session("s1")).getLanguage()).isEqualTo("ig");
+
+            // Remote comes back still holding the copy from before the outage
+            remote.down = false;
+            assertThat(store.createOrTouch(session("s1")).getLanguage()).isEqualTo("ig");
+            assertThat(remote.delegate.touch("s1").map(UserSession::getLanguage)).contains("ig");
+        }
+
+        @Test
+        void sessionsCreatedDuringOutageReachTheRemote() {
+            remote.down = true;
+            UserSession withLanguage = session("s1");
+            withLanguage.setLanguage("yo");
+            store.createOrTouch(session("s1"));
+            store.save(withLanguage);
+
+            remote.down = false;
+            assertThat(store.countActive()).isEqualTo(1);
+            assertThat(remote.delegate.touch("s1").map(UserSession::getLanguage)).contains("yo");
+        }
+
+        @Test
+        void removalsDuringOutageAreReplayed() {
+            store.save(session("s1"));
+            store.save(session("s2"));
+
+            remote.down = true;
+            assertThat(store.delete("s1")).isTrue();
+            assertThat(store.take("s2")).isPresent();
+
+            remote.down = false;
+            assertThat(store.exists("s1")).isFalse();
+            assertThat(store.exists("s2")).isFalse();
+            assertThat(remote.delegate.countActive()).isZero();
+        }
+    }
+
+    @Nested
+    class Redis extends Contract {
+        @Override
+        SessionStore createStore() {
+            if (redis == null) {
+                try {
+                    redis = EmbeddedRedis.start();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            redis.flushAll();
+            return new RedisSessionStore(new RedisConfig().redisTemplate(redis.connectionFactory()), CODEC, TTL_SECONDS);
+        }
+
+        // Expiry is Redis's own, on the wall clock
+        @Override
+        boolean usesTestClock() {
+            return false;
+        }
+
+        @Test
+        void sessionsExpireOnRedisClock() throws Exception {
+            RedisSessionStore shortLived = new RedisSessionStore(
+                    new RedisConfig().redisTemplate(redis.connectionFactory()), CODEC, 1);
+            shortLived.save(session("s1"));
+            assertThat(shortLived.countActive()).isEqualTo(1);
+
+            Thread.sleep(1500);
+
+            assertThat(shortLived.touch("s1")).isEmpty();
+            assertThat(shortLived.getTtlSeconds("s1")).isEqualTo(-2);
+            assertThat(shortLived.countActive()).isZero();
+        }
+
+        @Test
+        void clearRemovesOnlyIndexedSessions() {
+            for (int i = 0; i < 1200; i++) {
+                store.save(session("s" + i));
+            }
+            RedisTemplate<String, Object> template = new RedisConfig().redisTemplate(redis.connectionFactory());
+            template.opsForValue().set("rate:{+2348012345678}:tokens", "5");
+
+            // More sessions than one batch in some shards
+            assertThat(store.clear()).isEqualTo(1200);
+            assertThat(store.countActive()).isZero();
+            assertThat(template.keys("session*")).isEmpty();
+            assertThat(template.hasKey("rate:{+2348012345678}:tokens")).isTrue();
+        }
+
+        @Test
+        void sessionKeysShareTheSlotOfTheirIndex() {
+            assertThat(RedisSessionStore.sessionKey("ATUid_1")).startsWith("session:{");
+            for (String sessionId : List.of("ATUid_1", "ATUid_2", "s3")) {
+                String sessionTag = RedisSessionStore.sessionKey(sessionId).split("[{}]")[1];
+                assertThat(RedisSessionStore.activeSessionsKey(Integer.parseInt(sessionTag)))
+                        .contains("{" + sessionTag + "}");
+            }
+        }
+    }
+
+    @Nested
+    class TieredWithRemoteDown extends Contract {
+        @Override
+        SessionStore createStore() {
+            Switchable remote = new Switchable(memoryStore());
+            remote.down = true;
+            return new TieredSessionStore(memoryStore(), remote, 60_000);
+        }
+    }
+
+    // Delegates to another store, or fails every call while down
+    static class Switchable implements SessionStore {
+        final SessionStore delegate;
+        volatile boolean down;
+
+        Switchable(SessionStore delegate) {
+            this.delegate = delegate;
+        }
+
+        private void check() {
+            if (down) {
+                throw new IllegalStateException("remote store unavailable");
+            }
+        }
+
+        @Override
+        public UserSession createOrTouch(UserSession candidate) {
+            check();
+            return delegate.createOrTouch(candidate);
+        }
+
+        @Override
+        public Optional<UserSession> touch(String sessionId) {
+            check();
+            return delegate.touch(sessionId);
+        }
+
+        @Override
+        public void save(UserSession session) {
+            check();
+            delegate.save(session);
+        }
+
+        @Override
+        public boolean delete(String sessionId) {
+            check();
+            return delegate.delete(sessionId);
+        }
+
+        @Override
+        public Optional<UserSession> take(String sessionId) {
+            check();
+            return delegate.take(sessionId);
+        }
+
+        @Override
+        public boolean exists(String sessionId) {
+            check();
+            return delegate.exists(sessionId);
+        }
+
+        @Override
+        public long getTtlSeconds(String sessionId) {
+            check();
+            return delegate.getTtlSeconds(sessionId);
+        }
+
+        @Override
+        public long countActive() {
+            check();
+            return delegate.countActive();
+        }
+
+        @Override
+        public long clear() {
+            check();
+            return delegate.clear();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.taxhelp.nigerian_tax_ussd.service.session;
+
+import com.taxhelp.nigerian_tax_ussd.config.RedisConfig;
+import com.taxhelp.nigerian_tax_ussd.model.UserSession;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserSessionCodecTest {
+
+    private final GenericJackson2JsonRedisSerializer json =
+            new GenericJackson2JsonRedisSerializer(new RedisConfig().objectMapper());
+    private final UserSessionCodec codec = new UserSessionCodec(new RedisConfig().objectMapper());
+
+    private static UserSession session() {
+        return UserSession.builder()
+                .sessionId("ATUid_3f1b0c9e8d7a6b5c4d3e2f1a0b9c8d7e")
+                .phoneNumber("+2348031234567")
+                .language("yo")
+                .stage(UserSession.SessionStage.LANGUAGE_SELECTED)
+                .createdAt(Instant.ofEpochMilli(1768460400123L))
+                .lastAccessedAt(Instant.ofEpochMilli(1768460412456L))
+                .build();
+    }
+
+    @Test
+    void roundTripsAllFields() {
+        assertThat(codec.deserialize(codec.serialize(session()))).isEqualTo(session());
+
+        UserSession empty = new UserSession();
+        assertThat(codec.deserialize(codec.serialize(empty))).isEqualTo(empty);
+    }
+
+    @Test
+    void readsSessionsWrittenAsJson() {
+        byte[] legacy = json.serialize(session());
+        assertThat(codec.deserialize(legacy)).isEqualTo(session());
+    }
+
+    @Test
+    void rejectsUnknownVersionsAndTruncatedValues() {
+        byte[] value = codec.serialize(session());
+
+        byte[] future = value.clone();
+        future[1] = 2;
+        assertThatThrownBy(() -> codec.deserialize(future)).isInstanceOf(SerializationException.class);
+
+        byte[] truncated = Arrays.copyOf(value, value.length - 4);
+        assertThatThrownBy(() -> codec.deserialize(truncated)).isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void isLessThanHalfTheSizeOfJson() {
+        UserSession session = session();
+
+        assertThat(codec.serialize(session).length).isLessThan(json.serialize(session).length / 2);
+    }
+}
@@ -0,0 +1,117 @@
+package com.taxhelp.nigerian_tax_ussd.service.sms;
+
+import com.taxhelp.nigerian_tax_ussd.config.SmsDeliveryProperties;
+import com.taxhelp.nigerian_tax_ussd.repository.SmsDeliveryWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SmsDeliveryServiceTest {
+
+    private final SmsDeliveryProperties properties = new SmsDeliveryProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Writer calls in order: "link:<messageId>" or "report:<messageId>"
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final Set<String> linked = new ConcurrentSkipListSet<>();
+    private SmsDeliveryService service;
+
+    @BeforeEach
+    void setUp() {
+        properties.setFlushIntervalMillis(20);
+        properties.setMatchRetryMillis(20L);
+        properties.setMaxMatchAttempts(3);
+    }
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    // Links find their log only for sessions in knownSessions; reports match linked message ids
+    private void start(Set<String> knownSessions) {
+        SmsDeliveryWriter writer = new SmsDeliveryWriter(null, null) {
+            @Override
+            public boolean[] linkMessageIds(List<MessageLink> links) {
+                boolean[] found = new boolean[links.size()];
+                for (int i = 0; i < found.length; i++) {
+                    calls.add("link:" + links.get(i).messageId());
+                    found[i] = knownSessions.contains(links.get(i).sessionId());
+                    if (found[i]) {
+                        linked.add(links.get(i).messageId());
+                    }
+                }
+                return found;
+            }
+
+            @Override
+            public Applied applyReports(List<Report> reports) {
+                reports.forEach(report -> calls.add("report:" + report.messageId()));
+                return new Applied(Set.copyOf(reports.stream().map(Report::messageId).filter(linked::contains).toList()),
+                        List.of());
+            }
+        };
+        service = new SmsDeliveryService(writer, properties, meterRegistry);
+    }
+
+    @Test
+    void linkIsWrittenBeforeAReportThatOvertookIt() throws Exception {
+        start(Set.of("s1"));
+
+        service.report("m1", "Success");
+        service.sent("s1", SmsResult.accepted("+2348012345678", "m1", "Success"), System.currentTimeMillis());
+
+        waitUntil(() -> applied("report") == 1);
+        assertThat(calls.indexOf("link:m1")).isLessThan(calls.lastIndexOf("report:m1"));
+        assertThat(applied("message-id")).isEqualTo(1);
+        assertThat(unmatched("report")).isZero();
+    }
+
+    @Test
+    void updatesWithoutAQuestionLogAreRetriedUpToTheCap() throws Exception {
+        start(Set.of());
+
+        service.sent("s9", SmsResult.accepted("+2348012345678", "m9", "Success"), System.currentTimeMillis());
+        service.report("m8", "Success");
+
+        waitUntil(() -> unmatched("message-id") == 1 && unmatched("report") == 1);
+        Thread.sleep(100);
+        assertThat(calls.stream().filter("link:m9"::equals)).hasSize(3);
+        assertThat(calls.stream().filter("report:m8"::equals)).hasSize(3);
+    }
+
+    @Test
+    void unknownStatusesAreRecordedAsOther() {
+        start(Set.of());
+
+        service.report("m1", "<script>");
+        service.report("m2", "success");
+
+        assertThat(meterRegistry.counter("sms.delivery.reports", "status", "other").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("sms.delivery.reports", "status", "Success").count()).isEqualTo(1);
+    }
+
+    private double applied(String type) {
+        return meterRegistry.counter("sms.delivery.updates", "type", type, "outcome", "applied").count();
+    }
+
+    private double unmatched(String type) {
+        return meterRegistry.counter("sms.delivery.updates", "type", type, "outcome", "unmatched").count();
+    }
+
+    // The writer runs on its own thread
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,113 @@
+package com.taxhelp.nigerian_tax_ussd.service.sms;
+
+import com.taxhelp.nigerian_tax_ussd.config.SmsDispatcherProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SmsDispatcherTest {
+
+    private final SmsDispatcherProperties properties = new SmsDispatcherProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Gateway calls as "<message>:<recipients>"
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final List<String> accepted = new CopyOnWriteArrayList<>();
+    private SmsDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        properties.setWheelTickMillis(10L);
+        properties.setWheelSize(64);
+        properties.setShutdownTimeoutSeconds(1);
+    }
+
+    @AfterEach
+    void close() {
+        dispatcher.close();
+    }
+
+    private SmsDispatcher start(SmsDispatcher.Gateway gateway) {
+        dispatcher = new SmsDispatcher(properties, (message, recipients) -> {
+            calls.add(message + ":" + recipients);
+            return gateway.send(message, recipients);
+        }, (reference, result, submittedAtMillis) -> accepted.add(reference + ":" + result.messageId()),
+                meterRegistry);
+        return dispatcher;
+    }
+
+    @Test
+    void identicalBodiesWaitingTogetherShareACall() throws Exception {
+        // One call every 200ms, so the rest pile up behind the first
+        properties.setRatePerSecond(5.0);
+        properties.setBurst(1);
+        properties.setMaxRecipientsPerCall(2);
+        SmsDispatcher dispatcher = start((message, recipients) -> List.of());
+
+        dispatcher.submit("p1", "VAT is 7.5%", null).get(5, TimeUnit.SECONDS);
+        dispatcher.submit("p2", "VAT is 7.5%", null);
+        dispatcher.submit("p3", "VAT is 7.5%", null);
+        dispatcher.submit("p4", "PAYE is monthly", null);
+        dispatcher.submit("p5", "VAT is 7.5%", null);
+
+        waitUntil(() -> calls.size() == 4);
+        // Oldest body first, at most two recipients a call
+        assertThat(calls).containsExactly(
+                "VAT is 7.5%:[p1]",
+                "VAT is 7.5%:[p2, p3]",
+                "VAT is 7.5%:[p5]",
+                "PAYE is monthly:[p4]");
+        assertThat(sms("sent")).isEqualTo(5);
+    }
+
+    @Test
+    void retryableRecipientsAreRetriedUpToMaxAttempts() throws Exception {
+        properties.setRatePerSecond(1000.0);
+        properties.setMaxAttempts(3);
+        properties.setRetryBaseDelayMillis(20L);
+        AtomicBoolean gatewayDown = new AtomicBoolean(true);
+        SmsDispatcher dispatcher = start((message, recipients) -> {
+            // The first call to p2 fails as a whole, whoever else is in it
+            if (recipients.contains("p2") && gatewayDown.getAndSet(false)) {
+                throw new IllegalStateException("gateway down");
+            }
+            return recipients.stream()
+                    .map(number -> number.equals("p1")
+                            ? SmsResult.retryable(number, "busy")
+                            : SmsResult.accepted(number, "m-" + number, "Success"))
+                    .toList();
+        });
+
+        dispatcher.submit("p1", "VAT is 7.5%", "s1");
+        dispatcher.submit("p2", "VAT is 7.5%", "s2");
+
+        waitUntil(() -> sms("dropped") == 1 && sms("sent") == 1);
+        // p1 gave up after its third attempt, p2 went through on its second
+        assertThat(calls.stream().filter(call -> call.contains("p1"))).hasSize(3);
+        assertThat(calls.stream().filter(call -> call.contains("p2"))).hasSize(2);
+        assertThat(sms("retried")).isEqualTo(3);
+        assertThat(sms("sent")).isEqualTo(1);
+        assertThat(accepted).containsExactly("s2:m-p2");
+        assertThat(dispatcher.queued()).isZero();
+    }
+
+    private double sms(String outcome) {
+        return meterRegistry.counter("sms.messages", "outcome", outcome).count();
+    }
+
+    // Sends and retries run on the dispatcher's threads
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,119 @@
+package com.taxhelp.nigerian_tax_ussd.service.sms;
+
+import com.taxhelp.nigerian_tax_ussd.config.SmsRoutingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SmsProviderRouterTest {
+
+    private static final List<String> RECIPIENTS = List.of("+2348012345678", "+2348087654321");
+
+    private final StubSmsProvider primary = new StubSmsProvider("stub-primary");
+    private final StubSmsProvider secondary = new StubSmsProvider("stub-secondary");
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void usesPrimaryAndFailsOverWhenItThrows() throws Exception {
+        SmsProviderRouter router = router(100, 0);
+
+        List<SmsResult> results = router.send("hello", RECIPIENTS);
+        assertThat(results).extracting(SmsResult::status).containsOnly(SmsResult.Status.ACCEPTED);
+        assertThat(results).extracting(SmsResult::messageId).allMatch(id -> id.startsWith("stub-primary"));
+        assertThat(secondary.getCalls()).isZero();
+
+        primary.setFailureRate(1.0);
+        results = router.send("hello", RECIPIENTS);
+        assertThat(results).extracting(SmsResult::messageId).allMatch(id -> id.startsWith("stub-secondary"));
+        assertThat(meterRegistry.counter("sms.provider.failovers").count()).isEqualTo(1);
+
+        secondary.setFailureRate(1.0);
+        assertThatThrownBy(() -> router.send("hello", RECIPIENTS)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void failsOverWhenEveryRecipientIsRetryable() throws Exception {
+        SmsProviderRouter router = router(100, 0);
+        primary.setStatus(SmsResult.Status.RETRYABLE);
+
+        List<SmsResult> results = router.send("hello", RECIPIENTS);
+        assertThat(results).extracting(SmsResult::status).containsOnly(SmsResult.Status.ACCEPTED);
+        assertThat(results).extracting(SmsResult::messageId).allMatch(id -> id.startsWith("stub-secondary"));
+        assertThat(meterRegistry.counter("sms.provider.failovers").count()).isEqualTo(1);
+
+        // Nobody took it: the retryable results go back for the dispatcher to retry
+        secondary.setStatus(SmsResult.Status.RETRYABLE);
+        results = router.send("hello", RECIPIENTS);
+        assertThat(results).hasSize(2).extracting(SmsResult::status).containsOnly(SmsResult.Status.RETRYABLE);
+        assertThat(primary.getCalls()).isEqualTo(2);
+        assertThat(secondary.getCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void degradedPrimaryIsSkippedUntilCooldownEnds() throws Exception {
+        SmsProviderRouter router = router(100, 0);
+        primary.setStatus(SmsResult.Status.RETRYABLE);
+
+        // Every recipient bouncing counts as an error (and fails over); minCalls of them degrade the primary
+        for (int i = 0; i < 3; i++) {
+            router.send("hello", RECIPIENTS);
+        }
+        assertThat(router.getStats().get(0).isDegraded()).isTrue();
+        assertThat(secondary.getCalls()).isEqualTo(3);
+
+        router.send("hello", RECIPIENTS);
+        assertThat(primary.getCalls()).isEqualTo(3);
+        assertThat(secondary.getCalls()).isEqualTo(4);
+
+        primary.setStatus(SmsResult.Status.ACCEPTED);
+        clock.addAndGet(30_001L);
+        router.send("hello", RECIPIENTS);
+        assertThat(primary.getCalls()).isEqualTo(4);
+        assertThat(router.getStats().get(0).isDegraded()).isFalse();
+    }
+
+    @Test
+    void slowPrimaryIsDegraded() throws Exception {
+        SmsProviderRouter router = router(100, 0);
+        primary.setLatencyMillis(60);
+
+        for (int i = 0; i < 3; i++) {
+            router.send("hello", RECIPIENTS);
+        }
+        assertThat(router.getStats().get(0).isDegraded()).isTrue();
+
+        router.send("hello", RECIPIENTS);
+        assertThat(secondary.getCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void splitsTrafficByWeight() throws Exception {
+        SmsProviderRouter router = router(80, 20);
+
+        for (int i = 0; i < 1000; i++) {
+            router.send("hello", RECIPIENTS);
+        }
+        assertThat(primary.getCalls()).isBetween(700L, 900L);
+        assertThat(primary.getCalls() + secondary.getCalls()).isEqualTo(1000);
+    }
+
+    private SmsProviderRouter router(int primaryWeight, int secondaryWeight) {
+        SmsRoutingProperties properties = new SmsRoutingProperties();
+        properties.setProviders(List.of(
+                new SmsRoutingProperties.Route(primary.getName(), primaryWeight),
+                new SmsRoutingProperties.Route(secondary.getName(), secondaryWeight)));
+        properties.setMinCalls(3);
+        properties.setMaxLatencyMillis(40L);
+        properties.setCooldownMillis(30_000L);
+        return new SmsProviderRouter(properties,
+                Map.of(primary.getName(), primary, secondary.getName(), secondary),
+                meterRegistry, clock::get);
+    }
+}
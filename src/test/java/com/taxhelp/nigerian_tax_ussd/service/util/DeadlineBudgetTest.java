@@ -0,0 +1,65 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+import com.taxhelp.nigerian_tax_ussd.config.QuestionBudgetProperties;
+import com.taxhelp.nigerian_tax_ussd.model.QuestionJob;
+import com.taxhelp.nigerian_tax_ussd.service.cache.StaticTranslations;
+import com.taxhelp.nigerian_tax_ussd.service.pipeline.PipelineStage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeadlineBudgetTest {
+
+    private final QuestionBudgetProperties properties = new QuestionBudgetProperties();
+    private final DeadlineBudget budget = new DeadlineBudget(properties, new SimpleMeterRegistry());
+
+    @Test
+    void spentBudgetFailsTheStage() {
+        QuestionJob job = QuestionJob.builder().startTime(System.currentTimeMillis() - properties.getTotalMillis() - 1).build();
+
+        assertThat(budget.remainingMillis(job)).isNegative();
+        assertThatThrownBy(() -> budget.run(PipelineStage.RAG_QUERY, job, () -> Mono.just("answer")).block())
+                .isInstanceOf(DeadlineBudget.ExceededException.class);
+    }
+
+    @Test
+    void reclaimedJobGetsAFreshBudget() {
+        // Idle with a dead consumer for the default reclaim time (3 minutes), twice the budget
+        QuestionJob job = QuestionJob.builder().startTime(System.currentTimeMillis() - 180_000L).build();
+
+        budget.restart(job);
+
+        assertThat(budget.remainingMillis(job)).isBetween(properties.getTotalMillis() - 1000, properties.getTotalMillis());
+        assertThat(budget.run(PipelineStage.RAG_QUERY, job, () -> Mono.just("answer")).block()).isEqualTo("answer");
+        // Survives the hop to the next stage's stream, and the response time still counts from the question
+        QuestionJob next = QuestionJob.fromMap(job.toMap());
+        assertThat(next.budgetStartedAt()).isEqualTo(job.getBudgetStartTime());
+        assertThat(next.getStartTime()).isEqualTo(job.getStartTime());
+    }
+
+    @Test
+    void stageLimitStillApplies() {
+        properties.getStageMillis().put(PipelineStage.RAG_QUERY.getStreamName(), 50L);
+        QuestionJob job = QuestionJob.builder().startTime(System.currentTimeMillis()).build();
+
+        assertThatThrownBy(() -> budget.run(PipelineStage.RAG_QUERY, job,
+                () -> Mono.just("answer").delayElement(Duration.ofSeconds(1))).block())
+                .hasCauseInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    void timeoutMessageIsBundledForEveryLanguage() {
+        StaticTranslations translations = new StaticTranslations();
+
+        for (String language : new String[]{"yo", "ig", "ha"}) {
+            assertThat(translations.lookup(StaticTranslations.TIMEOUT_MESSAGE, "en", language)).isPresent();
+            assertThat(translations.missing(language)).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalRateLimiterTest {
+
+    private static final ZoneId LAGOS = ZoneId.of("Africa/Lagos");
+    // 2026-01-15 08:00 Lagos
+    private static final long MORNING = 1768460400000L;
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    void enforcesHourlyWindowAndDailyLimit() {
+        AtomicLong clock = new AtomicLong(MORNING);
+        LocalRateLimiter limiter = new LocalRateLimiter(5, 3, LAGOS, clock::get);
+
+        assertThat(limiter.tryAcquire("+2348012345678")).isEqualTo(1);
+        assertThat(limiter.tryAcquire("+2348012345678")).isEqualTo(2);
+        assertThat(limiter.tryAcquire("+2348012345678")).isEqualTo(3);
+        assertThat(limiter.tryAcquire("+2348012345678")).isEqualTo(LocalRateLimiter.REJECTED_HOURLY);
+        assertThat(limiter.getDailyCount("+2348012345678")).isEqualTo(3);
+
+        // Earlier requests slide out of the hourly window
+        clock.addAndGet(61 * MINUTE);
+        assertThat(limiter.tryAcquire("+2348012345678")).isEqualTo(4);
+        assertThat(limiter.tryAcquire("+2348012345678")).isEqualTo(5);
+        assertThat(limiter.tryAcquire("+2348012345678")).isEqualTo(LocalRateLimiter.REJECTED_DAILY);
+
+        // Resets at midnight
+        clock.addAndGet(17 * 60 * MINUTE);
+        assertThat(limiter.getDailyCount("+2348012345678")).isZero();
+        assertThat(limiter.tryAcquire("+2348012345678")).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentRequestsCannotOvershoot() throws Exception {
+        LocalRateLimiter limiter = new LocalRateLimiter(50, 15, LAGOS);
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    if (limiter.tryAcquire("+2348099999999") > 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(allowed.get()).isEqualTo(15);
+    }
+
+    @Test
+    void reusesExpiredEntriesInsteadOfGrowing() {
+        AtomicLong clock = new AtomicLong(MORNING);
+        LocalRateLimiter limiter = new LocalRateLimiter(50, 15, LAGOS, clock::get);
+
+        for (int i = 0; i < 20_000; i++) {
+            limiter.tryAcquire("+23480" + (10_000_000 + i));
+        }
+        int firstDay = limiter.size();
+
+        // Next day, a different set of callers
+        clock.addAndGet(24 * 60 * MINUTE);
+        for (int i = 0; i < 20_000; i++) {
+            limiter.tryAcquire("+23481" + (10_000_000 + i));
+        }
+
+        assertThat(limiter.size()).isLessThanOrEqualTo(firstDay);
+    }
+
+    @Test
+    void allocationPerCallIsNearZero() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        LocalRateLimiter limiter = new LocalRateLimiter(Integer.MAX_VALUE, Integer.MAX_VALUE, LAGOS);
+
+        String[] numbers = new String[10_000];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = "+234803" + (1_000_000 + i);
+        }
+        // Warm up so tables are sized and the JIT has compiled the hot path
+        for (int i = 0; i < 500_000; i++) {
+            limiter.tryAcquire(numbers[i % numbers.length]);
+        }
+
+        int calls = 1_000_000;
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < calls; i++) {
+            limiter.tryAcquire(numbers[i % numbers.length]);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat((double) allocated / calls).isLessThan(0.1);
+    }
+}
@@ -0,0 +1,39 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MicroBatcherTest {
+
+    @Test
+    void equalItemsInABatchAreSentOnce() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        List<List<String>> calls = new CopyOnWriteArrayList<>();
+        try (MicroBatcher<String, String, String> batcher = new MicroBatcher<>("test", 50, 10,
+                (key, items) -> {
+                    calls.add(items);
+                    return CompletableFuture.completedFuture(items.stream().map(item -> key + ":" + item).toList());
+                }, meterRegistry)) {
+
+            CompletableFuture<String> first = batcher.submit("en:yo", "hello");
+            CompletableFuture<String> other = batcher.submit("en:yo", "thanks");
+            CompletableFuture<String> repeat = batcher.submit("en:yo", "hello");
+            CompletableFuture<String> otherPair = batcher.submit("en:ha", "hello");
+
+            assertThat(first.get(1, TimeUnit.SECONDS)).isEqualTo("en:yo:hello");
+            assertThat(repeat.get(1, TimeUnit.SECONDS)).isEqualTo("en:yo:hello");
+            assertThat(other.get(1, TimeUnit.SECONDS)).isEqualTo("en:yo:thanks");
+            assertThat(otherPair.get(1, TimeUnit.SECONDS)).isEqualTo("en:ha:hello");
+        }
+
+        assertThat(calls).containsExactlyInAnyOrder(List.of("hello", "thanks"), List.of("hello"));
+        assertThat(meterRegistry.counter("batcher.items.deduplicated", "name", "test").count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,83 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+import com.taxhelp.nigerian_tax_ussd.config.QuestionExecutorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QuestionExecutorTest {
+
+    private final QuestionExecutorProperties properties = new QuestionExecutorProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private QuestionExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void workBeyondTheQueueIsRejected() throws Exception {
+        properties.setMaxInFlight(2);
+        properties.setQueueCapacity(1);
+        executor = new QuestionExecutor(properties, meterRegistry);
+        CountDownLatch running = new CountDownLatch(2);
+        AtomicInteger completed = new AtomicInteger();
+        Runnable blocked = () -> {
+            running.countDown();
+            await(release);
+            completed.incrementAndGet();
+        };
+
+        assertThat(executor.submit(blocked)).isTrue();
+        assertThat(executor.submit(blocked)).isTrue();
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.submit(blocked)).isTrue();
+
+        assertThat(executor.submit(blocked)).isFalse();
+        assertThat(executor.submit(blocked)).isFalse();
+        QuestionExecutor.ExecutorStats stats = executor.getStats();
+        assertThat(stats.getActiveTasks()).isEqualTo(2);
+        assertThat(stats.getQueueSize()).isEqualTo(1);
+        assertThat(stats.getRejectedTasks()).isEqualTo(2);
+        assertThat(meterRegistry.get("question.executor.rejected").functionCounter().count()).isEqualTo(2);
+
+        // Everything accepted, queued or running, still completes on shutdown
+        release.countDown();
+        executor.shutdown();
+        assertThat(completed).hasValue(3);
+    }
+
+    @Test
+    void questionsRunOnVirtualThreads() throws Exception {
+        executor = new QuestionExecutor(properties, meterRegistry);
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicInteger virtual = new AtomicInteger();
+
+        executor.submit(() -> {
+            if (Thread.currentThread().isVirtual()) {
+                virtual.incrementAndGet();
+            }
+            ran.countDown();
+        });
+
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(virtual).hasValue(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("rag", new SimpleMeterRegistry());
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareTheLeadersResult() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        Future<String> leader = callers.submit(() -> singleFlight.execute("vat", () -> {
+            leaderStarted.countDown();
+            return slowAnswer("7.5%");
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            followers.add(callers.submit(() -> singleFlight.execute("vat", () -> slowAnswer("other"))));
+        }
+        // Another key is not held up
+        assertThat(singleFlight.execute("cit", () -> "30%")).isEqualTo("30%");
+        waitForFollowers(5);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("7.5%");
+        for (Future<String> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("7.5%");
+        }
+        assertThat(upstreamCalls).hasValue(1);
+        SingleFlight.SingleFlightStats stats = singleFlight.getStats();
+        assertThat(stats.getUpstreamCalls()).isEqualTo(2);
+        assertThat(stats.getSavedCalls()).isEqualTo(5);
+        assertThat(stats.getInFlight()).isZero();
+    }
+
+    @Test
+    void leadersFailureIsSharedAndNotRemembered() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        Future<String> leader = callers.submit(() -> singleFlight.execute("vat", () -> {
+            leaderStarted.countDown();
+            slowAnswer(null);
+            throw new IllegalStateException("RAG down");
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> follower = callers.submit(() -> singleFlight.execute("vat", () -> "unused"));
+        waitForFollowers(1);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("RAG down");
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("RAG down");
+        // The next call goes upstream again
+        assertThat(singleFlight.execute("vat", () -> "7.5%")).isEqualTo("7.5%");
+    }
+
+    @Test
+    void asyncFollowersGetTheLeadersFuture() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.executeAsync("vat", () -> upstream);
+        CompletableFuture<String> second = singleFlight.executeAsync("vat", () -> CompletableFuture.completedFuture("other"));
+        assertThat(second).isSameAs(first).isNotDone();
+
+        upstream.complete("7.5%");
+        assertThat(first.join()).isEqualTo("7.5%");
+        assertThat(singleFlight.executeAsync("vat", () -> CompletableFuture.completedFuture("5%")).join()).isEqualTo("5%");
+
+        // A call that throws instead of returning a future fails the future
+        assertThat(singleFlight.executeAsync("cit", () -> {
+            throw new IllegalStateException("RAG down");
+        })).isCompletedExceptionally();
+        assertThat(singleFlight.getStats().getInFlight()).isZero();
+    }
+
+    private String slowAnswer(String answer) {
+        upstreamCalls.incrementAndGet();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return answer;
+    }
+
+    // Followers join the leader's future without any other sign that they arrived
+    private void waitForFollowers(int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && singleFlight.getStats().getSavedCalls() < expected; i++) {
+            Thread.sleep(20);
+        }
+        assertThat(singleFlight.getStats().getSavedCalls()).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,54 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingTopKTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    // Three one-second buckets
+    private final SlidingTopK<String> topK = new SlidingTopK<>(3, 1000, 10, clock::get);
+
+    @Test
+    void mergesTheLiveBucketsMostFrequentFirst() {
+        offer("vat", 2);
+        clock.addAndGet(1000);
+        offer("paye", 1);
+        offer("vat", 1);
+        clock.addAndGet(1000);
+        offer("cit", 4);
+
+        assertThat(topK.top(2)).extracting(SpaceSaving.Entry::key).containsExactly("cit", "vat");
+        assertThat(topK.top(10)).hasSize(3);
+        assertThat(topK.top(1).get(0).count()).isEqualTo(4);
+        assertThat(topK.total()).isEqualTo(8);
+    }
+
+    @Test
+    void bucketsFallOutOfTheWindow() {
+        offer("vat", 3);
+        clock.addAndGet(2000);
+        offer("paye", 1);
+
+        clock.addAndGet(1000);
+        assertThat(topK.top(10)).extracting(SpaceSaving.Entry::key).containsExactly("paye");
+        assertThat(topK.total()).isEqualTo(1);
+
+        // A bucket reused for a later second starts empty
+        offer("cit", 1);
+        assertThat(topK.top(10)).extracting(SpaceSaving.Entry::key).containsExactlyInAnyOrder("paye", "cit");
+
+        clock.addAndGet(10_000);
+        assertThat(topK.top(10)).isEmpty();
+        assertThat(topK.total()).isZero();
+    }
+
+    private void offer(String key, int times) {
+        for (int i = 0; i < times; i++) {
+            topK.offer(key);
+        }
+    }
+}
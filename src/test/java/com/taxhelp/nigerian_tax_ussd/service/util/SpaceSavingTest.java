@@ -0,0 +1,77 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpaceSavingTest {
+
+    @Test
+    void countsExactlyWhileThereIsRoom() {
+        SpaceSaving<String> sketch = new SpaceSaving<>(3);
+        sketch.offer("vat", 1);
+        sketch.offer("paye", 1);
+        sketch.offer("vat", 2);
+
+        assertThat(sketch.entries()).containsExactlyInAnyOrder(
+                new SpaceSaving.Entry<>("vat", 3, 0),
+                new SpaceSaving.Entry<>("paye", 1, 0));
+        assertThat(sketch.total()).isEqualTo(4);
+    }
+
+    @Test
+    void newcomerReplacesTheSmallestCounterAndInheritsItAsError() {
+        SpaceSaving<String> sketch = new SpaceSaving<>(2);
+        sketch.offer("vat", 5);
+        sketch.offer("paye", 2);
+
+        sketch.offer("cit", 1);
+
+        assertThat(sketch.entries()).containsExactlyInAnyOrder(
+                new SpaceSaving.Entry<>("vat", 5, 0),
+                new SpaceSaving.Entry<>("cit", 3, 2));
+        assertThat(sketch.size()).isEqualTo(2);
+        assertThat(sketch.total()).isEqualTo(8);
+    }
+
+    @Test
+    void heavyHittersAreTrackedWithinTheirError() {
+        SpaceSaving<Integer> sketch = new SpaceSaving<>(20);
+        Map<Integer, Long> actual = new TreeMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            // A few popular keys over a long tail
+            int key = random.nextInt(4) == 0 ? random.nextInt(5) : 100 + random.nextInt(5000);
+            actual.merge(key, 1L, Long::sum);
+            sketch.offer(key, 1);
+        }
+
+        Map<Integer, SpaceSaving.Entry<Integer>> tracked = sketch.entries().stream()
+                .collect(Collectors.toMap(SpaceSaving.Entry::key, entry -> entry));
+        actual.forEach((key, count) -> {
+            if (count > sketch.total() / 20) {
+                assertThat(tracked).containsKey(key);
+            }
+        });
+        tracked.values().forEach(entry -> assertThat(actual.getOrDefault(entry.key(), 0L))
+                .isBetween(entry.count() - entry.error(), entry.count()));
+    }
+
+    @Test
+    void clearStartsOver() {
+        SpaceSaving<String> sketch = new SpaceSaving<>(1);
+        sketch.offer("vat", 1);
+        sketch.offer("paye", 1);
+
+        sketch.clear();
+        sketch.offer("cit", 1);
+
+        assertThat(sketch.entries()).containsExactly(new SpaceSaving.Entry<>("cit", 1, 0));
+        assertThat(sketch.total()).isEqualTo(1);
+    }
+}
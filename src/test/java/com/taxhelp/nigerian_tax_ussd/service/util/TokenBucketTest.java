@@ -0,0 +1,62 @@
+package com.taxhelp.nigerian_tax_ussd.service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void burstGoesAtOnceThenTheSteadyRate() {
+        TokenBucket bucket = new TokenBucket(2, 3, nanos::get);
+
+        assertThat(acquired(bucket, 10)).isEqualTo(3);
+
+        advanceMillis(500);
+        assertThat(acquired(bucket, 10)).isEqualTo(1);
+        advanceMillis(250);
+        assertThat(acquired(bucket, 10)).isZero();
+        advanceMillis(250);
+        assertThat(acquired(bucket, 10)).isEqualTo(1);
+    }
+
+    @Test
+    void idleTimeRefillsNoMoreThanTheBurst() {
+        TokenBucket bucket = new TokenBucket(2, 3, nanos::get);
+        acquired(bucket, 10);
+
+        advanceMillis(60_000);
+
+        assertThat(acquired(bucket, 10)).isEqualTo(3);
+    }
+
+    @Test
+    void acquireWaitsForTheNextToken() throws Exception {
+        TokenBucket bucket = new TokenBucket(20, 1);
+        bucket.acquire();
+
+        long start = System.nanoTime();
+        bucket.acquire();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(40);
+    }
+
+    private void advanceMillis(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static int acquired(TokenBucket bucket, int attempts) {
+        int acquired = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (bucket.tryAcquire()) {
+                acquired++;
+            }
+        }
+        return acquired;
+    }
+}